@@ -0,0 +1,197 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * AStarSearch class finds shortest routes on a road network with the A* algorithm, using
+ * the estimate of the network (Manhattan distance, or landmark bounds) as the heuristic. The search keeps its working arrays between
+ * searches and marks them with a stamp instead of clearing them, so a search only touches
+ * the nodes it visits. An instance is not thread-safe and is meant to be kept per thread.
+ */
+public class AStarSearch {
+    private RoadNetwork network;
+    private int[] distances;
+    private int[] parents;
+    private int[] seen;
+    private int[] closed;
+    private int stamp;
+    private long[] heap;
+    private int heapSize;
+
+    /**
+     * Constructs a search for a road network.
+     *
+     * @param network The road network to search
+     */
+    public AStarSearch(RoadNetwork network) {
+        int nodes = network.getNodes();
+
+        this.network = network;
+        this.distances = new int[nodes];
+        this.parents = new int[nodes];
+        this.seen = new int[nodes];
+        this.closed = new int[nodes];
+        this.stamp = 0;
+        this.heap = new long[64];
+        this.heapSize = 0;
+    }
+
+    /**
+     * Finds the cost of the shortest route between two nodes.
+     *
+     * @param source The node the route starts from
+     * @param target The node the route ends at
+     * @return The cost of the shortest route, or IDistanceOracle.UNREACHABLE if there is none
+     */
+    public int search(int source, int target) {
+        if (++this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.seen, 0);
+            Arrays.fill(this.closed, 0);
+            this.stamp = 1;
+        }
+
+        this.heapSize = 0;
+        this.distances[source] = 0;
+        this.parents[source] = -1;
+        this.seen[source] = this.stamp;
+        push(this.network.estimate(source, target), source);
+
+        while (this.heapSize > 0) {
+            int node = (int) pop();
+
+            if (this.closed[node] == this.stamp) {
+                continue;
+            }
+
+            this.closed[node] = this.stamp;
+
+            if (node == target) {
+                return this.distances[node];
+            }
+
+            for (int edge = this.network.getFirstStreet(node); edge < this.network.getFirstStreet(node + 1); edge++) {
+                int next = this.network.getStreetTarget(edge);
+                int distance = this.distances[node] + this.network.getStreetCost(edge);
+
+                if (this.seen[next] != this.stamp || distance < this.distances[next]) {
+                    this.seen[next] = this.stamp;
+                    this.distances[next] = distance;
+                    this.parents[next] = node;
+                    push(distance + this.network.estimate(next, target), next);
+                }
+            }
+        }
+
+        return IDistanceOracle.UNREACHABLE;
+    }
+
+    /**
+     * Finds the cost of the shortest routes from a node to every node, with Dijkstra's algorithm.
+     *
+     * @param source The node the routes start from
+     * @param row    The array that receives the cost of the route to every node,
+     *               or IDistanceOracle.UNREACHABLE for the nodes without a route
+     */
+    public void searchAll(int source, int[] row) {
+        Arrays.fill(row, IDistanceOracle.UNREACHABLE);
+
+        this.heapSize = 0;
+        row[source] = 0;
+        push(0, source);
+
+        while (this.heapSize > 0) {
+            long key = pop();
+            int node = (int) key;
+
+            // skip the stale entries of nodes reached again at a lower cost
+
+            if ((int) (key >>> 32) > row[node]) {
+                continue;
+            }
+
+            for (int edge = this.network.getFirstStreet(node); edge < this.network.getFirstStreet(node + 1); edge++) {
+                int next = this.network.getStreetTarget(edge);
+                int distance = row[node] + this.network.getStreetCost(edge);
+
+                if (distance < row[next]) {
+                    row[next] = distance;
+                    push(distance, next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the route found by the last successful search.
+     *
+     * @param target The node the route ends at
+     * @return The nodes of the route after the source, ending with the target
+     */
+    public int[] path(int target) {
+        int length = 0;
+
+        for (int node = target; this.parents[node] != -1; node = this.parents[node]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+
+        for (int node = target; this.parents[node] != -1; node = this.parents[node]) {
+            path[--length] = node;
+        }
+
+        return path;
+    }
+
+    /**
+     * Adds a node to the priority queue.
+     *
+     * @param priority The estimated cost of a route through the node
+     * @param node     The node
+     */
+    private void push(int priority, int node) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, 2 * this.heap.length);
+        }
+
+        long key = ((long) priority << 32) | node;
+        int i = this.heapSize++;
+
+        while (i > 0 && this.heap[(i - 1) / 2] > key) {
+            this.heap[i] = this.heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+
+        this.heap[i] = key;
+    }
+
+    /**
+     * Takes the node with the lowest estimated cost from the priority queue.
+     *
+     * @return The key of the node, with the node in its low 32 bits
+     */
+    private long pop() {
+        long top = this.heap[0];
+        long last = this.heap[--this.heapSize];
+        int i = 0;
+
+        while (2 * i + 1 < this.heapSize) {
+            int child = 2 * i + 1;
+
+            if (child + 1 < this.heapSize && this.heap[child + 1] < this.heap[child]) {
+                child++;
+            }
+
+            if (this.heap[child] >= last) {
+                break;
+            }
+
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+
+        this.heap[i] = last;
+
+        return top;
+    }
+}
@@ -0,0 +1,10 @@
+package taxify;
+
+/**
+ * Enum representing what a rider agent is doing. SLEEPING waits for the next time the
+ * rider wants a ride, REQUESTING is asking the taxi company for a service, and RIDING
+ * waits for the service to be picked up and dropped off.
+ */
+public enum AgentState {
+    SLEEPING, REQUESTING, RIDING
+}
@@ -1,10 +1,13 @@
 package taxify;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Utility class providing various helper methods for the Taxify application.
  * This includes generating random numbers, computing distances, and generating random locations.
+ * Distances and routes come from a pluggable router, an obstacle-free Manhattan grid by default,
+ * and the distance oracle can be replaced on its own. Random numbers come from a random service
+ * that can be seeded to replay a simulation.
  */
 public class ApplicationLibrary {
     
@@ -12,10 +15,19 @@ public class ApplicationLibrary {
     public static final int MINIMUM_DISTANCE = 3;
     
     /** The width of the map used for random location generation. */
-    private static final int MAP_WIDTH = 10;
+    public static final int MAP_WIDTH = 10;
     
     /** The height of the map used for random location generation. */
-    private static final int MAP_HEIGHT = 10;    
+    public static final int MAP_HEIGHT = 10;    
+
+    /** The router that creates the routes of the vehicles. */
+    private static volatile IRouter router = new ManhattanRouter();
+
+    /** The oracle that computes the distances for dispatch and billing. */
+    private static volatile IDistanceOracle distanceOracle = router;
+
+    /** The source of the random draws of the simulation. */
+    private static volatile RandomService random = new RandomService(new SplittableRandom().nextLong());
 
     /**
      * Generates a random integer within the range [0, 9766].
@@ -23,8 +35,6 @@ public class ApplicationLibrary {
      * @return A random integer between 0 and 9766.
      */
     public static int rand() {
-        Random random = new Random();
-
         return random.nextInt(9767);
     }
     
@@ -35,45 +45,144 @@ public class ApplicationLibrary {
      * @return A random integer between 0 and max - 1.
      */
     public static int rand(int max) {
-        Random random = new Random();
+        return random.nextInt(max);
+    }
+
+    /**
+     * Generates a random double within the range [0, 1).
+     * 
+     * @return A random double between 0 (inclusive) and 1 (exclusive).
+     */
+    public static double randDouble() {
+        return random.nextDouble();
+    }
 
-        return random.nextInt(9767) % max;
+    /**
+     * Gets the random service every random draw comes from.
+     * 
+     * @return The random service.
+     */
+    public static RandomService getRandom() {
+        return random;
+    }
+
+    /**
+     * Seeds the random draws, so a simulation run with the same seed is replayed
+     * draw for draw. It should be called before users and vehicles are created.
+     * 
+     * @param seed The seed.
+     */
+    public static void setSeed(long seed) {
+        random = new RandomService(seed);
+    }
+
+    /**
+     * Seeds the random draws of a run that keeps its seed but draws from other streams,
+     * such as a run resumed from a checkpoint.
+     * 
+     * @param seed       The seed of the run.
+     * @param streamSeed The seed the random streams are split from.
+     */
+    public static void setSeed(long seed, long streamSeed) {
+        random = new RandomService(seed, streamSeed);
     }
     
     /**
-     * Computes the Manhattan distance between two locations.
+     * Gets the router that creates the routes of the vehicles.
      * 
-     * @param a The first location.
-     * @param b The second location.
-     * @return The Manhattan distance between the two locations.
+     * @return The router.
+     */
+    public static IRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * Sets the router that creates the routes of the vehicles. The router also becomes
+     * the distance oracle. It should be set before vehicles are created.
+     * 
+     * @param newRouter The router.
+     */
+    public static void setRouter(IRouter newRouter) {
+        router = newRouter;
+        distanceOracle = newRouter;
+    }
+
+    /**
+     * Gets the oracle that computes the distances for dispatch and billing.
+     * 
+     * @return The distance oracle.
+     */
+    public static IDistanceOracle getDistanceOracle() {
+        return distanceOracle;
+    }
+
+    /**
+     * Sets the oracle that computes the distances for dispatch and billing,
+     * without changing the router, for example a CachedDistanceOracle of the road network.
+     * 
+     * @param oracle The distance oracle.
+     */
+    public static void setDistanceOracle(IDistanceOracle oracle) {
+        distanceOracle = oracle;
+    }
+
+    /**
+     * Computes the distance of the route from one location to another with the distance
+     * oracle. On the default grid this is the Manhattan distance.
+     * 
+     * @param a The location the route starts from.
+     * @param b The location the route ends at.
+     * @return The distance between the two locations, or IDistanceOracle.UNREACHABLE.
      */
     public static int distance(ILocation a, ILocation b) {
-        return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY());
+        return distanceOracle.distance(a, b);
+    }
+
+    /**
+     * Creates a route between two locations with the router.
+     * 
+     * @param start The starting location.
+     * @param destination The destination.
+     * @return The route between the two locations.
+     */
+    public static IRoute createRoute(ILocation start, ILocation destination) {
+        return router.createRoute(start, destination);
     }
     
     /**
-     * Generates a random location within the predefined map boundaries.
+     * Generates a random location within the predefined map boundaries that vehicles can drive to.
      * 
      * @return A randomly generated location within the map.
      */
     public static ILocation randomLocation() {
-        return new Location(rand(MAP_WIDTH), rand(MAP_HEIGHT));
+        ILocation location;
+
+        do {
+
+            location = Location.of(rand(MAP_WIDTH), rand(MAP_HEIGHT));
+
+        } while (!router.isAccessible(location));
+
+        return location;
     }
     
     /**
-     * Generates a random location that is at least MINIMUM_DISTANCE away from the given location.
+     * Generates a random location that is at least MINIMUM_DISTANCE away from the given location,
+     * and can be reached from it.
      * 
      * @param location The reference location from which the distance is measured.
      * @return A randomly generated location that is at least MINIMUM_DISTANCE away from the given location.
      */
     public static ILocation randomLocation(ILocation location) {
         ILocation destination;
+        int distance;
         
         do {
 
-            destination = new Location(rand(MAP_WIDTH), rand(MAP_HEIGHT));
+            destination = randomLocation();
+            distance = distance(location, destination);
             
-        } while (distance(location, destination) < MINIMUM_DISTANCE);  
+        } while (distance < MINIMUM_DISTANCE || distance == IDistanceOracle.UNREACHABLE);  
             
         return destination;
     }
@@ -1,16 +1,34 @@
 package taxify;
 
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 import java.time.LocalDate;
 
 /**
  * ApplicationSimulator class simulates the application by managing the taxi
- * company, users, and vehicles.
+ * company, users, and vehicles. The fleet can be rendered every tick with show(), or,
+ * in headless runs, sampled by a renderer running on its own thread.
  */
 public class ApplicationSimulator implements IApplicationSimulator, IObserver {
+    /** The width and height of the cells of the index of shared rides. */
+    private static final int SHARED_RIDE_CELL_SIZE = 2;
+
     private ITaxiCompany company;
     private List<IUser> users;
     private List<IVehicle> vehicles;
+    private FleetTable fleet;
+    private UpdateMode updateMode;
+    private ForkJoinPool pool;
+    private boolean[] pendingMoves;
+    private SampledRenderer renderer;
+    private IdleRiders idleRiders;
+    private RiderSelection riderSelection;
+    private SharedRideIndex sharedRides;
+    private long sharedRidesTime;
+    private IRideJournal journal;
+    private TaxiEvent event;
+    private long time;
     
     /**
      * Constructor for ApplicationSimulator.
@@ -23,6 +41,171 @@ public class ApplicationSimulator implements IApplicationSimulator, IObserver {
         this.company = company;
         this.users = users;
         this.vehicles = vehicles;
+        this.fleet = FleetTable.of(vehicles);
+        this.updateMode = UpdateMode.SEQUENTIAL;
+        this.pool = ForkJoinPool.commonPool();
+        this.pendingMoves = new boolean[vehicles.size()];
+        this.renderer = null;
+        this.idleRiders = new IdleRiders(users);
+        this.riderSelection = RiderSelection.LONGEST_IDLE;
+        this.sharedRides = new SharedRideIndex(ApplicationLibrary.MAP_WIDTH, ApplicationLibrary.MAP_HEIGHT,
+                SHARED_RIDE_CELL_SIZE);
+        this.sharedRidesTime = -1;
+        this.journal = null;
+        this.event = new TaxiEvent();
+        this.time = 0;
+    }
+
+    /**
+     * Gets the users of the simulation.
+     * 
+     * @return The users
+     */
+    public List<IUser> getUsers() {
+        return this.users;
+    }
+
+    /**
+     * Gets the taxi company managed by the simulation.
+     * 
+     * @return The taxi company
+     */
+    protected ITaxiCompany getCompany() {
+        return this.company;
+    }
+
+    /**
+     * Gets the vehicles of the simulation.
+     * 
+     * @return The vehicles
+     */
+    public List<IVehicle> getVehicles() {
+        return this.vehicles;
+    }
+
+    /**
+     * Gets the table keeping the state of the vehicles.
+     * 
+     * @return The fleet table
+     */
+    public FleetTable getFleet() {
+        return this.fleet;
+    }
+
+    /**
+     * Gets the set of users without an active service.
+     * 
+     * @return The idle users
+     */
+    public IdleRiders getIdleRiders() {
+        return this.idleRiders;
+    }
+
+    /**
+     * Gets how the next user to request a service is picked.
+     * 
+     * @return The rider selection
+     */
+    public RiderSelection getRiderSelection() {
+        return this.riderSelection;
+    }
+
+    /**
+     * Sets how the next user to request a service is picked: the user idle the longest,
+     * or a user picked at random to spread the demand across all users.
+     * 
+     * @param riderSelection The rider selection
+     */
+    public void setRiderSelection(RiderSelection riderSelection) {
+        this.riderSelection = riderSelection;
+    }
+
+    /**
+     * Gets the number of ticks simulated.
+     * 
+     * @return The current tick
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Sets the number of ticks simulated, such as when the simulation is restored from a
+     * checkpoint.
+     * 
+     * @param time The current tick
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Sets the journal the simulation and its taxi company are recorded to, or replayed from.
+     * The journal only follows the ticks of this simulator, with requests made between them.
+     * 
+     * @param journal The journal, or null for none
+     */
+    public void setJournal(IRideJournal journal) {
+        this.journal = journal;
+        this.company.setJournal(journal);
+    }
+
+    /**
+     * Sets the renderer that samples the fleet as the simulation runs, instead of
+     * showing it every tick. The renderer should be started by the caller.
+     * 
+     * @param renderer The sampled renderer, or null for none
+     */
+    public void setRenderer(SampledRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Hands a snapshot of the fleet over to the renderer if a sample is due.
+     */
+    protected void sample() {
+        if (this.renderer != null && this.renderer.isDue(getTime())) {
+            this.renderer.publish(snapshot());
+        }
+    }
+
+    /**
+     * Takes a snapshot of the fleet on the current tick.
+     * 
+     * @return The snapshot of the fleet
+     */
+    protected FleetSnapshot snapshot() {
+        return this.fleet.snapshot(getTime());
+    }
+
+    /**
+     * Gets the mode used to move the vehicles every tick.
+     * 
+     * @return The update mode
+     */
+    public UpdateMode getUpdateMode() {
+        return this.updateMode;
+    }
+
+    /**
+     * Sets the mode used to move the vehicles every tick. Parallel updates run on the
+     * common fork/join pool.
+     * 
+     * @param updateMode The update mode
+     */
+    public void setUpdateMode(UpdateMode updateMode) {
+        setUpdateMode(updateMode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sets the mode used to move the vehicles every tick, and the pool parallel updates run on.
+     * 
+     * @param updateMode The update mode
+     * @param pool The fork/join pool that advances the vehicles in parallel
+     */
+    public void setUpdateMode(UpdateMode updateMode, ForkJoinPool pool) {
+        this.updateMode = updateMode;
+        this.pool = pool;
     }
     
     /**
@@ -65,45 +248,103 @@ public class ApplicationSimulator implements IApplicationSimulator, IObserver {
     }    
 
     /**
-     * Updates the position of all vehicles by moving them to their next location.
+     * Updates the position of all vehicles by moving them to their next location,
+     * and lets the company assign the requests buffered during the tick.
+     * The vehicles advance walking the fleet table, on all cores in parallel mode, and the
+     * moves that notify the company (free vehicles moving, arrivals) are completed afterwards
+     * in the order of the vehicles, so a parallel tick has the same result as a sequential one.
+     * With a journal, the fleet draws from the stream of the journal, and the end of the tick
+     * is recorded.
      */
     @Override
     public void update() {
+        IRideJournal journal = this.journal;
+
+        if (journal == null) {
+            advance();
+            return;
+        }
+
+        RandomService random = ApplicationLibrary.getRandom();
+        SplittableRandom requests = random.current();
+
+        random.setCurrent(journal.getFleetStream());
+
+        try {
+            advance();
+        } finally {
+            random.setCurrent(requests);
+        }
+
+        journal.tickEnded(this.time - 1);
+    }
+
+    /**
+     * Moves the vehicles, assigns the buffered requests and ends the tick.
+     */
+    private void advance() {
         // move vehicles to their next location
         
-        for (IVehicle vehicle : this.vehicles) {
-               vehicle.move();
+        if (this.updateMode == UpdateMode.PARALLEL) {
+            this.pool.invoke(new VehicleMoveTask(this.fleet, this.pendingMoves, 0, this.fleet.size()));
+        } else {
+            this.fleet.advance(0, this.fleet.size(), this.pendingMoves);
         }
+
+        for (int slot = 0; slot < this.fleet.size(); slot++) {
+            if (this.pendingMoves[slot]) {
+                this.fleet.getOwner(slot).completeMove();
+            }
+        }
+
+        // assign the requests received during the tick
+
+        this.company.dispatchRequests();
+
+        this.time++;
+        sample();
+    }
+
+    /**
+     * Picks the next user to request a service among the users without one.
+     * 
+     * @return The user, or null if every user has a service
+     */
+    public IUser nextRider() {
+        return (this.riderSelection == RiderSelection.RANDOM) ? this.idleRiders.nextRandom()
+                : this.idleRiders.nextLongestIdle();
     }
 
     /**
-     * Finds an available user and requests a service from the Taxi Company.
+     * Picks an available user and requests a service from the Taxi Company.
      * Attempts to offer shared rides when possible and handles special service types
      * like PinkService for female users and minors.
      */
     @Override
     public void requestService() {        
-        // finds an available user and requests a service to the Taxi Company
-        for (IUser user : users) {
-            if (!user.getService()) {
-                // Check if a shared ride can be offered
-                if (offerSharedRide(user)) {
-                    return;
-                }
+        // picks an available user and requests a service to the Taxi Company
+        IUser user = nextRider();
 
-                RideMode rideMode = Math.random() < 0.5 ? RideMode.STANDARD : RideMode.SILENT;
-                if (user.getGender() == 'F' || LocalDate.now().getYear() - user.getBirthDate().getYear() < 18) {
-                    // 50% chance request PinkServiceType
-                    if (Math.random() < 0.5) {
-                        user.requestService(new PinkServiceType(), rideMode);
-                    } else {
-                        user.requestService(new StandardServiceType(), rideMode);
-                    }
-                } else {
-                    user.requestService(new StandardServiceType(), rideMode);
-                }
-                return;
+        if (user == null) {
+            return;
+        }
+
+        RideMode rideMode = ApplicationLibrary.randDouble() < 0.5 ? RideMode.STANDARD : RideMode.SILENT;
+
+        // Check if a shared ride can be offered
+        if (offerSharedRide(user, rideMode)) {
+            return;
+        }
+
+        if (user.getGender() == 'F' || LocalDate.now().getYear() - user.getBirthDate().getYear() < 18) {
+            // 50% chance request PinkServiceType
+            if (ApplicationLibrary.randDouble() < 0.5) {
+                user.requestService(ServiceTypeRegistry.PINK, rideMode);
+            } else {
+                user.requestService(ServiceTypeRegistry.STANDARD, rideMode);
             }
+        } else {
+            user.requestService(ServiceTypeRegistry.STANDARD, rideMode);
         }
     }
     
@@ -118,42 +359,104 @@ public class ApplicationSimulator implements IApplicationSimulator, IObserver {
     }
     
     /**
-     * Updates the observer with a message about system events.
+     * Updates the observer with a system event, showing its message.
      * 
-     * @param message The message to be displayed
+     * @param event The event
      */
     @Override
-    public void updateObserver(String message) {
-        System.out.println(message);
+    public void updateObserver(TaxiEvent event) {
+        System.out.println(event);
+    }
+
+    /**
+     * Gets the current location of a vehicle, to check if it is close to a user.
+     * Vehicles move every tick here, so their location is always up to date.
+     * 
+     * @param vehicle The vehicle
+     * @return The current location of the vehicle
+     */
+    protected ILocation locate(IVehicle vehicle) {
+        return vehicle.getLocation();
+    }
+
+    /**
+     * Brings a vehicle to its current location before it joins a shared ride.
+     * Vehicles move every tick here, so they are always up to date.
+     * 
+     * @param vehicle The vehicle
+     */
+    protected void synchronize(IVehicle vehicle) {
     }
 
     /**
-     * Attempts to create a shared ride for a user with an existing service.
+     * Attempts to create a shared ride for a user, or to add the user to a shared ride.
+     * The user boards a taxi in service close to them, with a spare seat and the same ride
+     * mode, found in the index of shared rides; the drop-off stops are reordered so that no
+     * rider exceeds their detour limit, and the ride is refused otherwise.
      * 
      * @param user The user requesting to join a shared ride
-     * @return true if a shared ride was successfully created, false otherwise
-     */
-    private boolean offerSharedRide(IUser user) {
-        for (IVehicle vehicle : vehicles) {
-            if (vehicle.getService() instanceof IService && !vehicle.isFree() && vehicle instanceof Taxi && user.getService() == false) {
-                IService existingService = (IService) vehicle.getService();
-                ILocation userLocation = ApplicationLibrary.randomLocation();
-                ILocation userDestination = ApplicationLibrary.randomLocation(userLocation);
-                if (ApplicationLibrary.distance(vehicle.getLocation(), userLocation) < ApplicationLibrary.MINIMUM_DISTANCE) {
-                    if (Math.random() < 0.5) { // Randomize acceptance for existing user
-                        if (Math.random() < 0.5) { // Randomize acceptance for new user
-                            ISharedService sharedService = new SharedService(existingService);
-                            sharedService.addUser(user, userLocation);
-                            sharedService.addDropoffLocation(userDestination);
-                            vehicle.addDestination(userDestination);
-                            vehicle.setService(sharedService);
-                            updateObserver("Shared ride accepted for user " + user.getId() + " with vehicle " + vehicle.getId());
-                            return true;
-                        }
+     * @param rideMode The ride mode of the user
+     * @return true if the user joined a shared ride, false otherwise
+     */
+    private boolean offerSharedRide(IUser user, RideMode rideMode) {
+        // the vehicles in service move every tick, so the index is rebuilt once per tick
+
+        if (this.sharedRidesTime != getTime()) {
+            this.sharedRides.rebuild(this.vehicles, this::locate);
+            this.sharedRidesTime = getTime();
+        }
+
+        ILocation userLocation = ApplicationLibrary.randomLocation();
+        ILocation userDestination = ApplicationLibrary.randomLocation(userLocation);
+        List<IVehicle> candidates = this.sharedRides.findWithin(userLocation, ApplicationLibrary.MINIMUM_DISTANCE - 1,
+                vehicle -> SharedRideIndex.hasSpareSeat(vehicle) && vehicle.getService().getRideMode() == rideMode);
+
+        for (IVehicle vehicle : candidates) {
+            if (user.getService()) {
+                return false;
+            }
+
+            if (ApplicationLibrary.randDouble() < 0.5) { // Randomize acceptance for existing user
+                // the vehicle may reach its drop-off location while catching up
+                synchronize(vehicle);
+                if (!SharedRideIndex.hasSpareSeat(vehicle)) {
+                    continue;
+                }
+                if (ApplicationLibrary.randDouble() < 0.5 && joinSharedRide(user, vehicle, userDestination)) { // Randomize acceptance for new user
+                    if (this.journal != null) {
+                        this.journal.sharedRideJoined(user, vehicle, userDestination);
                     }
+                    return true;
                 }
             }
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds a user to the ride of a vehicle in service, turning it into a shared ride if it
+     * is not one yet, such as when a user accepts a shared ride or when one is replayed from
+     * a journal.
+     * 
+     * @param user The user, who must not have a service
+     * @param vehicle The vehicle
+     * @param destination The drop-off location of the user
+     * @return true if the user joined the ride, false otherwise
+     */
+    public boolean joinSharedRide(IUser user, IVehicle vehicle, ILocation destination) {
+        if (!SharedRideIndex.hasSpareSeat(vehicle) || !user.reserveService()) {
+            return false;
+        }
+        IBaseService existingService = vehicle.getService();
+        ISharedService sharedService = (existingService instanceof ISharedService)
+                ? (ISharedService) existingService
+                : new SharedService((IService) existingService);
+        if (!sharedService.addUser(user, destination, vehicle.getLocation())) {
+            user.setService(false);
+            return false;
+        }
+        vehicle.setService(sharedService);
+        updateObserver(this.event.sharedRideAccepted(vehicle, user.getId()));
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package taxify;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AsyncRideRequest class represents a service request waiting in the intake queue,
+ * together with the future that completes when a vehicle is assigned to it.
+ */
+public class AsyncRideRequest {
+    private int user;
+    private IServiceType serviceType;
+    private RideMode rideMode;
+    private long deadline;
+    private CompletableFuture<IVehicle> future;
+
+    /**
+     * Constructs a new AsyncRideRequest.
+     *
+     * @param user        the ID of the user requesting the service
+     * @param serviceType the type of service requested
+     * @param rideMode    the mode of the ride
+     * @param deadline    the System.nanoTime() value the request expires at
+     */
+    public AsyncRideRequest(int user, IServiceType serviceType, RideMode rideMode, long deadline) {
+        this.user = user;
+        this.serviceType = serviceType;
+        this.rideMode = rideMode;
+        this.deadline = deadline;
+        this.future = new CompletableFuture<>();
+    }
+
+    /**
+     * Gets the ID of the user requesting the service.
+     *
+     * @return the user ID
+     */
+    public int getUser() {
+        return this.user;
+    }
+
+    /**
+     * Gets the type of service requested.
+     *
+     * @return the type of service
+     */
+    public IServiceType getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Gets the mode of the ride.
+     *
+     * @return the ride mode
+     */
+    public RideMode getRideMode() {
+        return this.rideMode;
+    }
+
+    /**
+     * Gets the System.nanoTime() value the request expires at.
+     *
+     * @return the deadline of the request
+     */
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Gets the future that completes with the vehicle assigned to the request.
+     *
+     * @return the future of the request
+     */
+    public CompletableFuture<IVehicle> getFuture() {
+        return this.future;
+    }
+}
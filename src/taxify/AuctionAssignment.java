@@ -0,0 +1,95 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * AuctionAssignment class solves the min-cost assignment of requests to vehicles with
+ * the auction algorithm. Every request only bids for its own short list of candidate
+ * vehicles, so the work grows with the number of candidates instead of with the full
+ * requests x vehicles matrix. A request may also stay unassigned at a fixed cost, which
+ * guarantees the auction ends even when there are more requests than vehicles.
+ */
+public class AuctionAssignment {
+    /** The number of bids between two checks of the time budget. */
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+
+    /**
+     * Assigns requests to vehicles minimizing the total cost. Costs are scaled by the number
+     * of requests plus one, so bidding with an increment of 1 finds an optimal assignment.
+     * If the time budget runs out, the partial assignment reached so far is returned, with
+     * the requests that were outbid or had not bid yet left unassigned.
+     *
+     * @param vehicles       The number of vehicles
+     * @param candidates     The candidate vehicles of every request
+     * @param costs          The cost of assigning every candidate vehicle to its request
+     * @param unassignedCost The cost of leaving a request unassigned
+     * @param deadline       The System.nanoTime() value the assignment must finish by
+     * @return The vehicle assigned to every request, or -1 for unassigned requests
+     */
+    public static int[] solve(int vehicles, int[][] candidates, int[][] costs, int unassignedCost, long deadline) {
+        int requests = candidates.length;
+        long scale = requests + 1;
+        long unassignedBenefit = -unassignedCost * scale;
+
+        long[] prices = new long[vehicles];
+        int[] owners = new int[vehicles];
+        int[] assignment = new int[requests];
+        int[] queue = new int[requests];
+        int head = 0, size = requests, bids = 0;
+
+        Arrays.fill(owners, -1);
+        Arrays.fill(assignment, -1);
+
+        for (int i = 0; i < requests; i++) {
+            queue[i] = i;
+        }
+
+        while (size > 0) {
+            if (++bids % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+
+            int request = queue[head];
+            head = (head + 1) % requests;
+            size--;
+
+            // find the best and second best value for the request, leaving it
+            // unassigned is always an option
+
+            int best = -1;
+            long bestValue = unassignedBenefit, secondValue = unassignedBenefit;
+
+            for (int k = 0; k < candidates[request].length; k++) {
+                int vehicle = candidates[request][k];
+                long value = -costs[request][k] * scale - prices[vehicle];
+
+                if (value > bestValue) {
+                    secondValue = bestValue;
+                    bestValue = value;
+                    best = vehicle;
+                } else if (value > secondValue) {
+                    secondValue = value;
+                }
+            }
+
+            if (best == -1) {
+                continue;
+            }
+
+            // bid for the best vehicle, outbidding its current owner
+
+            prices[best] += bestValue - secondValue + 1;
+
+            if (owners[best] != -1) {
+                assignment[owners[best]] = -1;
+                queue[(head + size) % requests] = owners[best];
+                size++;
+            }
+
+            owners[best] = request;
+            assignment[request] = best;
+        }
+
+        return assignment;
+    }
+}
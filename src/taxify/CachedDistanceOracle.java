@@ -0,0 +1,152 @@
+package taxify;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CachedDistanceOracle class caches the distances of a road network so dispatch and fares
+ * do not search the network again for the same pair of locations. Small networks keep a
+ * full distance matrix, whose rows are computed with Dijkstra's algorithm the first time a
+ * location is used as a starting point. Large networks keep the recently used distances in a
+ * bounded striped cache with CLOCK eviction, and compute the missing ones with A* guided by
+ * landmark (ALT) bounds.
+ */
+public class CachedDistanceOracle implements IDistanceOracle {
+    /** The largest number of nodes a network can have to keep a full distance matrix. */
+    public static final int MATRIX_NODE_LIMIT = 1024;
+
+    /** The default number of distances kept by the cache of large networks. */
+    public static final int DEFAULT_CACHE_CAPACITY = 65536;
+
+    /** The default number of landmarks computed for large networks. */
+    public static final int DEFAULT_LANDMARKS = 8;
+
+    private RoadNetwork network;
+    private AtomicReferenceArray<int[]> matrix;
+    private DistanceCache cache;
+    private LongAdder hits;
+    private LongAdder misses;
+
+    /**
+     * Constructs a cache of the distances of a road network with the default sizes.
+     *
+     * @param network The road network
+     */
+    public CachedDistanceOracle(RoadNetwork network) {
+        this(network, DEFAULT_CACHE_CAPACITY, DEFAULT_LANDMARKS);
+    }
+
+    /**
+     * Constructs a cache of the distances of a road network. Networks larger than
+     * MATRIX_NODE_LIMIT get landmarks, which also speed up the routes of the vehicles.
+     *
+     * @param network       The road network
+     * @param cacheCapacity The number of distances kept by the cache of large networks
+     * @param landmarks     The number of landmarks computed for large networks
+     */
+    public CachedDistanceOracle(RoadNetwork network, int cacheCapacity, int landmarks) {
+        this.network = network;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+
+        if (network.getNodes() <= MATRIX_NODE_LIMIT) {
+            this.matrix = new AtomicReferenceArray<>(network.getNodes());
+            this.cache = null;
+        } else {
+            this.matrix = null;
+            this.cache = new DistanceCache(cacheCapacity);
+
+            network.setLandmarks(new Landmarks(network, landmarks));
+        }
+    }
+
+    /**
+     * Gets the number of distances answered from the cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of distances that had to be computed.
+     *
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the distance between two locations from the cache, computing it on a miss.
+     *
+     * @param from The location the route starts from
+     * @param to   The location the route ends at
+     * @return The cost of the route, or UNREACHABLE if there is no route
+     */
+    @Override
+    public int distance(ILocation from, ILocation to) {
+        if (!this.network.isAccessible(from) || !this.network.isAccessible(to)) {
+            return UNREACHABLE;
+        }
+
+        int source = this.network.nodeOf(from);
+        int target = this.network.nodeOf(to);
+
+        if (this.matrix != null) {
+            return matrixDistance(source, target);
+        }
+
+        return cachedDistance(source, target, from, to);
+    }
+
+    /**
+     * Gets a distance from the matrix, computing the whole row of the source on a miss.
+     * Two threads may compute the same row at once, in which case both get the same values.
+     *
+     * @param source The node the route starts from
+     * @param target The node the route ends at
+     * @return The cost of the route, or UNREACHABLE if there is no route
+     */
+    private int matrixDistance(int source, int target) {
+        int[] row = this.matrix.get(source);
+
+        if (row != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+            row = this.network.distancesFrom(source);
+            this.matrix.set(source, row);
+        }
+
+        return row[target];
+    }
+
+    /**
+     * Gets a distance from the cache, searching the network on a miss.
+     *
+     * @param source The node the route starts from
+     * @param target The node the route ends at
+     * @param from   The location the route starts from
+     * @param to     The location the route ends at
+     * @return The cost of the route, or UNREACHABLE if there is no route
+     */
+    private int cachedDistance(int source, int target, ILocation from, ILocation to) {
+        long key = ((long) source << 32) | target;
+        int distance = this.cache.get(key);
+
+        if (distance != DistanceCache.MISSING) {
+            this.hits.increment();
+            return distance;
+        }
+
+        // search outside the lock of the stripe, so other threads can keep reading it
+
+        this.misses.increment();
+        distance = this.network.distance(from, to);
+        this.cache.put(key, distance);
+
+        return distance;
+    }
+}
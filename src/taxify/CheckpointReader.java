@@ -0,0 +1,236 @@
+package taxify;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CheckpointReader class reads the values written by a CheckpointWriter, or by a RideJournal,
+ * which writes its values the same way. The file is memory-mapped, so large checkpoints are
+ * read straight from the page cache, and arrays are copied out of the mapping in bulk.
+ */
+public class CheckpointReader implements AutoCloseable {
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private List<String> strings;
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param path The path of the file
+     * @throws IOException If the file cannot be opened, or is too large to be mapped
+     */
+    public CheckpointReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        if (this.channel.size() > Integer.MAX_VALUE) {
+            this.channel.close();
+            throw new IOException("The file " + path + " is too large to be mapped");
+        }
+
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+        this.strings = new ArrayList<>();
+    }
+
+    /**
+     * Checks whether there are values left to read.
+     *
+     * @return true if the file does not end yet, false otherwise
+     */
+    public boolean hasRemaining() {
+        return this.buffer.hasRemaining();
+    }
+
+    /**
+     * Reads a byte.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public int readByte() throws IOException {
+        try {
+            return this.buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads a boolean written as a byte.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    /**
+     * Reads a char.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public char readChar() throws IOException {
+        try {
+            return this.buffer.getChar();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public int readInt() throws IOException {
+        try {
+            return this.buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads a long.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public long readLong() throws IOException {
+        try {
+            return this.buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads a double.
+     *
+     * @return The value
+     * @throws IOException If the file ends
+     */
+    public double readDouble() throws IOException {
+        try {
+            return this.buffer.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads a location written as its two coordinates.
+     *
+     * @return The location
+     * @throws IOException If the file ends
+     */
+    public ILocation readLocation() throws IOException {
+        int x = readInt();
+
+        return Location.of(x, readInt());
+    }
+
+    /**
+     * Reads a string, either its characters the first time it was written, or its index.
+     *
+     * @return The string
+     * @throws IOException If the file ends, or refers to a string it does not contain
+     */
+    public String readString() throws IOException {
+        int index = readInt();
+
+        if (index >= 0) {
+            if (index >= this.strings.size()) {
+                throw new IOException("The file refers to an unknown string " + index);
+            }
+
+            return this.strings.get(index);
+        }
+
+        byte[] bytes = new byte[readInt()];
+
+        readBytes(bytes, bytes.length);
+
+        String value = new String(bytes, StandardCharsets.UTF_8);
+
+        this.strings.add(value);
+
+        return value;
+    }
+
+    /**
+     * Reads values into the beginning of an array of bytes in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to read
+     * @throws IOException If the file ends
+     */
+    public void readBytes(byte[] values, int count) throws IOException {
+        try {
+            this.buffer.get(values, 0, count);
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads values into the beginning of an array of ints in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to read
+     * @throws IOException If the file ends
+     */
+    public void readInts(int[] values, int count) throws IOException {
+        try {
+            this.buffer.asIntBuffer().get(values, 0, count);
+            this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Reads values into the beginning of an array of doubles in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to read
+     * @throws IOException If the file ends
+     */
+    public void readDoubles(double[] values, int count) throws IOException {
+        try {
+            this.buffer.asDoubleBuffer().get(values, 0, count);
+            this.buffer.position(this.buffer.position() + count * Double.BYTES);
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Creates the exception reported when the file ends before a value.
+     *
+     * @param cause The underflow of the buffer
+     * @return The exception
+     */
+    private static IOException truncated(BufferUnderflowException cause) {
+        return new IOException("The file ends unexpectedly", cause);
+    }
+}
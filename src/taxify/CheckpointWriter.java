@@ -0,0 +1,234 @@
+package taxify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CheckpointWriter class writes the primitive values of a checkpoint to a file through a
+ * FileChannel, filling a direct buffer and writing it out whenever it is full. Arrays are
+ * copied into the buffer in bulk. Strings are written once and referred to by their index
+ * afterwards, since the names of a population repeat a lot.
+ */
+public class CheckpointWriter implements AutoCloseable {
+    /** The size of the buffer written to the channel at once. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private Map<String, Integer> strings;
+
+    /**
+     * Opens a file for writing, replacing the file if it exists.
+     *
+     * @param path The path of the file
+     * @throws IOException If the file cannot be opened
+     */
+    public CheckpointWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.strings = new HashMap<>();
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeByte(int value) throws IOException {
+        ensure(Byte.BYTES);
+        this.buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a boolean as a byte.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a char.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeChar(char value) throws IOException {
+        ensure(Character.BYTES);
+        this.buffer.putChar(value);
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        this.buffer.putInt(value);
+    }
+
+    /**
+     * Writes a long.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        this.buffer.putLong(value);
+    }
+
+    /**
+     * Writes a double.
+     *
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    public void writeDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        this.buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a location as its two coordinates.
+     *
+     * @param location The location
+     * @throws IOException If the file cannot be written
+     */
+    public void writeLocation(ILocation location) throws IOException {
+        writeInt(location.getX());
+        writeInt(location.getY());
+    }
+
+    /**
+     * Writes a string. The first time a string is written its characters follow its new
+     * index; afterwards only its index is written.
+     *
+     * @param value The string
+     * @throws IOException If the file cannot be written
+     */
+    public void writeString(String value) throws IOException {
+        Integer index = this.strings.get(value);
+
+        if (index != null) {
+            writeInt(index);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        this.strings.put(value, this.strings.size());
+        writeInt(-1);
+        writeInt(bytes.length);
+        writeBytes(bytes, bytes.length);
+    }
+
+    /**
+     * Writes the first values of an array of bytes in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeBytes(byte[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Byte.BYTES);
+
+            int length = Math.min(count - offset, this.buffer.remaining());
+
+            this.buffer.put(values, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the first values of an array of ints in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeInts(int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Integer.BYTES);
+
+            int length = Math.min(count - offset, this.buffer.remaining() / Integer.BYTES);
+
+            this.buffer.asIntBuffer().put(values, offset, length);
+            this.buffer.position(this.buffer.position() + length * Integer.BYTES);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the first values of an array of doubles in bulk.
+     *
+     * @param values The array
+     * @param count  The number of values to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeDoubles(double[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Double.BYTES);
+
+            int length = Math.min(count - offset, this.buffer.remaining() / Double.BYTES);
+
+            this.buffer.asDoubleBuffer().put(values, offset, length);
+            this.buffer.position(this.buffer.position() + length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes out what is left in the buffer and closes the file.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Makes room in the buffer for a number of bytes, writing it out if needed.
+     *
+     * @param bytes The number of bytes
+     * @throws IOException If the file cannot be written
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out the content of the buffer.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    private void flush() throws IOException {
+        this.buffer.flip();
+
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,304 @@
+package taxify;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ContentionStress class stresses the concurrent dispatch of the taxi company. The same batch
+ * of ride requests is made from 1, 2, ... up to the given number of threads at once, each time
+ * on a fresh company, and the throughput of every thread count is reported next to its
+ * speedup over a single thread. The fleet does not move during a run, so every vehicle and
+ * every user can be assigned at most once: after every run the stress checks that no
+ * vehicle and no user was assigned twice, and that the company, the vehicles and the users
+ * agree on the number of services. A broken invariant stops the stress with an exception.
+ *
+ * The stress is configured with key=value arguments: users, vehicles, requests (per run),
+ * threads (the largest thread count), rounds (runs per thread count, the best is reported)
+ * and seed.
+ */
+public class ContentionStress {
+    private int userCount;
+    private int vehicleCount;
+    private int requestCount;
+    private int threads;
+    private int rounds;
+    private long seed;
+
+    /**
+     * Constructs a stress with the default settings: four thousand requests of a hundred
+     * thousand users for five thousand vehicles, on up to as many threads as cores.
+     */
+    public ContentionStress() {
+        this.userCount = 100_000;
+        this.vehicleCount = 5_000;
+        this.requestCount = 4_000;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.rounds = 5;
+        this.seed = 1;
+    }
+
+    /**
+     * Runs the stress described by the arguments.
+     *
+     * @param args The key=value arguments of the stress
+     */
+    public static void main(String[] args) {
+        ContentionStress stress = new ContentionStress();
+
+        for (String arg : args) {
+            stress.configure(arg);
+        }
+
+        stress.run();
+    }
+
+    /**
+     * Sets a parameter of the stress.
+     *
+     * @param argument The parameter as key=value
+     */
+    public void configure(String argument) {
+        int separator = argument.indexOf('=');
+
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected key=value but got " + argument);
+        }
+
+        String key = argument.substring(0, separator);
+        String value = argument.substring(separator + 1);
+
+        switch (key) {
+            case "users":
+                this.userCount = Integer.parseInt(value);
+                break;
+            case "vehicles":
+                this.vehicleCount = Integer.parseInt(value);
+                break;
+            case "requests":
+                this.requestCount = Integer.parseInt(value);
+                break;
+            case "threads":
+                this.threads = Integer.parseInt(value);
+                break;
+            case "rounds":
+                this.rounds = Integer.parseInt(value);
+                break;
+            case "seed":
+                this.seed = Long.parseLong(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stress parameter " + key);
+        }
+    }
+
+    /**
+     * Runs the requests on every thread count, checks the invariants of every run and prints
+     * the throughput.
+     */
+    public void run() {
+        double baseline = 0;
+
+        System.out.printf(Locale.ROOT, "%,d requests of %,d users for %,d vehicles, %d cores%n%n", this.requestCount,
+                this.userCount, this.vehicleCount, Runtime.getRuntime().availableProcessors());
+
+        for (int count = 1; count <= this.threads; count++) {
+            double best = 0;
+            long accepted = 0;
+
+            for (int round = 0; round < this.rounds; round++) {
+                AtomicLong assigned = new AtomicLong(0);
+                long time = stress(count, round, assigned);
+
+                best = Math.max(best, this.requestCount / (time / 1_000_000_000.0));
+                accepted = assigned.get();
+            }
+
+            if (count == 1) {
+                baseline = best;
+            }
+
+            System.out.printf(Locale.ROOT, "threads %3d  %,12.0f requests/s  speedup %5.2f  assigned %,d%n", count, best,
+                    best / baseline, accepted);
+        }
+
+        System.out.printf(Locale.ROOT, "%nNo vehicle or user was assigned twice%n");
+    }
+
+    /**
+     * Makes the requests of a run from a number of threads at once on a fresh company, and
+     * checks the invariants of the run.
+     *
+     * @param count    The number of threads
+     * @param round    The round of the thread count, which varies the population
+     * @param assigned The counter of the requests assigned a vehicle
+     * @return The time the requests took, in nanoseconds
+     */
+    private long stress(int count, int round, AtomicLong assigned) {
+        ApplicationLibrary.setSeed(this.seed + round);
+
+        List<IUser> users = createUsers();
+        List<IVehicle> vehicles = createVehicles();
+        TaxiCompany company = new TaxiCompany("Stress", users, vehicles);
+        AtomicIntegerArray vehicleAssignments = new AtomicIntegerArray(this.vehicleCount + 1);
+        AtomicIntegerArray userAssignments = new AtomicIntegerArray(this.userCount + 1);
+
+        // every dispatch is counted per vehicle and per user, on the thread that makes it
+
+        company.addObserver(event -> {
+            if (event.getType() == TaxiEventType.DISPATCHED) {
+                vehicleAssignments.incrementAndGet(event.getVehicleId());
+                userAssignments.incrementAndGet(event.getUserId());
+            }
+        });
+
+        ExecutorService requesters = Executors.newFixedThreadPool(count);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(count);
+        long time;
+
+        try {
+            for (int thread = 0; thread < count; thread++) {
+                int share = this.requestCount / count + ((thread < this.requestCount % count) ? 1 : 0);
+                SplittableRandom random = new SplittableRandom(this.seed * 31 + thread);
+
+                futures.add(requesters.submit(() -> {
+                    start.await();
+
+                    for (int i = 0; i < share; i++) {
+                        RideMode rideMode = random.nextBoolean() ? RideMode.STANDARD : RideMode.SILENT;
+
+                        if (company.provideService(1 + random.nextInt(this.userCount), ServiceTypeRegistry.STANDARD, rideMode)) {
+                            assigned.incrementAndGet();
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            long begin = System.nanoTime();
+
+            start.countDown();
+            await(futures);
+            time = System.nanoTime() - begin;
+        } finally {
+            requesters.shutdown();
+        }
+
+        check(company, users, vehicles, vehicleAssignments, userAssignments, assigned.get());
+
+        return time;
+    }
+
+    /**
+     * Checks that no vehicle and no user was assigned twice during a run, and that the
+     * company, the vehicles and the users agree on the number of services.
+     *
+     * @param company            The taxi company
+     * @param users              The users
+     * @param vehicles           The vehicles
+     * @param vehicleAssignments The number of dispatches of every vehicle, by ID
+     * @param userAssignments    The number of dispatches of every user, by ID
+     * @param assigned           The number of requests assigned a vehicle
+     */
+    private void check(TaxiCompany company, List<IUser> users, List<IVehicle> vehicles,
+            AtomicIntegerArray vehicleAssignments, AtomicIntegerArray userAssignments, long assigned) {
+        long busyVehicles = 0;
+        long busyUsers = 0;
+
+        for (IVehicle vehicle : vehicles) {
+            if (vehicleAssignments.get(vehicle.getId()) > 1) {
+                throw new IllegalStateException("Vehicle " + vehicle.getId() + " was assigned "
+                        + vehicleAssignments.get(vehicle.getId()) + " times");
+            }
+
+            if (vehicle.getStatus() != VehicleStatus.FREE) {
+                busyVehicles++;
+            }
+        }
+
+        for (IUser user : users) {
+            if (userAssignments.get(user.getId()) > 1) {
+                throw new IllegalStateException("User " + user.getId() + " was assigned "
+                        + userAssignments.get(user.getId()) + " times");
+            }
+
+            if (user.getService()) {
+                busyUsers++;
+            }
+        }
+
+        // users waiting for a vehicle are reserved as well
+
+        if (busyVehicles != assigned || company.getTotalServices() != assigned
+                || busyUsers != assigned + company.getPendingRequests()) {
+            throw new IllegalStateException("The run assigned " + assigned + " requests, but " + busyVehicles
+                    + " vehicles are busy, the company counts " + company.getTotalServices() + " services, and "
+                    + busyUsers + " users are reserved for " + company.getPendingRequests() + " pending requests");
+        }
+    }
+
+    /**
+     * Waits for the requesting threads to finish.
+     *
+     * @param futures The futures of the tasks of the threads
+     */
+    private static void await(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the requests", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A request failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Creates the users.
+     *
+     * @return The users, in order of ID
+     */
+    private List<IUser> createUsers() {
+        List<IUser> users = new ArrayList<>(this.userCount);
+
+        for (int id = 1; id <= this.userCount; id++) {
+            users.add(new User(id, "User", String.valueOf(id), (id % 2 == 0) ? 'F' : 'M', LocalDate.of(1980, 1, 1)));
+        }
+
+        return users;
+    }
+
+    /**
+     * Creates the vehicles at random locations in the table of the fleet, every third vehicle
+     * a shuttle.
+     *
+     * @return The vehicles, in order of ID
+     */
+    private List<IVehicle> createVehicles() {
+        List<IVehicle> vehicles = new ArrayList<>(this.vehicleCount);
+        FleetTable fleet = new FleetTable(this.vehicleCount);
+
+        for (int id = 1; id <= this.vehicleCount; id++) {
+            IDriver driver = new Driver(id, "Driver", String.valueOf(id), (id % 2 == 0) ? 'F' : 'M', LocalDate.of(1970, 1, 1), null);
+            ILocation location = ApplicationLibrary.randomLocation();
+
+            vehicles.add((id % 3 == 0) ? new Shuttle(id, location, driver, fleet, id - 1)
+                    : new Taxi(id, location, driver, fleet, id - 1));
+        }
+
+        return vehicles;
+    }
+}
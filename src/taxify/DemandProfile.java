@@ -0,0 +1,130 @@
+package taxify;
+
+/**
+ * DemandProfile class models when ride requests arrive as a Poisson process whose rate
+ * changes with the time of day. The day is split into hours with an average number of
+ * requests per tick each, and the number of requests arriving on a tick is drawn from a
+ * Poisson distribution with the rate of its hour, interpolated linearly towards the rate of
+ * the next hour so demand ramps up and down instead of jumping on the hour.
+ */
+public class DemandProfile {
+    /** The share of the peak demand in every hour of a weekday, with morning and evening rush hours. */
+    private static final double[] COMMUTER_SHAPE = {
+        0.10, 0.06, 0.04, 0.04, 0.06, 0.15, 0.45, 0.85, 1.00, 0.70, 0.50, 0.50,
+        0.55, 0.50, 0.50, 0.55, 0.70, 0.90, 0.95, 0.70, 0.50, 0.40, 0.30, 0.20
+    };
+
+    private double[] hourlyRates;
+    private int ticksPerHour;
+
+    /**
+     * Constructs a demand profile.
+     *
+     * @param hourlyRates  The average number of requests per tick in every hour of the day
+     * @param ticksPerHour The number of ticks in an hour
+     */
+    public DemandProfile(double[] hourlyRates, int ticksPerHour) {
+        if (hourlyRates.length == 0 || ticksPerHour <= 0) {
+            throw new IllegalArgumentException("A demand profile needs at least one hour of at least one tick");
+        }
+
+        this.hourlyRates = hourlyRates.clone();
+        this.ticksPerHour = ticksPerHour;
+    }
+
+    /**
+     * Creates the demand profile of a weekday, with rush hours in the morning and in the evening.
+     *
+     * @param peakRate     The average number of requests per tick at the busiest hour
+     * @param ticksPerHour The number of ticks in an hour
+     * @return The demand profile
+     */
+    public static DemandProfile commuter(double peakRate, int ticksPerHour) {
+        double[] rates = new double[COMMUTER_SHAPE.length];
+
+        for (int hour = 0; hour < rates.length; hour++) {
+            rates[hour] = COMMUTER_SHAPE[hour] * peakRate;
+        }
+
+        return new DemandProfile(rates, ticksPerHour);
+    }
+
+    /**
+     * Creates a profile with the same shape and every rate scaled, for example the share of
+     * the demand of a city that falls in one of its regions.
+     *
+     * @param factor The factor every rate is multiplied by
+     * @return The scaled demand profile
+     */
+    public DemandProfile scale(double factor) {
+        double[] rates = new double[this.hourlyRates.length];
+
+        for (int hour = 0; hour < rates.length; hour++) {
+            rates[hour] = this.hourlyRates[hour] * factor;
+        }
+
+        return new DemandProfile(rates, this.ticksPerHour);
+    }
+
+    /**
+     * Gets the number of ticks in a day of the profile.
+     *
+     * @return The number of ticks in a day
+     */
+    public long getTicksPerDay() {
+        return (long) this.hourlyRates.length * this.ticksPerHour;
+    }
+
+    /**
+     * Gets the average number of requests per tick at the busiest hour of the day.
+     *
+     * @return The highest rate of the profile
+     */
+    public double getPeakRate() {
+        double peak = 0;
+
+        for (double rate : this.hourlyRates) {
+            peak = Math.max(peak, rate);
+        }
+
+        return peak;
+    }
+
+    /**
+     * Gets the average number of requests arriving on a tick.
+     *
+     * @param tick The tick, counted from midnight of the first day
+     * @return The average number of requests on the tick
+     */
+    public double rate(long tick) {
+        int hours = this.hourlyRates.length;
+        int hour = (int) ((tick / this.ticksPerHour) % hours);
+        double fraction = (double) (tick % this.ticksPerHour) / this.ticksPerHour;
+
+        return this.hourlyRates[hour] + (this.hourlyRates[(hour + 1) % hours] - this.hourlyRates[hour]) * fraction;
+    }
+
+    /**
+     * Draws the number of requests arriving on a tick. Arrivals are counted by adding
+     * exponentially distributed gaps until they fill the tick, which stays exact for any
+     * rate and costs one draw per request.
+     *
+     * @param tick The tick, counted from midnight of the first day
+     * @return The number of requests arriving on the tick
+     */
+    public int arrivals(long tick) {
+        double rate = rate(tick);
+        int arrivals = 0;
+
+        if (rate <= 0) {
+            return 0;
+        }
+
+        for (double time = -Math.log(1.0 - ApplicationLibrary.randDouble()) / rate; time < 1.0;
+                time += -Math.log(1.0 - ApplicationLibrary.randDouble()) / rate) {
+            arrivals++;
+        }
+
+        return arrivals;
+    }
+}
@@ -0,0 +1,10 @@
+package taxify;
+
+/**
+ * Enum representing how the taxi company assigns vehicles to service requests.
+ * IMMEDIATE assigns every request as soon as it arrives, BATCH buffers the requests
+ * of a tick and assigns them all together at the end of the tick.
+ */
+public enum DispatchMode {
+    IMMEDIATE, BATCH
+}
@@ -0,0 +1,220 @@
+package taxify;
+
+/**
+ * DistanceCache class is a bounded cache of distances with primitive long keys, split into
+ * stripes that are locked independently, so threads looking up different pairs of locations
+ * rarely wait for each other. Every stripe is a small hash table with open addressing and
+ * linear probing, so lookups neither box the key nor the distance.
+ * When a stripe is full, an entry is evicted with the CLOCK algorithm: a hand sweeps the
+ * stripe, giving a second chance to the entries looked up since it last passed them and
+ * evicting the first one that was not. This approximates LRU without reordering anything
+ * on a lookup.
+ */
+public class DistanceCache {
+    /** The value returned for keys that are not in the cache. */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /** The maximum fraction of slots of a stripe in use before entries are evicted. */
+    private static final double LOAD_FACTOR = 0.6;
+
+    /** The maximum number of stripes. */
+    private static final int MAX_STRIPES = 64;
+
+    /** The minimum number of slots of a stripe. */
+    private static final int MIN_STRIPE_SLOTS = 16;
+
+    /** The state of an empty slot. */
+    private static final byte EMPTY = 0;
+
+    /** The state of an entry not looked up since the hand last passed it. */
+    private static final byte UNREFERENCED = 1;
+
+    /** The state of an entry looked up since the hand last passed it. */
+    private static final byte REFERENCED = 2;
+
+    private long[] keys;
+    private int[] values;
+    private byte[] states;
+    private Object[] locks;
+    private int[] sizes;
+    private int[] hands;
+    private int stripeShift;
+    private int stripeMask;
+    private int stripeLimit;
+
+    /**
+     * Constructs an empty cache that keeps about the given number of distances.
+     *
+     * @param capacity The number of distances kept by the cache
+     */
+    public DistanceCache(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2, (int) (capacity / LOAD_FACTOR) + 1) - 1) << 1;
+        int stripes = Math.max(1, Math.min(MAX_STRIPES, slots / MIN_STRIPE_SLOTS));
+        int stripeSlots = Math.max(MIN_STRIPE_SLOTS, slots / stripes);
+
+        this.keys = new long[stripes * stripeSlots];
+        this.values = new int[stripes * stripeSlots];
+        this.states = new byte[stripes * stripeSlots];
+        this.locks = new Object[stripes];
+        this.sizes = new int[stripes];
+        this.hands = new int[stripes];
+        this.stripeShift = Integer.numberOfTrailingZeros(stripeSlots);
+        this.stripeMask = stripeSlots - 1;
+        this.stripeLimit = Math.max(1, Math.min((int) (stripeSlots * LOAD_FACTOR), capacity / stripes));
+
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            this.locks[stripe] = new Object();
+        }
+    }
+
+    /**
+     * Gets the distance associated with a key, marking it as recently used.
+     *
+     * @param key The key
+     * @return The distance, or MISSING if the key is not in the cache
+     */
+    public int get(long key) {
+        long hash = hashOf(key);
+        int stripe = stripeOf(hash);
+        int base = stripe << this.stripeShift;
+
+        synchronized (this.locks[stripe]) {
+            for (int slot = homeOf(hash); this.states[base + slot] != EMPTY; slot = (slot + 1) & this.stripeMask) {
+                if (this.keys[base + slot] == key) {
+                    this.states[base + slot] = REFERENCED;
+                    return this.values[base + slot];
+                }
+            }
+        }
+
+        return MISSING;
+    }
+
+    /**
+     * Associates a distance with a key, evicting an entry of its stripe if the stripe is full.
+     *
+     * @param key   The key
+     * @param value The distance, which must not be MISSING
+     */
+    public void put(long key, int value) {
+        long hash = hashOf(key);
+        int stripe = stripeOf(hash);
+        int base = stripe << this.stripeShift;
+
+        synchronized (this.locks[stripe]) {
+            int slot = homeOf(hash);
+
+            for (; this.states[base + slot] != EMPTY; slot = (slot + 1) & this.stripeMask) {
+                if (this.keys[base + slot] == key) {
+                    this.values[base + slot] = value;
+                    return;
+                }
+            }
+
+            if (this.sizes[stripe] >= this.stripeLimit) {
+                evict(stripe);
+
+                // the eviction may have shifted entries, so the free slot is searched again
+
+                slot = homeOf(hash);
+
+                while (this.states[base + slot] != EMPTY) {
+                    slot = (slot + 1) & this.stripeMask;
+                }
+            }
+
+            this.keys[base + slot] = key;
+            this.values[base + slot] = value;
+            this.states[base + slot] = UNREFERENCED;
+            this.sizes[stripe]++;
+        }
+    }
+
+    /**
+     * Gets the number of distances in the cache.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        int size = 0;
+
+        for (int stripe = 0; stripe < this.locks.length; stripe++) {
+            synchronized (this.locks[stripe]) {
+                size += this.sizes[stripe];
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Evicts one entry of a stripe, sweeping the hand of the stripe until it finds an entry
+     * that was not looked up since it last passed it. The lock of the stripe must be held.
+     *
+     * @param stripe The stripe
+     */
+    private void evict(int stripe) {
+        int base = stripe << this.stripeShift;
+        int hand = this.hands[stripe];
+
+        while (this.states[base + hand] != UNREFERENCED) {
+            if (this.states[base + hand] == REFERENCED) {
+                this.states[base + hand] = UNREFERENCED;
+            }
+
+            hand = (hand + 1) & this.stripeMask;
+        }
+
+        this.hands[stripe] = (hand + 1) & this.stripeMask;
+
+        // shift back the entries whose probe sequence crosses the freed slot
+
+        int hole = hand;
+
+        for (int next = (hole + 1) & this.stripeMask; this.states[base + next] != EMPTY; next = (next + 1) & this.stripeMask) {
+            int home = homeOf(hashOf(this.keys[base + next]));
+
+            if (((next - home) & this.stripeMask) >= ((next - hole) & this.stripeMask)) {
+                this.keys[base + hole] = this.keys[base + next];
+                this.values[base + hole] = this.values[base + next];
+                this.states[base + hole] = this.states[base + next];
+                hole = next;
+            }
+        }
+
+        this.states[base + hole] = EMPTY;
+        this.sizes[stripe]--;
+    }
+
+    /**
+     * Mixes the bits of a key, so keys that differ only in a few bits land far apart.
+     *
+     * @param key The key
+     * @return The hash of the key
+     */
+    private static long hashOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Gets the stripe of a hash, from its highest bits.
+     *
+     * @param hash The hash of a key
+     * @return The stripe
+     */
+    private int stripeOf(long hash) {
+        return (int) (hash >>> 58) & (this.locks.length - 1);
+    }
+
+    /**
+     * Gets the home slot of a hash within its stripe, from its lowest bits.
+     *
+     * @param hash The hash of a key
+     * @return The home slot, relative to the start of the stripe
+     */
+    private int homeOf(long hash) {
+        return (int) hash & this.stripeMask;
+    }
+}
@@ -0,0 +1,181 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * DropoffSequencer class orders the drop-off stops of a shared ride. A new stop is placed
+ * with cheapest insertion into the current order, and the order is then improved with 2-opt
+ * moves (reversing a run of stops) while that shortens the ride. Every rider has a budget,
+ * the longest distance the vehicle may still drive before dropping them off, and orders that
+ * exceed any budget are never chosen. Stops are identified by their index in the distance
+ * table, index 0 being the location the vehicle starts from.
+ */
+public class DropoffSequencer {
+
+    /**
+     * Finds the order of the stops of a shared ride after adding a new stop. The new stop is
+     * inserted at the cheapest position of the current order that respects every budget; if
+     * there is none, the order is rebuilt inserting the stops with the tightest budgets first.
+     *
+     * @param distances The distance between every pair of locations, index 0 being the start
+     * @param budgets   The longest distance the vehicle may drive before reaching every stop
+     * @param order     The current order of the stops, without the new stop
+     * @param stop      The new stop
+     * @return The new order of the stops, or null if no order respects every budget
+     */
+    public static int[] sequence(int[][] distances, int[] budgets, int[] order, int stop) {
+        int[] sequence = insert(distances, budgets, order, stop);
+
+        if (sequence == null) {
+            sequence = rebuild(distances, budgets, order, stop);
+        }
+
+        if (sequence == null) {
+            return null;
+        }
+
+        improve(distances, budgets, sequence);
+
+        return sequence;
+    }
+
+    /**
+     * Computes the distance driven along an order of stops, checking the budgets.
+     *
+     * @param distances The distance between every pair of locations
+     * @param budgets   The longest distance the vehicle may drive before reaching every stop
+     * @param order     The order of the stops
+     * @return The distance driven, or -1 if a budget is exceeded or a stop cannot be reached
+     */
+    private static long length(int[][] distances, int[] budgets, int[] order) {
+        long driven = 0;
+        int previous = 0;
+
+        for (int i = 0; i < order.length; i++) {
+            int distance = distances[previous][order[i]];
+
+            if (distance == IDistanceOracle.UNREACHABLE) {
+                return -1;
+            }
+
+            driven += distance;
+
+            if (driven > budgets[order[i]]) {
+                return -1;
+            }
+
+            previous = order[i];
+        }
+
+        return driven;
+    }
+
+    /**
+     * Inserts a stop at the position of an order that makes the shortest ride within the budgets.
+     *
+     * @param distances The distance between every pair of locations
+     * @param budgets   The longest distance the vehicle may drive before reaching every stop
+     * @param order     The order of the stops
+     * @param stop      The stop to insert
+     * @return The new order, or null if no position respects every budget
+     */
+    private static int[] insert(int[][] distances, int[] budgets, int[] order, int stop) {
+        int[] candidate = new int[order.length + 1];
+        int[] best = null;
+        long bestLength = Long.MAX_VALUE;
+
+        for (int position = 0; position <= order.length; position++) {
+            System.arraycopy(order, 0, candidate, 0, position);
+            candidate[position] = stop;
+            System.arraycopy(order, position, candidate, position + 1, order.length - position);
+
+            long length = length(distances, budgets, candidate);
+
+            if (length >= 0 && length < bestLength) {
+                best = candidate.clone();
+                bestLength = length;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Builds an order from scratch, inserting the stops with the tightest budgets first.
+     *
+     * @param distances The distance between every pair of locations
+     * @param budgets   The longest distance the vehicle may drive before reaching every stop
+     * @param order     The current order of the stops
+     * @param stop      The new stop
+     * @return The new order, or null if a stop cannot be inserted within the budgets
+     */
+    private static int[] rebuild(int[][] distances, int[] budgets, int[] order, int stop) {
+        Integer[] stops = new Integer[order.length + 1];
+
+        for (int i = 0; i < order.length; i++) {
+            stops[i] = order[i];
+        }
+
+        stops[order.length] = stop;
+        Arrays.sort(stops, (a, b) -> Integer.compare(budgets[a], budgets[b]));
+
+        int[] sequence = new int[0];
+
+        for (int next : stops) {
+            sequence = insert(distances, budgets, sequence, next);
+
+            if (sequence == null) {
+                return null;
+            }
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Improves an order in place with 2-opt moves, reversing runs of stops as long as
+     * that makes the ride shorter and respects every budget.
+     *
+     * @param distances The distance between every pair of locations
+     * @param budgets   The longest distance the vehicle may drive before reaching every stop
+     * @param order     The order of the stops, improved in place
+     */
+    private static void improve(int[][] distances, int[] budgets, int[] order) {
+        long best = length(distances, budgets, order);
+        boolean improved = true;
+
+        while (improved) {
+            improved = false;
+
+            for (int i = 0; i < order.length - 1; i++) {
+                for (int j = i + 1; j < order.length; j++) {
+                    reverse(order, i, j);
+
+                    long length = length(distances, budgets, order);
+
+                    if (length >= 0 && length < best) {
+                        best = length;
+                        improved = true;
+                    } else {
+                        reverse(order, i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reverses the stops of an order between two positions.
+     *
+     * @param order The order of the stops
+     * @param from  The first position of the run
+     * @param to    The last position of the run
+     */
+    private static void reverse(int[] order, int from, int to) {
+        for (; from < to; from++, to--) {
+            int stop = order[from];
+            order[from] = order[to];
+            order[to] = stop;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package taxify;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * EventSimulator class simulates the application jumping from event to event instead of
+ * moving every vehicle one location per tick. Every vehicle has a single pending event,
+ * the tick it reaches the end of its route (a pickup, a drop-off, or the end of a random
+ * route), and ride requests arrive at random ticks. A vehicle is only moved when one of
+ * its events happens, when it is assigned a ride, or when the status is shown, jumping
+ * all the locations since it was last moved at once. Otherwise its location is
+ * interpolated on demand from its route. The cost of a simulation is then proportional
+ * to the number of events, not to the number of vehicles times the number of ticks.
+ */
+public class EventSimulator extends ApplicationSimulator implements IVehicleClock {
+    private Map<IVehicle, Integer> indexes;
+    private PriorityQueue<SimulationEvent> events;
+    private long[] movedAt;
+    private int[] versions;
+    private boolean[] changed;
+    private int[] changes;
+    private int changeCount;
+    private double requestRate;
+    private double requestTime;
+    private long sequence;
+
+    /**
+     * Constructor for EventSimulator.
+     *
+     * @param company     The taxi company to be managed
+     * @param users       List of users in the system
+     * @param vehicles    List of vehicles in the system
+     * @param requestRate The average number of ride requests per tick, 0 for none
+     */
+    public EventSimulator(ITaxiCompany company, List<IUser> users, List<IVehicle> vehicles, double requestRate) {
+        super(company, users, vehicles);
+
+        this.indexes = new IdentityHashMap<>();
+        this.events = new PriorityQueue<>();
+        this.movedAt = new long[vehicles.size()];
+        this.versions = new int[vehicles.size()];
+        this.changed = new boolean[vehicles.size()];
+        this.changes = new int[vehicles.size()];
+        this.changeCount = 0;
+        this.requestRate = requestRate;
+        this.requestTime = 0;
+        this.sequence = 0;
+
+        for (int i = 0; i < vehicles.size(); i++) {
+            this.indexes.put(vehicles.get(i), i);
+            schedule(i);
+        }
+
+        if (requestRate > 0) {
+            scheduleRequest();
+        }
+
+        // vehicles assigned a service must be at their current location first
+
+        company.setVehicleClock(this);
+    }
+
+    /**
+     * Sets the current tick of the simulation, such as when it is restored from a checkpoint.
+     * The vehicles are taken to be at their current location on that tick, so their events
+     * and the next ride request are scheduled again from it.
+     *
+     * @param time The current tick
+     */
+    @Override
+    public void setTime(long time) {
+        super.setTime(time);
+
+        this.events.clear();
+        Arrays.fill(this.movedAt, time);
+        this.requestTime = time;
+
+        for (int i = 0; i < this.movedAt.length; i++) {
+            schedule(i);
+        }
+
+        if (this.requestRate > 0) {
+            scheduleRequest();
+        }
+    }
+
+    /**
+     * Gets the number of events waiting to happen.
+     *
+     * @return The number of scheduled events, including outdated vehicle events
+     */
+    public int getPendingEvents() {
+        return this.events.size();
+    }
+
+    /**
+     * Advances the simulation one tick.
+     */
+    @Override
+    public void update() {
+        run(1);
+    }
+
+    /**
+     * Advances the simulation a number of ticks, handling the events that happen on the way.
+     *
+     * @param ticks The number of ticks to simulate
+     */
+    public void run(long ticks) {
+        long end = getTime() + ticks;
+
+        while (!this.events.isEmpty() && this.events.peek().getTime() <= end) {
+            SimulationEvent event = this.events.poll();
+
+            // the clock moves from event to event, without scheduling the vehicles again
+
+            super.setTime(event.getTime());
+
+            if (event.getType() == SimulationEventType.RIDE_REQUEST) {
+                requestService();
+                getCompany().dispatchRequests();
+                scheduleRequest();
+            } else if (event.getVersion() == this.versions[event.getVehicle()]) {
+                synchronize(getVehicles().get(event.getVehicle()));
+            }
+
+            // the vehicles moved or rerouted by the event get a new schedule
+
+            for (int i = 0; i < this.changeCount; i++) {
+                this.changed[this.changes[i]] = false;
+                schedule(this.changes[i]);
+            }
+
+            this.changeCount = 0;
+
+            sample();
+        }
+
+        super.setTime(end);
+        sample();
+    }
+
+    /**
+     * Displays the current status of all vehicles, moving them to their current location first.
+     */
+    @Override
+    public void show() {
+        for (IVehicle vehicle : getVehicles()) {
+            synchronize(vehicle);
+        }
+
+        for (int i = 0; i < this.changeCount; i++) {
+            this.changed[this.changes[i]] = false;
+            schedule(this.changes[i]);
+        }
+
+        this.changeCount = 0;
+
+        super.show();
+    }
+
+    /**
+     * Takes a snapshot of the fleet on the current tick, with the vehicles at their
+     * interpolated locations since they are not moved every tick.
+     *
+     * @return The snapshot of the fleet
+     */
+    @Override
+    protected FleetSnapshot snapshot() {
+        FleetSnapshot snapshot = super.snapshot();
+
+        for (int i = 0; i < getVehicles().size(); i++) {
+            snapshot.setLocation(i, locate(getVehicles().get(i)));
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Gets the location a vehicle is at on the current tick, without moving it.
+     *
+     * @param vehicle The vehicle
+     * @return The current location of the vehicle
+     */
+    @Override
+    protected ILocation locate(IVehicle vehicle) {
+        int steps = (int) (getTime() - this.movedAt[this.indexes.get(vehicle)]);
+
+        return vehicle.getLocationAfter(Math.min(steps, vehicle.getRemainingSteps()));
+    }
+
+    /**
+     * Moves a vehicle to its location at the current tick, jumping all the locations it
+     * has driven through since it was last moved. The vehicle is rescheduled after the
+     * current event, since its route may change.
+     *
+     * @param vehicle The vehicle
+     */
+    @Override
+    public void synchronize(IVehicle vehicle) {
+        int index = this.indexes.get(vehicle);
+        int steps = (int) (getTime() - this.movedAt[index]);
+
+        // mark the vehicle as moved first: the arrival may assign it a new service,
+        // which synchronizes it again
+
+        this.movedAt[index] = getTime();
+
+        if (!this.changed[index]) {
+            this.changed[index] = true;
+            this.changes[this.changeCount++] = index;
+        }
+
+        vehicle.move(Math.min(steps, vehicle.getRemainingSteps()));
+    }
+
+    /**
+     * Schedules the event of a vehicle at the tick it reaches the end of its route,
+     * replacing its previous event. A vehicle picking up or serving a user always has a
+     * location left to reach, otherwise it would never get an event again.
+     *
+     * @param index The index of the vehicle
+     */
+    private void schedule(int index) {
+        IVehicle vehicle = getVehicles().get(index);
+        int steps = vehicle.getRemainingSteps();
+
+        this.versions[index]++;
+
+        if (steps <= 0) {
+            if (vehicle.getStatus() != VehicleStatus.FREE) {
+                throw new IllegalStateException("Vehicle " + vehicle.getId() + " is in status " + vehicle.getStatus()
+                        + " with no location left to reach");
+            }
+
+            return;
+        }
+
+        SimulationEventType type;
+
+        switch (vehicle.getStatus()) {
+            case PICKUP:
+                type = SimulationEventType.ARRIVE_AT_PICKUP;
+                break;
+            case SERVICE:
+                type = SimulationEventType.ARRIVE_AT_DROPOFF;
+                break;
+            default:
+                type = SimulationEventType.IDLE_REROUTE;
+        }
+
+        this.events.add(new SimulationEvent(this.movedAt[index] + steps, this.sequence++, type, index,
+                this.versions[index]));
+    }
+
+    /**
+     * Schedules the next ride request, with exponentially distributed time between requests.
+     * Request times are kept as fractions of a tick, so several requests can share a tick.
+     */
+    private void scheduleRequest() {
+        this.requestTime += -Math.log(1.0 - ApplicationLibrary.randDouble()) / this.requestRate;
+
+        this.events.add(new SimulationEvent((long) this.requestTime, this.sequence++, SimulationEventType.RIDE_REQUEST,
+                -1, 0));
+    }
+}
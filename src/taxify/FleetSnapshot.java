@@ -0,0 +1,127 @@
+package taxify;
+
+/**
+ * FleetSnapshot class is a copy of the state of a fleet on a given tick: the location,
+ * destination and status of every vehicle. It is taken on the simulation thread between
+ * two ticks and can then be rendered on any thread while the simulation goes on.
+ */
+public class FleetSnapshot {
+    /** The statuses of the vehicles, indexed by the values stored in the snapshot. */
+    private static final VehicleStatus[] STATUSES = VehicleStatus.values();
+
+    private long time;
+    private int[] ids;
+    private int[] x;
+    private int[] y;
+    private int[] targetX;
+    private int[] targetY;
+    private int[] statuses;
+
+    /**
+     * Constructs a snapshot from copies of the columns of a fleet table.
+     *
+     * @param time     The tick the snapshot is taken on
+     * @param ids      The identifiers of the vehicles
+     * @param x        The x-coordinates of the vehicles
+     * @param y        The y-coordinates of the vehicles
+     * @param targetX  The x-coordinates of the destinations
+     * @param targetY  The y-coordinates of the destinations
+     * @param statuses The statuses of the vehicles, as ordinals
+     */
+    public FleetSnapshot(long time, int[] ids, int[] x, int[] y, int[] targetX, int[] targetY, int[] statuses) {
+        this.time = time;
+        this.ids = ids;
+        this.x = x;
+        this.y = y;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.statuses = statuses;
+    }
+
+    /**
+     * Gets the tick the snapshot was taken on.
+     *
+     * @return The tick
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the number of vehicles in the snapshot.
+     *
+     * @return The number of vehicles
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Gets the identifier of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The identifier
+     */
+    public int getId(int slot) {
+        return this.ids[slot];
+    }
+
+    /**
+     * Gets the location of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The location
+     */
+    public ILocation getLocation(int slot) {
+        return Location.of(this.x[slot], this.y[slot]);
+    }
+
+    /**
+     * Replaces the location of a vehicle, while the snapshot is being taken.
+     *
+     * @param slot     The slot of the vehicle
+     * @param location The location
+     */
+    public void setLocation(int slot, ILocation location) {
+        this.x[slot] = location.getX();
+        this.y[slot] = location.getY();
+    }
+
+    /**
+     * Gets the destination of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The destination
+     */
+    public ILocation getDestination(int slot) {
+        return Location.of(this.targetX[slot], this.targetY[slot]);
+    }
+
+    /**
+     * Gets the status of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The status
+     */
+    public VehicleStatus getStatus(int slot) {
+        return STATUSES[this.statuses[slot]];
+    }
+
+    /**
+     * Counts the vehicles with a status.
+     *
+     * @param status The status
+     * @return The number of vehicles with the status
+     */
+    public int count(VehicleStatus status) {
+        int count = 0;
+
+        for (int i = 0; i < this.statuses.length; i++) {
+            if (this.statuses[i] == status.ordinal()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,120 @@
+package taxify;
+
+/**
+ * The FleetStatistics class implements the IStatistics interface as a view over the
+ * statistics counters of a vehicle in a fleet table.
+ */
+public class FleetStatistics implements IStatistics {
+    private FleetTable fleet;
+    private int slot;
+
+    /**
+     * Constructs a view over the statistics of a slot of a fleet table.
+     *
+     * @param fleet the fleet table
+     * @param slot the slot of the vehicle
+     */
+    public FleetStatistics(FleetTable fleet, int slot) {
+        this.fleet = fleet;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the total number of services provided.
+     *
+     * @return the number of services
+     */
+    @Override
+    public int getServices() {
+        return this.fleet.getServices(this.slot);
+    }
+
+    /**
+     * Returns the total number of reviews received.
+     *
+     * @return the number of reviews
+     */
+    @Override
+    public int getReviews() {
+        return this.fleet.getReviews(this.slot);
+    }
+
+    /**
+     * Returns the average star rating rounded to two decimal places.
+     * If there are no ratings, returns NaN.
+     *
+     * @return the average star rating
+     */
+    @Override
+    public double getStars() {
+        double stars = (double) this.fleet.getStars(this.slot) / (double) this.fleet.getReviews(this.slot);
+
+        return Math.round(stars*100.0)/100.0;
+    }
+
+    /**
+     * Returns the total distance traveled.
+     *
+     * @return the total distance
+     */
+    @Override
+    public int getDistance() {
+        return this.fleet.getDistance(this.slot);
+    }
+
+    /**
+     * Returns the total billing amount.
+     *
+     * @return the total billing amount
+     */
+    @Override
+    public double getBilling() {
+        return this.fleet.getBilling(this.slot);
+    }
+
+    /**
+     * Increments the number of services provided by one.
+     */
+    @Override
+    public void updateServices() {
+        this.fleet.updateServices(this.slot);
+    }
+
+    /**
+     * Increments the number of reviews received by one.
+     */
+    @Override
+    public void updateReviews() {
+        this.fleet.updateReviews(this.slot);
+    }
+
+    /**
+     * Adds the specified number of stars to the total stars received.
+     *
+     * @param stars the number of stars to add
+     */
+    @Override
+    public void updateStars(int stars) {
+        this.fleet.updateStars(this.slot, stars);
+    }
+
+    /**
+     * Adds the specified distance to the total distance traveled.
+     *
+     * @param distance the distance to add
+     */
+    @Override
+    public void updateDistance(int distance) {
+        this.fleet.updateDistance(this.slot, distance);
+    }
+
+    /**
+     * Adds the specified amount to the total billing.
+     *
+     * @param billing the amount to add
+     */
+    @Override
+    public void updateBilling(double billing) {
+        this.fleet.updateBilling(this.slot, billing);
+    }
+}
@@ -0,0 +1,589 @@
+package taxify;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * FleetTable class keeps the state of a fleet of vehicles in parallel primitive arrays,
+ * one slot per vehicle: location, destination, status, and statistics counters. The
+ * vehicles are views over their slot, so the tick loop walks the arrays linearly instead
+ * of following the object graph of every vehicle. When the router has grid routes, as
+ * on the default grid, a route is just the destination, the vehicle moving first in the
+ * x-direction and then in the y-direction; with any other router the slot also keeps the
+ * route object the router creates.
+ * The state of a slot is changed while holding the lock of the vehicle owning it. The
+ * location and the destination are read without the lock by dispatching threads, so each
+ * is packed into a single long and published at once: a reader sees a location the
+ * vehicle has been at, never the x of one step with the y of another.
+ */
+public class FleetTable {
+    /** The statuses of the vehicles, indexed by the values stored in the table. */
+    private static final VehicleStatus[] STATUSES = VehicleStatus.values();
+
+    private IVehicle[] owners;
+    private AtomicLongArray locations;
+    private AtomicLongArray destinations;
+    private AtomicIntegerArray status;
+    private IRoute[] routes;
+    private int[] services;
+    private int[] reviews;
+    private int[] stars;
+    private int[] distance;
+    private double[] billing;
+
+    /**
+     * Constructs a table with empty slots.
+     *
+     * @param capacity The number of slots
+     */
+    public FleetTable(int capacity) {
+        this.owners = new IVehicle[capacity];
+        this.locations = new AtomicLongArray(capacity);
+        this.destinations = new AtomicLongArray(capacity);
+        this.status = new AtomicIntegerArray(capacity);
+        this.routes = new IRoute[capacity];
+        this.services = new int[capacity];
+        this.reviews = new int[capacity];
+        this.stars = new int[capacity];
+        this.distance = new int[capacity];
+        this.billing = new double[capacity];
+    }
+
+    /**
+     * Constructs a table for a fleet, moving the state of every vehicle to the slot of its
+     * position in the list.
+     *
+     * @param vehicles The vehicles of the fleet
+     */
+    public FleetTable(List<IVehicle> vehicles) {
+        this(vehicles.size());
+
+        for (int slot = 0; slot < vehicles.size(); slot++) {
+            vehicles.get(slot).setFleet(this, slot);
+        }
+    }
+
+    /**
+     * Gets the table of a fleet: the table the vehicles were built in if they fill its slots
+     * in the order of the list, otherwise a new table the state of every vehicle moves to.
+     *
+     * @param vehicles The vehicles of the fleet
+     * @return The fleet table
+     */
+    public static FleetTable of(List<IVehicle> vehicles) {
+        FleetTable fleet = vehicles.isEmpty() ? null : vehicles.get(0).getFleet();
+
+        if (fleet == null || fleet.size() != vehicles.size()) {
+            return new FleetTable(vehicles);
+        }
+
+        for (int slot = 0; slot < vehicles.size(); slot++) {
+            if (fleet.owners[slot] != vehicles.get(slot)) {
+                return new FleetTable(vehicles);
+            }
+        }
+
+        return fleet;
+    }
+
+    /**
+     * Gets the number of slots of the table.
+     *
+     * @return The number of slots
+     */
+    public int size() {
+        return this.owners.length;
+    }
+
+    /**
+     * Assigns a slot to a vehicle, copying the state the vehicle had in its previous slot.
+     *
+     * @param owner The vehicle owning the slot
+     * @param slot  The slot
+     * @param from  The table the vehicle comes from, or null for a new vehicle
+     * @param index The slot of the vehicle in the table it comes from
+     */
+    public void attach(IVehicle owner, int slot, FleetTable from, int index) {
+        this.owners[slot] = owner;
+
+        if (from != null) {
+            this.locations.set(slot, from.locations.get(index));
+            this.destinations.set(slot, from.destinations.get(index));
+            this.status.set(slot, from.status.get(index));
+            this.routes[slot] = from.routes[index];
+            this.services[slot] = from.services[index];
+            this.reviews[slot] = from.reviews[index];
+            this.stars[slot] = from.stars[index];
+            this.distance[slot] = from.distance[index];
+            this.billing[slot] = from.billing[index];
+        }
+    }
+
+    /**
+     * Gets the vehicle owning a slot.
+     *
+     * @param slot The slot
+     * @return The vehicle
+     */
+    public IVehicle getOwner(int slot) {
+        return this.owners[slot];
+    }
+
+    /**
+     * Gets the location of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The location
+     */
+    public ILocation getLocation(int slot) {
+        return unpack(this.locations.get(slot));
+    }
+
+    /**
+     * Places a vehicle at a location.
+     *
+     * @param slot     The slot of the vehicle
+     * @param location The location
+     */
+    public void setLocation(int slot, ILocation location) {
+        this.locations.set(slot, pack(location.getX(), location.getY()));
+    }
+
+    /**
+     * Gets the destination of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The destination
+     */
+    public ILocation getDestination(int slot) {
+        return unpack(this.destinations.get(slot));
+    }
+
+    /**
+     * Routes a vehicle from its location to a destination.
+     *
+     * @param slot        The slot of the vehicle
+     * @param destination The destination
+     */
+    public void setDestination(int slot, ILocation destination) {
+        this.destinations.set(slot, pack(destination.getX(), destination.getY()));
+
+        // grid routes are walked from the destination alone, other routes need a route object
+
+        if (ApplicationLibrary.getRouter().hasGridRoutes()) {
+            this.routes[slot] = null;
+        } else if (this.routes[slot] == null) {
+            this.routes[slot] = ApplicationLibrary.createRoute(getLocation(slot), destination);
+        } else {
+            this.routes[slot].setDestination(getLocation(slot), destination);
+        }
+    }
+
+    /**
+     * Gets the status of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The status
+     */
+    public VehicleStatus getStatus(int slot) {
+        return STATUSES[this.status.get(slot)];
+    }
+
+    /**
+     * Sets the status of a vehicle.
+     *
+     * @param slot   The slot of the vehicle
+     * @param status The status
+     */
+    public void setStatus(int slot, VehicleStatus status) {
+        this.status.set(slot, status.ordinal());
+    }
+
+    /**
+     * Atomically changes the status of a vehicle if it has the expected status.
+     *
+     * @param slot     The slot of the vehicle
+     * @param expected The expected status
+     * @param status   The new status
+     * @return true if the status was changed, false otherwise
+     */
+    public boolean compareAndSetStatus(int slot, VehicleStatus expected, VehicleStatus status) {
+        return this.status.compareAndSet(slot, expected.ordinal(), status.ordinal());
+    }
+
+    /**
+     * Gets the number of locations left on the route of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The number of remaining steps
+     */
+    public int getRemainingSteps(int slot) {
+        if (this.routes[slot] != null) {
+            return this.routes[slot].getRemainingSteps();
+        }
+
+        long location = this.locations.get(slot);
+        long destination = this.destinations.get(slot);
+
+        return Math.abs(x(destination) - x(location)) + Math.abs(y(destination) - y(location));
+    }
+
+    /**
+     * Moves a vehicle one location along its route.
+     *
+     * @param slot The slot of the vehicle
+     * @return true if the move must be completed (the vehicle is free, or its route has
+     *         ended), false otherwise
+     */
+    public boolean advance(int slot) {
+        if (this.routes[slot] != null) {
+            setLocation(slot, this.routes[slot].getNextLocation());
+        } else {
+            long location = this.locations.get(slot);
+            long destination = this.destinations.get(slot);
+            int x = x(location);
+            int y = y(location);
+
+            if (x != x(destination)) {
+                x += Integer.signum(x(destination) - x);
+            } else if (y != y(destination)) {
+                y += Integer.signum(y(destination) - y);
+            } else {
+                throw new IllegalStateException("The route has no more locations");
+            }
+
+            this.locations.set(slot, pack(x, y));
+        }
+
+        return this.status.get(slot) == VehicleStatus.FREE.ordinal() || getRemainingSteps(slot) == 0;
+    }
+
+    /**
+     * Moves a range of vehicles one location along their routes, walking the slots in order.
+     *
+     * @param from    The first slot of the range
+     * @param to      The slot after the last slot of the range
+     * @param pending The array that records which moves must be completed
+     */
+    public void advance(int from, int to, boolean[] pending) {
+        for (int slot = from; slot < to; slot++) {
+            synchronized (this.owners[slot]) {
+                pending[slot] = advance(slot);
+            }
+        }
+    }
+
+    /**
+     * Moves a vehicle a number of locations along its route at once.
+     *
+     * @param slot  The slot of the vehicle
+     * @param steps The number of locations to skip, at most the remaining steps
+     */
+    public void skip(int slot, int steps) {
+        if (this.routes[slot] != null) {
+            this.routes[slot].skip(steps);
+            return;
+        }
+
+        setLocation(slot, peek(slot, steps));
+    }
+
+    /**
+     * Computes the location a vehicle reaches after a number of locations, without moving it.
+     *
+     * @param slot  The slot of the vehicle
+     * @param steps The number of locations, at most the remaining steps
+     * @return The location reached
+     */
+    public ILocation peek(int slot, int steps) {
+        if (steps <= 0) {
+            return getLocation(slot);
+        }
+
+        if (this.routes[slot] != null) {
+            return this.routes[slot].peek(steps);
+        }
+
+        long location = this.locations.get(slot);
+        long destination = this.destinations.get(slot);
+        int dx = x(destination) - x(location);
+        int dy = y(destination) - y(location);
+
+        if (steps <= Math.abs(dx)) {
+            return Location.of(x(location) + Integer.signum(dx) * steps, y(location));
+        }
+
+        return Location.of(x(destination),
+                y(location) + Integer.signum(dy) * Math.min(steps - Math.abs(dx), Math.abs(dy)));
+    }
+
+    /**
+     * Returns a string representation of the route of a vehicle, where each location
+     * is represented as a string and separated by spaces.
+     *
+     * @param slot The slot of the vehicle
+     * @return A string representation of the route
+     */
+    public String routeToString(int slot) {
+        if (this.routes[slot] != null) {
+            return this.routes[slot].toString();
+        }
+
+        StringBuilder route = new StringBuilder();
+
+        for (int step = 1; step <= getRemainingSteps(slot); step++) {
+            route.append(peek(slot, step)).append(' ');
+        }
+
+        return route.toString();
+    }
+
+    /**
+     * Copies the locations, destinations and statuses of the fleet. It must be called
+     * between two ticks, while no vehicle is moving.
+     *
+     * @param time The tick the snapshot is taken on
+     * @return The snapshot of the fleet
+     */
+    public FleetSnapshot snapshot(long time) {
+        int count = this.owners.length;
+        int[] ids = new int[count];
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] targetX = new int[count];
+        int[] targetY = new int[count];
+        int[] statuses = new int[count];
+
+        for (int slot = 0; slot < count; slot++) {
+            long location = this.locations.get(slot);
+            long destination = this.destinations.get(slot);
+
+            ids[slot] = this.owners[slot].getId();
+            x[slot] = x(location);
+            y[slot] = y(location);
+            targetX[slot] = x(destination);
+            targetY[slot] = y(destination);
+            statuses[slot] = this.status.get(slot);
+        }
+
+        return new FleetSnapshot(time, ids, x, y, targetX, targetY, statuses);
+    }
+
+    /**
+     * Writes the state of every slot to a checkpoint, column by column. Routes are not
+     * written, since a route always leads from the location of its vehicle to its
+     * destination. It must be called between two ticks, while no vehicle is moving.
+     *
+     * @param out The checkpoint
+     * @throws IOException If the checkpoint cannot be written
+     */
+    public void writeTo(CheckpointWriter out) throws IOException {
+        int count = this.owners.length;
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] targetX = new int[count];
+        int[] targetY = new int[count];
+        byte[] statuses = new byte[count];
+
+        for (int slot = 0; slot < count; slot++) {
+            long location = this.locations.get(slot);
+            long destination = this.destinations.get(slot);
+
+            x[slot] = x(location);
+            y[slot] = y(location);
+            targetX[slot] = x(destination);
+            targetY[slot] = y(destination);
+            statuses[slot] = (byte) this.status.get(slot);
+        }
+
+        out.writeInts(x, count);
+        out.writeInts(y, count);
+        out.writeInts(targetX, count);
+        out.writeInts(targetY, count);
+        out.writeBytes(statuses, count);
+        out.writeInts(this.services, count);
+        out.writeInts(this.reviews, count);
+        out.writeInts(this.stars, count);
+        out.writeInts(this.distance, count);
+        out.writeDoubles(this.billing, count);
+    }
+
+    /**
+     * Reads the state of every slot from a checkpoint written by writeTo, and routes every
+     * slot from its location to its destination again.
+     *
+     * @param in The checkpoint
+     * @throws IOException If the checkpoint cannot be read
+     */
+    public void readFrom(CheckpointReader in) throws IOException {
+        int count = this.owners.length;
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] targetX = new int[count];
+        int[] targetY = new int[count];
+        byte[] statuses = new byte[count];
+
+        in.readInts(x, count);
+        in.readInts(y, count);
+        in.readInts(targetX, count);
+        in.readInts(targetY, count);
+        in.readBytes(statuses, count);
+        in.readInts(this.services, count);
+        in.readInts(this.reviews, count);
+        in.readInts(this.stars, count);
+        in.readInts(this.distance, count);
+        in.readDoubles(this.billing, count);
+
+        for (int slot = 0; slot < count; slot++) {
+            if (statuses[slot] < 0 || statuses[slot] >= STATUSES.length) {
+                throw new IOException("The checkpoint has an unknown vehicle status " + statuses[slot]);
+            }
+
+            this.locations.set(slot, pack(x[slot], y[slot]));
+            this.status.set(slot, statuses[slot]);
+            this.routes[slot] = null;
+            setDestination(slot, Location.of(targetX[slot], targetY[slot]));
+        }
+    }
+
+    /**
+     * Gets the number of services of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The number of services
+     */
+    public int getServices(int slot) {
+        return this.services[slot];
+    }
+
+    /**
+     * Gets the number of reviews of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The number of reviews
+     */
+    public int getReviews(int slot) {
+        return this.reviews[slot];
+    }
+
+    /**
+     * Gets the total stars of the reviews of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The total stars
+     */
+    public int getStars(int slot) {
+        return this.stars[slot];
+    }
+
+    /**
+     * Gets the distance of the services of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The distance
+     */
+    public int getDistance(int slot) {
+        return this.distance[slot];
+    }
+
+    /**
+     * Gets the billing of the services of a vehicle.
+     *
+     * @param slot The slot of the vehicle
+     * @return The billing
+     */
+    public double getBilling(int slot) {
+        return this.billing[slot];
+    }
+
+    /**
+     * Increments the number of services of a vehicle by one.
+     *
+     * @param slot The slot of the vehicle
+     */
+    public void updateServices(int slot) {
+        this.services[slot]++;
+    }
+
+    /**
+     * Increments the number of reviews of a vehicle by one.
+     *
+     * @param slot The slot of the vehicle
+     */
+    public void updateReviews(int slot) {
+        this.reviews[slot]++;
+    }
+
+    /**
+     * Adds stars to the total stars of a vehicle.
+     *
+     * @param slot  The slot of the vehicle
+     * @param stars The stars to add
+     */
+    public void updateStars(int slot, int stars) {
+        this.stars[slot] += stars;
+    }
+
+    /**
+     * Adds a distance to the distance of a vehicle.
+     *
+     * @param slot     The slot of the vehicle
+     * @param distance The distance to add
+     */
+    public void updateDistance(int slot, int distance) {
+        this.distance[slot] += distance;
+    }
+
+    /**
+     * Adds an amount to the billing of a vehicle.
+     *
+     * @param slot    The slot of the vehicle
+     * @param billing The amount to add
+     */
+    public void updateBilling(int slot, double billing) {
+        this.billing[slot] += billing;
+    }
+
+    /**
+     * Packs the coordinates of a location into a long.
+     *
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @return The packed location
+     */
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the x-coordinate of a packed location.
+     *
+     * @param location The packed location
+     * @return The x-coordinate
+     */
+    private static int x(long location) {
+        return (int) (location >> 32);
+    }
+
+    /**
+     * Gets the y-coordinate of a packed location.
+     *
+     * @param location The packed location
+     * @return The y-coordinate
+     */
+    private static int y(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Gets the location of the map with the coordinates of a packed location.
+     *
+     * @param location The packed location
+     * @return The location
+     */
+    private static ILocation unpack(long location) {
+        return Location.of(x(location), y(location));
+    }
+}
@@ -0,0 +1,232 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * FreeVehicleGrid class is a spatial index of the free vehicles of the taxi company.
+ * The map is split into square cells, and every cell keeps the vehicles located inside it,
+ * so the nearest free vehicle to a location is found by searching the cells ring by ring
+ * around that location instead of walking the whole fleet.
+ */
+public class FreeVehicleGrid {
+    private int cellSize;
+    private int columns;
+    private int rows;
+    private List<List<IVehicle>> cells;
+    private Map<IVehicle, Integer> vehicleCells;
+
+    /**
+     * Constructs an empty grid covering a map of the given size.
+     *
+     * @param width    The width of the map
+     * @param height   The height of the map
+     * @param cellSize The width and height of every cell of the grid
+     */
+    public FreeVehicleGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cells = new ArrayList<>(this.columns * this.rows);
+        this.vehicleCells = new HashMap<>();
+
+        for (int i = 0; i < this.columns * this.rows; i++) {
+            this.cells.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Gets the number of vehicles in the grid.
+     *
+     * @return The number of indexed vehicles
+     */
+    public int size() {
+        return this.vehicleCells.size();
+    }
+
+    /**
+     * Checks if a vehicle is in the grid.
+     *
+     * @param vehicle The vehicle to check
+     * @return true if the vehicle is indexed, false otherwise
+     */
+    public boolean contains(IVehicle vehicle) {
+        return this.vehicleCells.containsKey(vehicle);
+    }
+
+    /**
+     * Adds a vehicle to the cell of its current location. Adding a vehicle that is
+     * already in the grid just updates its cell.
+     *
+     * @param vehicle The vehicle to add
+     */
+    public void add(IVehicle vehicle) {
+        if (contains(vehicle)) {
+            update(vehicle);
+            return;
+        }
+
+        int cell = cellOf(vehicle.getLocation());
+
+        this.cells.get(cell).add(vehicle);
+        this.vehicleCells.put(vehicle, cell);
+    }
+
+    /**
+     * Removes a vehicle from the grid.
+     *
+     * @param vehicle The vehicle to remove
+     */
+    public void remove(IVehicle vehicle) {
+        Integer cell = this.vehicleCells.remove(vehicle);
+
+        if (cell != null) {
+            this.cells.get(cell).remove(vehicle);
+        }
+    }
+
+    /**
+     * Moves a vehicle to the cell of its current location, if it has left its previous cell.
+     *
+     * @param vehicle The vehicle that has moved
+     */
+    public void update(IVehicle vehicle) {
+        Integer previous = this.vehicleCells.get(vehicle);
+
+        if (previous == null) {
+            return;
+        }
+
+        int cell = cellOf(vehicle.getLocation());
+
+        if (cell != previous) {
+            this.cells.get(previous).remove(vehicle);
+            this.cells.get(cell).add(vehicle);
+            this.vehicleCells.put(vehicle, cell);
+        }
+    }
+
+    /**
+     * Finds the nearest vehicle to a location searching the cells ring by ring around it.
+     * The search stops as soon as no vehicle in the next ring can be closer than the best
+     * vehicle found so far. The location is expected to be inside the map.
+     *
+     * @param location        The location to search from
+     * @param minimumDistance The minimum distance a vehicle must be from the location
+     * @param filter          The condition the vehicle must meet
+     * @return The nearest vehicle meeting the condition, or null if there is none
+     */
+    public IVehicle findNearest(ILocation location, int minimumDistance, Predicate<IVehicle> filter) {
+        List<IVehicle> nearest = findNearest(location, minimumDistance, 1, filter);
+
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Finds the nearest vehicles to a location searching the cells ring by ring around it.
+     * The search stops as soon as no vehicle in the next ring can be closer than the farthest
+     * of the vehicles found so far. The location is expected to be inside the map, and the
+     * distance oracle must never return less than the Manhattan distance.
+     *
+     * @param location        The location to search from
+     * @param minimumDistance The minimum distance a vehicle must be from the location
+     * @param count           The maximum number of vehicles to find
+     * @param filter          The condition the vehicles must meet
+     * @return The nearest vehicles meeting the condition, sorted by distance
+     */
+    public List<IVehicle> findNearest(ILocation location, int minimumDistance, int count,
+            Predicate<IVehicle> filter) {
+        List<IVehicle> nearest = new ArrayList<>(count);
+
+        if (this.vehicleCells.isEmpty() || count <= 0) {
+            return nearest;
+        }
+
+        int[] distances = new int[count];
+        int column = clamp(location.getX() / this.cellSize, this.columns);
+        int row = clamp(location.getY() / this.cellSize, this.rows);
+        int rings = Math.max(this.columns, this.rows);
+
+        for (int ring = 0; ring < rings; ring++) {
+            // vehicles in this ring are at least (ring - 1) * cellSize + 1 blocks away
+
+            if (nearest.size() == count && distances[count - 1] <= (ring - 1) * this.cellSize + 1) {
+                break;
+            }
+
+            for (int y = row - ring; y <= row + ring; y++) {
+                if (y < 0 || y >= this.rows) {
+                    continue;
+                }
+
+                // inner rows of the ring only have cells at both ends
+
+                int step = (y == row - ring || y == row + ring) ? 1 : Math.max(2 * ring, 1);
+
+                for (int x = column - ring; x <= column + ring; x += step) {
+                    if (x < 0 || x >= this.columns) {
+                        continue;
+                    }
+
+                    for (IVehicle vehicle : this.cells.get(y * this.columns + x)) {
+                        // vehicles drive to the location, which matters on one-way streets
+
+                        int distance = ApplicationLibrary.distance(vehicle.getLocation(), location);
+
+                        if (distance < minimumDistance || distance == IDistanceOracle.UNREACHABLE
+                                || (nearest.size() == count && distance >= distances[count - 1])
+                                || !filter.test(vehicle)) {
+                            continue;
+                        }
+
+                        // insert the vehicle keeping the list sorted by distance
+
+                        int position = Math.min(nearest.size(), count - 1);
+
+                        if (nearest.size() == count) {
+                            nearest.remove(count - 1);
+                        }
+
+                        while (position > 0 && distances[position - 1] > distance) {
+                            distances[position] = distances[position - 1];
+                            position--;
+                        }
+
+                        distances[position] = distance;
+                        nearest.add(position, vehicle);
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Computes the index of the cell a location belongs to. Locations outside the map
+     * are assigned to the nearest border cell.
+     *
+     * @param location The location
+     * @return The index of the cell
+     */
+    private int cellOf(ILocation location) {
+        int column = clamp(location.getX() / this.cellSize, this.columns);
+        int row = clamp(location.getY() / this.cellSize, this.rows);
+
+        return row * this.columns + column;
+    }
+
+    /**
+     * Limits a cell coordinate to the range [0, max - 1].
+     *
+     * @param value The cell coordinate
+     * @param max   The number of cells in that direction
+     * @return The limited coordinate
+     */
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max - 1));
+    }
+}
@@ -0,0 +1,134 @@
+package taxify;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * FreeVehiclePool class keeps the free vehicles that are eligible for a service type.
+ * Driver eligibility is evaluated once per vehicle slot and kept in a bitset, and only the
+ * eligible free vehicles are added to the pool's grid, so dispatch for the service type
+ * never looks at vehicles whose driver cannot provide it. The pool is synchronized, so
+ * vehicles can move while services are requested from other threads.
+ */
+public class FreeVehiclePool {
+    private IServiceType serviceType;
+    private BitSet eligibleSlots;
+    private FreeVehicleGrid freeVehicles;
+
+    /**
+     * Constructs an empty pool for a service type.
+     *
+     * @param serviceType The service type of the pool
+     * @param cellSize    The size of the cells of the pool's grid
+     */
+    public FreeVehiclePool(IServiceType serviceType, int cellSize) {
+        this.serviceType = serviceType;
+        this.eligibleSlots = new BitSet();
+        this.freeVehicles = new FreeVehicleGrid(ApplicationLibrary.MAP_WIDTH, ApplicationLibrary.MAP_HEIGHT, cellSize);
+    }
+
+    /**
+     * Gets the service type of the pool.
+     *
+     * @return The service type
+     */
+    public IServiceType getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Evaluates whether the driver of the vehicle in a slot is eligible for the service type.
+     *
+     * @param vehicle The vehicle
+     * @param slot    The slot of the vehicle in the fleet
+     */
+    public synchronized void updateEligibility(IVehicle vehicle, int slot) {
+        boolean eligible = this.serviceType.isDriverEligible(vehicle.getDriver());
+
+        this.eligibleSlots.set(slot, eligible);
+
+        if (!eligible) {
+            this.freeVehicles.remove(vehicle);
+        } else if (vehicle.isFree()) {
+            this.freeVehicles.add(vehicle);
+        }
+    }
+
+    /**
+     * Checks if the vehicle in a slot is eligible for the service type.
+     *
+     * @param slot The slot of the vehicle in the fleet
+     * @return true if the driver of the vehicle is eligible, false otherwise
+     */
+    public synchronized boolean isEligible(int slot) {
+        return this.eligibleSlots.get(slot);
+    }
+
+    /**
+     * Adds a free vehicle to the pool if it is eligible for the service type.
+     *
+     * @param vehicle The vehicle that is free
+     * @param slot    The slot of the vehicle in the fleet
+     */
+    public synchronized void add(IVehicle vehicle, int slot) {
+        if (isEligible(slot)) {
+            this.freeVehicles.add(vehicle);
+        }
+    }
+
+    /**
+     * Removes a vehicle from the pool.
+     *
+     * @param vehicle The vehicle that is no longer free
+     * @param slot    The slot of the vehicle in the fleet
+     */
+    public synchronized void remove(IVehicle vehicle, int slot) {
+        if (isEligible(slot)) {
+            this.freeVehicles.remove(vehicle);
+        }
+    }
+
+    /**
+     * Updates the location of a free vehicle in the pool.
+     *
+     * @param vehicle The vehicle that has moved
+     * @param slot    The slot of the vehicle in the fleet
+     */
+    public synchronized void update(IVehicle vehicle, int slot) {
+        if (isEligible(slot)) {
+            this.freeVehicles.update(vehicle);
+        }
+    }
+
+    /**
+     * Gets the number of free vehicles in the pool.
+     *
+     * @return The number of free vehicles
+     */
+    public synchronized int size() {
+        return this.freeVehicles.size();
+    }
+
+    /**
+     * Finds the nearest free vehicle of the pool to a location.
+     *
+     * @param location        The location to search from
+     * @param minimumDistance The minimum distance the vehicle must be from the location
+     * @return The nearest free vehicle, or null if there is none
+     */
+    public synchronized IVehicle findNearest(ILocation location, int minimumDistance) {
+        return this.freeVehicles.findNearest(location, minimumDistance, vehicle -> vehicle.isFree());
+    }
+
+    /**
+     * Finds the nearest free vehicles of the pool to a location.
+     *
+     * @param location        The location to search from
+     * @param minimumDistance The minimum distance the vehicles must be from the location
+     * @param count           The maximum number of vehicles to find
+     * @return The nearest free vehicles, sorted by distance
+     */
+    public synchronized List<IVehicle> findNearest(ILocation location, int minimumDistance, int count) {
+        return this.freeVehicles.findNearest(location, minimumDistance, count, vehicle -> vehicle.isFree());
+    }
+}
@@ -0,0 +1,143 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * GraphRoute class represents a route along the streets of a road network. The route
+ * is found with A* and kept as the array of nodes to visit, followed with a cursor.
+ */
+public class GraphRoute implements IRoute {
+    private RoadNetwork network;
+    private int[] nodes;
+    private int count;
+    private int cursor;
+
+    /**
+     * Constructs a route between a start location and a destination.
+     *
+     * @param network     The road network the route follows
+     * @param start       The starting location of the route
+     * @param destination The destination of the route
+     */
+    public GraphRoute(RoadNetwork network, ILocation start, ILocation destination) {
+        this.network = network;
+        this.nodes = new int[16];
+        setDestination(start, destination);
+    }
+
+    /**
+     * Checks if the route has any remaining locations to visit.
+     *
+     * @return true if the route contains locations, false otherwise
+     */
+    @Override
+    public boolean hasLocations() {
+        return this.cursor < this.count;
+    }
+
+    /**
+     * Moves the cursor one node forward and returns its location.
+     *
+     * @return The next location of the route
+     */
+    @Override
+    public ILocation getNextLocation() {
+        if (this.cursor == this.count) {
+            throw new IllegalStateException("The route has no more locations");
+        }
+
+        return this.network.locationOf(this.nodes[this.cursor++]);
+    }
+
+    /**
+     * Gets the number of nodes left on the route.
+     *
+     * @return The number of locations still to visit
+     */
+    @Override
+    public int getRemainingSteps() {
+        return this.count - this.cursor;
+    }
+
+    /**
+     * Moves the cursor forward a number of nodes at once.
+     *
+     * @param steps The number of nodes to skip, at most the remaining nodes
+     */
+    @Override
+    public void skip(int steps) {
+        this.cursor += Math.min(steps, this.count - this.cursor);
+    }
+
+    /**
+     * Gets the location reached after a number of nodes, without moving the cursor.
+     *
+     * @param steps The number of nodes, between 1 and the remaining nodes
+     * @return The location reached
+     */
+    @Override
+    public ILocation peek(int steps) {
+        return this.network.locationOf(this.nodes[this.cursor + steps - 1]);
+    }
+
+    /**
+     * Appends the shortest route from a start location to a new destination. Nothing is
+     * appended if the destination cannot be reached.
+     *
+     * @param start          The location the new part of the route starts from
+     * @param newDestination The new destination
+     */
+    @Override
+    public void addDestination(ILocation start, ILocation newDestination) {
+        // drop the nodes already visited before appending
+
+        if (this.cursor == this.count) {
+            this.count = 0;
+            this.cursor = 0;
+        }
+
+        int[] path = this.network.findPath(start, newDestination);
+
+        if (path == null) {
+            return;
+        }
+
+        if (this.count + path.length > this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, Math.max(2 * this.nodes.length, this.count + path.length));
+        }
+
+        System.arraycopy(path, 0, this.nodes, this.count, path.length);
+        this.count += path.length;
+    }
+
+    /**
+     * Replaces the whole route with the shortest route from a start location to a destination.
+     *
+     * @param start       The location the route starts from
+     * @param destination The destination of the route
+     */
+    @Override
+    public void setDestination(ILocation start, ILocation destination) {
+        this.count = 0;
+        this.cursor = 0;
+
+        addDestination(start, destination);
+    }
+
+    /**
+     * Returns a string representation of the remaining route, where each location
+     * is represented as a string and separated by spaces.
+     *
+     * @return A string representation of the route
+     */
+    @Override
+    public String toString() {
+        StringBuilder route = new StringBuilder();
+
+        for (int i = this.cursor; i < this.count; i++) {
+            route.append(this.network.locationOf(this.nodes[i])).append(' ');
+        }
+
+        return route.toString();
+    }
+}
@@ -8,4 +8,5 @@ public interface IBaseService {
     public String toString();
     public IServiceType getServiceType();
     public double getDiscountRate();
+    public RideMode getRideMode();
 }
@@ -0,0 +1,9 @@
+package taxify;
+
+public interface IDistanceOracle {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    public int distance(ILocation from, ILocation to);
+
+}
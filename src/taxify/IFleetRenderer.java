@@ -0,0 +1,7 @@
+package taxify;
+
+public interface IFleetRenderer {
+
+    public void render(FleetSnapshot snapshot);
+
+}
@@ -4,6 +4,8 @@ public interface ILocation {
     
     public int getX();
     public int getY();
+    public boolean equals(Object object);
+    public int hashCode();
     public String toString();
 
 }
@@ -2,6 +2,6 @@ package taxify;
 
 public interface IObserver {
     
-    public void updateObserver(String message);
+    public void updateObserver(TaxiEvent event);
 
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package taxify;
+
+import java.util.SplittableRandom;
+
+public interface IRideJournal {
+
+    public SplittableRandom getFleetStream();
+    public void requested(RideRequest request);
+    public void sharedRideJoined(IUser user, IVehicle vehicle, ILocation destination);
+    public void rate(IUser rider, IBaseService service);
+    public void tickEnded(long tick);
+
+}
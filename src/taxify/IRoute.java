@@ -3,6 +3,10 @@ package taxify;
 public interface IRoute {
     public boolean hasLocations();
     public ILocation getNextLocation();
+    public int getRemainingSteps();
+    public void skip(int steps);
+    public ILocation peek(int steps);
     public void addDestination(ILocation start, ILocation destination);
+    public void setDestination(ILocation start, ILocation destination);
     public String toString();
 }
@@ -0,0 +1,9 @@
+package taxify;
+
+public interface IRouter extends IDistanceOracle {
+
+    public boolean isAccessible(ILocation location);
+    public IRoute createRoute(ILocation start, ILocation destination);
+    public boolean hasGridRoutes();
+
+}
@@ -5,5 +5,4 @@ public interface IService extends IBaseService {
     public int getStars();
     public void setStars(int stars);
     public IServiceType getServiceType();
-    public RideMode getRideMode();
 }
@@ -5,11 +5,9 @@ import java.util.List;
 public interface ISharedService extends IBaseService {
 
     public List<IUser> getUsers();
-    public void addUser(IUser user, ILocation dropoffLocation);
+    public boolean addUser(IUser user, ILocation dropoffLocation, ILocation location);
     public void removeUser();
     public List<ILocation> getDropoffLocations();
-    public void addDropoffLocation(ILocation location);
-    public void removeDropoffLocation();
     public List<Integer> getStars();
     public void setStars(IUser user, int stars);
 
@@ -0,0 +1,9 @@
+package taxify;
+
+import java.util.List;
+
+public interface ISimulatorFactory {
+
+    public ApplicationSimulator create(ITaxiCompany company, List<IUser> users, List<IVehicle> vehicles);
+
+}
@@ -3,6 +3,6 @@ package taxify;
 public interface ISubject {
     
     public void addObserver(IObserver observer);
-    public void notifyObserver(String message);
+    public void notifyObserver(TaxiEvent event);
     
 }
\ No newline at end of file
@@ -5,7 +5,14 @@ public interface ITaxiCompany {
     public String getName();    
     public int getTotalServices();
     public boolean provideService(int user, IServiceType serviceType, RideMode rideMode);
+    public boolean provideService(IUser rider, IServiceType serviceType, RideMode rideMode);
+    public IVehicle assignVehicle(int user, IServiceType serviceType, RideMode rideMode);
+    public void dispatchRequests();
     public void arrivedAtPickupLocation(IVehicle vehicle);
     public void arrivedAtDropoffLocation(IVehicle vehicle);
+    public void vehicleMoved(IVehicle vehicle);
+    public void vehicleFreed(IVehicle vehicle);
+    public void setVehicleClock(IVehicleClock clock);
+    public void setJournal(IRideJournal journal);
     
 }
\ No newline at end of file
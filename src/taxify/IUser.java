@@ -11,6 +11,9 @@ public interface IUser {
     public LocalDate getBirthDate();
     public boolean getService();
     public void setService(boolean service);
+    public boolean reserveService();
+    public void setIdleRiders(IdleRiders idleRiders);
+    public void setAgent(RiderAgent agent);
     public void setCompany(ITaxiCompany company);
     public void requestService(IServiceType serviceType, RideMode rideMode);
     public void rateService(IBaseService service);
@@ -5,10 +5,15 @@ public interface IVehicle extends IMovable {
     public int getId();
     public ILocation getLocation();
     public ILocation getDestination();
-    public void addDestination(ILocation location);
     public IBaseService getService();
+    public VehicleStatus getStatus();
     public IStatistics getStatistics();
     public void setCompany(ITaxiCompany company);
+    public FleetTable getFleet();
+    public void setFleet(FleetTable fleet, int slot);
+    public Region getRegion();
+    public void setRegion(Region region);
+    public boolean claim();
     public void pickService(IBaseService service);
     public void setService(IBaseService service);
     public void startService();
@@ -16,8 +21,14 @@ public interface IVehicle extends IMovable {
     public void notifyArrivalAtPickupLocation();
     public void notifyArrivalAtDropoffLocation();
     public boolean isFree();
+    public void move(int steps);
+    public boolean advance();
+    public void completeMove();
+    public int getRemainingSteps();
+    public ILocation getLocationAfter(int steps);
     public double calculateCost();
     public String toString();
     public IDriver getDriver();
+    public int getCapacity();
     
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package taxify;
+
+public interface IVehicleClock {
+
+    public void synchronize(IVehicle vehicle);
+
+}
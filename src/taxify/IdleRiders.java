@@ -0,0 +1,214 @@
+package taxify;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IdleRiders class keeps the users without an active service, so the next user to request
+ * a service is found in constant time instead of scanning every user. The users are kept
+ * in a queue, in the order they became idle, for picking the longest idle user, and in a
+ * dense array, for picking a user at random. Users report every change of their service
+ * flag, and the set then reads the flag again under its lock, so it follows the latest
+ * value even when the flag is changed from several threads at once.
+ */
+public class IdleRiders {
+    private static final int NONE = -1;
+
+    private IUser[] users;
+    private Map<IUser, Integer> indexes;
+    private int[] next;
+    private int[] previous;
+    private int head;
+    private int tail;
+    private int[] dense;
+    private int[] positions;
+    private int size;
+
+    /**
+     * Constructs the set of idle users of a population, and lets every user report to it.
+     *
+     * @param users The users of the system
+     */
+    public IdleRiders(List<IUser> users) {
+        this.users = users.toArray(new IUser[0]);
+        this.indexes = new IdentityHashMap<>();
+        this.next = new int[this.users.length];
+        this.previous = new int[this.users.length];
+        this.head = NONE;
+        this.tail = NONE;
+        this.dense = new int[this.users.length];
+        this.positions = new int[this.users.length];
+        this.size = 0;
+
+        for (int i = 0; i < this.users.length; i++) {
+            this.indexes.put(this.users[i], i);
+            this.positions[i] = NONE;
+        }
+
+        for (IUser user : this.users) {
+            user.setIdleRiders(this);
+            update(user);
+        }
+    }
+
+    /**
+     * Gets the number of users without an active service.
+     *
+     * @return The number of idle users
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the order of the queue of users without an active service.
+     *
+     * @return The positions of the idle users in the list of users, the longest idle first
+     */
+    public synchronized int[] queueOrder() {
+        int[] order = new int[this.size];
+        int count = 0;
+
+        for (int index = this.head; index != NONE; index = this.next[index]) {
+            order[count++] = index;
+        }
+
+        return order;
+    }
+
+    /**
+     * Moves idle users to the back of the queue in the given order, such as to restore the
+     * queue saved in a checkpoint. Users that are not idle are ignored.
+     *
+     * @param order The positions of the idle users in the list of users, the longest idle first
+     */
+    public synchronized void requeue(int[] order) {
+        for (int index : order) {
+            if (index >= 0 && index < this.users.length && this.positions[index] != NONE) {
+                unlink(index);
+                link(index);
+            }
+        }
+    }
+
+    /**
+     * Adds or removes a user according to its service flag, after the flag has changed.
+     *
+     * @param user The user whose flag has changed
+     */
+    public synchronized void update(IUser user) {
+        Integer index = this.indexes.get(user);
+
+        if (index == null) {
+            return;
+        }
+
+        boolean idle = this.positions[index] != NONE;
+
+        if (!user.getService() && !idle) {
+            add(index);
+        } else if (user.getService() && idle) {
+            remove(index);
+        }
+    }
+
+    /**
+     * Picks the user that has been idle the longest, and moves them to the back of the
+     * queue so the next pick goes to another user if they do not request a service.
+     *
+     * @return The user, or null if every user has an active service
+     */
+    public synchronized IUser nextLongestIdle() {
+        if (this.head == NONE) {
+            return null;
+        }
+
+        int index = this.head;
+
+        unlink(index);
+        link(index);
+
+        return this.users[index];
+    }
+
+    /**
+     * Picks an idle user at random, every idle user being equally likely.
+     *
+     * @return The user, or null if every user has an active service
+     */
+    public synchronized IUser nextRandom() {
+        if (this.size == 0) {
+            return null;
+        }
+
+        return this.users[this.dense[ApplicationLibrary.rand(this.size)]];
+    }
+
+    /**
+     * Adds a user to the back of the queue and to the dense array.
+     *
+     * @param index The index of the user
+     */
+    private void add(int index) {
+        link(index);
+
+        this.dense[this.size] = index;
+        this.positions[index] = this.size;
+        this.size++;
+    }
+
+    /**
+     * Removes a user from the queue and from the dense array, moving the last user of the
+     * array into its position.
+     *
+     * @param index The index of the user
+     */
+    private void remove(int index) {
+        unlink(index);
+
+        int position = this.positions[index];
+        int last = this.dense[--this.size];
+
+        this.dense[position] = last;
+        this.positions[last] = position;
+        this.positions[index] = NONE;
+    }
+
+    /**
+     * Links a user at the back of the queue.
+     *
+     * @param index The index of the user
+     */
+    private void link(int index) {
+        this.previous[index] = this.tail;
+        this.next[index] = NONE;
+
+        if (this.tail == NONE) {
+            this.head = index;
+        } else {
+            this.next[this.tail] = index;
+        }
+
+        this.tail = index;
+    }
+
+    /**
+     * Unlinks a user from the queue.
+     *
+     * @param index The index of the user
+     */
+    private void unlink(int index) {
+        if (this.previous[index] == NONE) {
+            this.head = this.next[index];
+        } else {
+            this.next[this.previous[index]] = this.next[index];
+        }
+
+        if (this.next[index] == NONE) {
+            this.tail = this.previous[index];
+        } else {
+            this.previous[this.next[index]] = this.previous[index];
+        }
+    }
+}
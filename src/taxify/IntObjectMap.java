@@ -0,0 +1,192 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * IntObjectMap class is a hash map with primitive int keys that uses open addressing
+ * with linear probing. Keys are stored in a plain int array, so lookups neither box
+ * the key nor follow a chain of entry objects.
+ *
+ * @param <V> The type of the values
+ */
+public class IntObjectMap<V> {
+    /** The maximum fraction of slots in use before the table grows. */
+    private static final double LOAD_FACTOR = 0.6;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs an empty map sized to hold the given number of entries without growing.
+     *
+     * @param expectedSize The expected number of entries
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR) + 1) - 1) << 1;
+
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the value associated with a key.
+     *
+     * @param key The key
+     * @return The value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int slot = slotOf(key); this.values[slot] != null; slot = (slot + 1) & this.mask) {
+            if (this.keys[slot] == key) {
+                return (V) this.values[slot];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if the map contains a key.
+     *
+     * @param key The key
+     * @return true if the key is in the map, false otherwise
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key   The key
+     * @param value The value, which must not be null
+     * @return The previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntObjectMap does not accept null values");
+        }
+
+        int slot = slotOf(key);
+
+        for (; this.values[slot] != null; slot = (slot + 1) & this.mask) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+        }
+
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+
+        if (this.size > this.keys.length * LOAD_FACTOR) {
+            resize(this.keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes a key from the map. The entries after it in the probe sequence are shifted
+     * back, so no tombstones are left behind.
+     *
+     * @param key The key
+     * @return The removed value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+
+        while (this.values[slot] != null && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        if (this.values[slot] == null) {
+            return null;
+        }
+
+        V removed = (V) this.values[slot];
+
+        // shift back the entries whose probe sequence crosses the freed slot
+
+        int hole = slot;
+
+        for (int next = (hole + 1) & this.mask; this.values[next] != null; next = (next + 1) & this.mask) {
+            int home = slotOf(this.keys[next]);
+
+            if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+        }
+
+        this.values[hole] = null;
+        this.size--;
+
+        return removed;
+    }
+
+    /**
+     * Removes all entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Computes the home slot of a key, spreading consecutive IDs over the table.
+     *
+     * @param key The key
+     * @return The home slot of the key
+     */
+    private int slotOf(int key) {
+        int hash = key * 0x9E3779B9;
+
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+    /**
+     * Rebuilds the table with a new capacity.
+     *
+     * @param capacity The new capacity, a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
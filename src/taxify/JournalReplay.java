@@ -0,0 +1,349 @@
+package taxify;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * JournalReplay class feeds a journal recorded by a RideJournal back to a simulation, tick by
+ * tick: the requests are made to the taxi company with their recorded pickup and drop-off
+ * location, the users join the recorded shared rides, and the riders give the recorded stars.
+ * The simulation must be built from the same seed and population as the recorded one, before
+ * anything else draws from its random streams; the fleet then draws from the recorded stream
+ * of the fleet, so the replay has the same statistics as the recorded run. With another
+ * dispatch or routing, the same workload is replayed, and the ratings are given in the order
+ * of the drop-offs of every tick.
+ */
+public class JournalReplay implements IRideJournal, AutoCloseable {
+    /** The ride modes, by the ordinal they are recorded with. */
+    private static final List<RideMode> RIDE_MODES = List.of(RideMode.values());
+
+    private CheckpointReader in;
+    private TaxiCompany company;
+    private ApplicationSimulator simulator;
+    private IntObjectMap<IUser> users;
+    private IntObjectMap<IVehicle> vehicles;
+    private SplittableRandom fleetStream;
+    private int[] ratings;
+    private int ratingCount;
+    private int nextRating;
+    private long requests;
+    private long sharedRides;
+    private long ticks;
+
+    /**
+     * Opens a journal and attaches it to a simulation.
+     *
+     * @param path      The path of the journal
+     * @param company   The taxi company of the simulation
+     * @param simulator The simulator
+     * @throws IOException If the file cannot be read, or is not a journal
+     */
+    public JournalReplay(Path path, TaxiCompany company, ApplicationSimulator simulator) throws IOException {
+        this.in = new CheckpointReader(path);
+        this.company = company;
+        this.simulator = simulator;
+        this.users = new IntObjectMap<>(simulator.getUsers().size());
+        this.vehicles = new IntObjectMap<>(simulator.getVehicles().size());
+        this.ratings = new int[16];
+        this.ratingCount = 0;
+        this.nextRating = 0;
+        this.requests = 0;
+        this.sharedRides = 0;
+        this.ticks = 0;
+
+        try {
+            readHeader(path);
+        } catch (IOException | RuntimeException e) {
+            this.in.close();
+            throw e;
+        }
+
+        for (IUser user : simulator.getUsers()) {
+            this.users.put(user.getId(), user);
+        }
+
+        for (IVehicle vehicle : simulator.getVehicles()) {
+            this.vehicles.put(vehicle.getId(), vehicle);
+        }
+
+        simulator.setJournal(this);
+    }
+
+    /**
+     * Gets the number of requests replayed so far.
+     *
+     * @return The number of requests
+     */
+    public long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Gets the number of users replayed joining a shared ride so far.
+     *
+     * @return The number of shared rides joined
+     */
+    public long getSharedRides() {
+        return this.sharedRides;
+    }
+
+    /**
+     * Gets the number of ticks replayed so far.
+     *
+     * @return The number of ticks
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Gets the recorded stream the fleet draws from.
+     *
+     * @return The stream of the fleet
+     */
+    @Override
+    public SplittableRandom getFleetStream() {
+        return this.fleetStream;
+    }
+
+    /**
+     * Does nothing: the replayed requests are already in the journal.
+     *
+     * @param request The request
+     */
+    @Override
+    public void requested(RideRequest request) {
+    }
+
+    /**
+     * Does nothing: the replayed shared rides are already in the journal.
+     *
+     * @param user        The user
+     * @param vehicle     The vehicle
+     * @param destination The drop-off location of the user
+     */
+    @Override
+    public void sharedRideJoined(IUser user, IVehicle vehicle, ILocation destination) {
+    }
+
+    /**
+     * Gives a service the next stars recorded on the tick, if any. Riders left without a
+     * recorded rating, when the replay drops off more riders than the recorded run, do not
+     * rate their service.
+     *
+     * @param rider   The rider
+     * @param service The service of the rider
+     */
+    @Override
+    public void rate(IUser rider, IBaseService service) {
+        int stars = (this.nextRating < this.ratingCount) ? this.ratings[this.nextRating++] : 0;
+
+        if (stars == 0) {
+            return;
+        }
+
+        if (service instanceof IService) {
+            ((IService) service).setStars(stars);
+        } else if (service instanceof ISharedService) {
+            ((ISharedService) service).setStars(rider, stars);
+        }
+    }
+
+    /**
+     * Drops the ratings of a tick that were not given.
+     *
+     * @param tick The tick
+     */
+    @Override
+    public void tickEnded(long tick) {
+        this.ratingCount = 0;
+        this.nextRating = 0;
+    }
+
+    /**
+     * Replays the next tick of the journal: its requests and shared rides, then the update
+     * of the simulation, which gives the ratings of the tick.
+     *
+     * @return true if a tick was replayed, false if the journal has ended
+     * @throws IOException If the journal is truncated or refers to something the simulation does not have
+     */
+    public boolean replayTick() throws IOException {
+        if (!this.in.hasRemaining()) {
+            return false;
+        }
+
+        for (int kind = this.in.readByte(); kind != RideJournal.TICK; kind = this.in.readByte()) {
+            switch (kind) {
+                case RideJournal.REQUEST:
+                    replayRequest();
+                    break;
+                case RideJournal.SHARED_RIDE:
+                    replaySharedRide();
+                    break;
+                case RideJournal.RATING:
+                    addRating(this.in.readByte());
+                    break;
+                default:
+                    throw new IOException("The journal has an unknown kind of event " + kind);
+            }
+        }
+
+        long tick = this.in.readLong();
+
+        if (tick != this.simulator.getTime()) {
+            throw new IOException("The journal is at tick " + tick + " but the simulation at tick "
+                    + this.simulator.getTime());
+        }
+
+        this.simulator.update();
+        this.ticks++;
+
+        return true;
+    }
+
+    /**
+     * Replays every tick left in the journal.
+     *
+     * @return The number of ticks replayed
+     * @throws IOException If the journal is truncated or refers to something the simulation does not have
+     */
+    public long replay() throws IOException {
+        long start = this.ticks;
+
+        while (replayTick()) {
+        }
+
+        return this.ticks - start;
+    }
+
+    /**
+     * Detaches the journal from the simulation and closes the file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.simulator.setJournal(null);
+        this.in.close();
+    }
+
+    /**
+     * Reads the header of the journal and checks that it was recorded from the population
+     * of the simulation.
+     *
+     * @param path The path of the journal
+     * @throws IOException If the file is not a journal, or was recorded from another population
+     */
+    private void readHeader(Path path) throws IOException {
+        if (this.in.readInt() != RideJournal.MAGIC) {
+            throw new IOException(path + " is not a journal");
+        }
+
+        int version = this.in.readInt();
+
+        if (version != RideJournal.VERSION) {
+            throw new IOException("The journal " + path + " has version " + version + " instead of " + RideJournal.VERSION);
+        }
+
+        long seed = this.in.readLong();
+        long fleetSeed = this.in.readLong();
+        long time = this.in.readLong();
+        int userCount = this.in.readInt();
+        int vehicleCount = this.in.readInt();
+
+        if (seed != ApplicationLibrary.getRandom().getSeed() || time != this.simulator.getTime()
+                || userCount != this.simulator.getUsers().size() || vehicleCount != this.simulator.getVehicles().size()) {
+            throw new IOException("The journal " + path + " was recorded with seed " + seed + " at tick " + time
+                    + " for " + userCount + " users and " + vehicleCount + " vehicles");
+        }
+
+        this.fleetStream = new SplittableRandom(fleetSeed);
+    }
+
+    /**
+     * Reads a request and makes it to the taxi company.
+     *
+     * @throws IOException If the journal is truncated or refers to something the simulation does not have
+     */
+    private void replayRequest() throws IOException {
+        IUser user = userOf(this.in.readInt());
+        IServiceType serviceType = valueOf(ServiceTypeRegistry.getServiceTypes(), this.in.readByte());
+        RideMode rideMode = valueOf(RIDE_MODES, this.in.readByte());
+        ILocation pickup = this.in.readLocation();
+        ILocation dropoff = this.in.readLocation();
+
+        this.company.provideService(new RideRequest(user, pickup, dropoff, serviceType, rideMode));
+        this.requests++;
+    }
+
+    /**
+     * Reads a user joining a shared ride and adds the user to the ride of the vehicle.
+     *
+     * @throws IOException If the journal is truncated or refers to something the simulation does not have
+     */
+    private void replaySharedRide() throws IOException {
+        IUser user = userOf(this.in.readInt());
+        int id = this.in.readInt();
+        IVehicle vehicle = this.vehicles.get(id);
+        ILocation destination = this.in.readLocation();
+
+        if (vehicle == null) {
+            throw new IOException("The journal refers to an unknown vehicle " + id);
+        }
+
+        // with another dispatch the vehicle may not be in service, or may be full
+
+        if (this.simulator.joinSharedRide(user, vehicle, destination)) {
+            this.sharedRides++;
+        }
+    }
+
+    /**
+     * Keeps the stars of a rating until the riders of the tick are dropped off.
+     *
+     * @param stars The stars, or 0 for none
+     */
+    private void addRating(int stars) {
+        if (this.ratingCount == this.ratings.length) {
+            this.ratings = Arrays.copyOf(this.ratings, 2 * this.ratings.length);
+        }
+
+        this.ratings[this.ratingCount++] = stars;
+    }
+
+    /**
+     * Gets a user of the simulation by their ID.
+     *
+     * @param id The ID of the user
+     * @return The user
+     * @throws IOException If there is no user with the ID
+     */
+    private IUser userOf(int id) throws IOException {
+        IUser user = this.users.get(id);
+
+        if (user == null) {
+            throw new IOException("The journal refers to an unknown user " + id);
+        }
+
+        return user;
+    }
+
+    /**
+     * Gets a value by its position.
+     *
+     * @param values The values
+     * @param index  The position of the value
+     * @return The value
+     * @throws IOException If the position is not valid
+     */
+    private static <T> T valueOf(List<T> values, int index) throws IOException {
+        if (index < 0 || index >= values.size()) {
+            throw new IOException("The journal has an unknown value " + index);
+        }
+
+        return values.get(index);
+    }
+}
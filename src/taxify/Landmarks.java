@@ -0,0 +1,111 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * Landmarks class keeps the cost of the routes from and to a few landmark nodes of a road
+ * network. By the triangle inequality, the cost of the route between two nodes is at least
+ * the difference of their costs to or from any landmark (the ALT bound), which is a much
+ * sharper estimate for A* than the Manhattan distance around obstacles and one-way streets.
+ * Landmarks are chosen far apart: every new landmark is the node farthest from the previous ones.
+ */
+public class Landmarks {
+    private int count;
+    private int[][] from;
+    private int[][] to;
+
+    /**
+     * Computes the landmarks of a road network.
+     *
+     * @param network The road network
+     * @param count   The number of landmarks
+     */
+    public Landmarks(RoadNetwork network, int count) {
+        RoadNetwork reversed = network.reversed();
+        int nodes = network.getNodes();
+        int[] nearest = new int[nodes];
+        int landmark = firstAccessible(network);
+
+        this.count = 0;
+        this.from = new int[count][];
+        this.to = new int[count][];
+
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+
+        while (this.count < count && landmark != -1) {
+            this.from[this.count] = network.distancesFrom(landmark);
+            this.to[this.count] = reversed.distancesFrom(landmark);
+
+            // the next landmark is the reachable node farthest from all landmarks so far
+
+            int farthest = -1;
+
+            for (int node = 0; node < nodes; node++) {
+                nearest[node] = Math.min(nearest[node], this.from[this.count][node]);
+
+                if (nearest[node] != IDistanceOracle.UNREACHABLE && nearest[node] > 0
+                        && (farthest == -1 || nearest[node] > nearest[farthest])) {
+                    farthest = node;
+                }
+            }
+
+            this.count++;
+            landmark = farthest;
+        }
+    }
+
+    /**
+     * Gets the number of landmarks.
+     *
+     * @return The number of landmarks
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Computes the landmark lower bound of the cost of the route between two nodes.
+     *
+     * @param source The node the route starts from
+     * @param target The node the route ends at
+     * @return A lower bound of the cost of the route, 0 if no landmark gives one
+     */
+    public int estimate(int source, int target) {
+        int bound = 0;
+
+        for (int i = 0; i < this.count; i++) {
+            int[] from = this.from[i];
+            int[] to = this.to[i];
+
+            // d(L, target) <= d(L, source) + d(source, target)
+
+            if (from[source] != IDistanceOracle.UNREACHABLE && from[target] != IDistanceOracle.UNREACHABLE) {
+                bound = Math.max(bound, from[target] - from[source]);
+            }
+
+            // d(source, L) <= d(source, target) + d(target, L)
+
+            if (to[source] != IDistanceOracle.UNREACHABLE && to[target] != IDistanceOracle.UNREACHABLE) {
+                bound = Math.max(bound, to[source] - to[target]);
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * Finds the first node of a road network that is not blocked.
+     *
+     * @param network The road network
+     * @return The first accessible node, or -1 if every node is blocked
+     */
+    private static int firstAccessible(RoadNetwork network) {
+        for (int node = 0; node < network.getNodes(); node++) {
+            if (network.isAccessible(network.locationOf(node))) {
+                return node;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,125 @@
+package taxify;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram class records latencies in nanoseconds and reports their percentiles
+ * without keeping every sample. Latencies are counted in buckets that double in width
+ * with every power of two and are split into SUB_BUCKETS equal parts, so a percentile is
+ * known to within 1 / SUB_BUCKETS of its value. Latencies can be recorded from any thread.
+ */
+public class LatencyHistogram {
+    /** The number of equal parts every power of two is split into. */
+    private static final int SUB_BUCKETS = 32;
+
+    /** The number of bits of the index of a sub-bucket. */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private AtomicLongArray counts;
+    private AtomicLong count;
+    private AtomicLong max;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+        this.count = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long latency = Math.max(nanos, 0);
+
+        this.counts.incrementAndGet(bucketOf(latency));
+        this.count.incrementAndGet();
+        this.max.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return The number of latencies
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Gets the largest latency recorded.
+     *
+     * @return The largest latency in nanoseconds
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Gets a percentile of the latencies recorded: the latency the given share of the
+     * latencies are at most, rounded up to the end of its bucket.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = this.count.get();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < this.counts.length(); bucket++) {
+            seen += this.counts.get(bucket);
+
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * Computes the bucket of a latency. Latencies below SUB_BUCKETS have a bucket each,
+     * larger latencies share a bucket with the latencies of the same power of two and the
+     * same leading SUB_BUCKET_BITS + 1 bits.
+     *
+     * @param latency The latency
+     * @return The index of the bucket
+     */
+    private static int bucketOf(long latency) {
+        if (latency < SUB_BUCKETS) {
+            return (int) latency;
+        }
+
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(latency) - SUB_BUCKET_BITS - 1;
+
+        return (shift + 1) * SUB_BUCKETS + (int) ((latency >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Computes the largest latency of a bucket.
+     *
+     * @param bucket The index of the bucket
+     * @return The largest latency counted in the bucket
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long value = bucket % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((value + 1) << shift) - 1;
+    }
+}
@@ -3,10 +3,24 @@ package taxify;
 /**
  * Represents a location in a 2D coordinate system.
  * Implements the ILocation interface to provide X and Y coordinates.
+ * Locations are immutable, and every location inside the map is preallocated
+ * once in a table, so Location.of returns the same instance for the same
+ * coordinates and locations on the map can be compared by reference.
  */
 public class Location implements ILocation {
-    private int x;
-    private int y;
+    /** The canonical instance of every location inside the map, indexed by y * MAP_WIDTH + x. */
+    private static final Location[] LOCATIONS = new Location[ApplicationLibrary.MAP_WIDTH * ApplicationLibrary.MAP_HEIGHT];
+
+    static {
+        for (int y = 0; y < ApplicationLibrary.MAP_HEIGHT; y++) {
+            for (int x = 0; x < ApplicationLibrary.MAP_WIDTH; x++) {
+                LOCATIONS[y * ApplicationLibrary.MAP_WIDTH + x] = new Location(x, y);
+            }
+        }
+    }
+
+    private final int x;
+    private final int y;
 
     /**
      * Constructs a new Location with the specified X and Y coordinates.
@@ -14,11 +28,27 @@ public class Location implements ILocation {
      * @param x the X-coordinate of the location.
      * @param y the Y-coordinate of the location.
      */
-    public Location(int x, int y) {
+    private Location(int x, int y) {
         this.x = x;
         this.y = y;
     }
 
+    /**
+     * Returns the location with the specified X and Y coordinates. Locations inside
+     * the map come from the preallocated table, locations outside the map are created.
+     *
+     * @param x the X-coordinate of the location.
+     * @param y the Y-coordinate of the location.
+     * @return the location.
+     */
+    public static Location of(int x, int y) {
+        if (x >= 0 && x < ApplicationLibrary.MAP_WIDTH && y >= 0 && y < ApplicationLibrary.MAP_HEIGHT) {
+            return LOCATIONS[y * ApplicationLibrary.MAP_WIDTH + x];
+        }
+
+        return new Location(x, y);
+    }
+
     /**
      * Returns the X-coordinate of the location.
      *
@@ -39,6 +69,37 @@ public class Location implements ILocation {
         return this.y;
     }
 
+    /**
+     * Checks if another object is a location with the same coordinates.
+     *
+     * @param object the object to compare with.
+     * @return true if the object is a location with the same coordinates, false otherwise.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+
+        if (!(object instanceof ILocation)) {
+            return false;
+        }
+
+        ILocation location = (ILocation) object;
+
+        return this.x == location.getX() && this.y == location.getY();
+    }
+
+    /**
+     * Returns a hash code based on the coordinates of the location.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.x + this.y;
+    }
+
     /**
      * Returns a string representation of the location in the format (X,Y).
      *
@@ -48,4 +109,4 @@ public class Location implements ILocation {
     public String toString() {
         return "(" + this.getX() + "," + this.getY() + ")";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package taxify;
+
+/**
+ * ManhattanRouter class routes vehicles on an obstacle-free grid, moving first in
+ * the x-direction and then in the y-direction, so the distance between two locations
+ * is their Manhattan distance.
+ */
+public class ManhattanRouter implements IRouter {
+
+    /**
+     * Computes the Manhattan distance between two locations.
+     *
+     * @param from The first location
+     * @param to   The second location
+     * @return The Manhattan distance between the two locations
+     */
+    @Override
+    public int distance(ILocation from, ILocation to) {
+        return Math.abs(from.getX() - to.getX()) + Math.abs(from.getY() - to.getY());
+    }
+
+    /**
+     * Checks if a location can be reached. Every location of the grid can.
+     *
+     * @param location The location
+     * @return true
+     */
+    @Override
+    public boolean isAccessible(ILocation location) {
+        return true;
+    }
+
+    /**
+     * Creates a Manhattan route between two locations.
+     *
+     * @param start       The starting location
+     * @param destination The destination
+     * @return The route
+     */
+    @Override
+    public IRoute createRoute(ILocation start, ILocation destination) {
+        return new Route(start, destination);
+    }
+
+    /**
+     * Checks if the routes of the router only depend on their start and destination,
+     * moving first in the x-direction and then in the y-direction. They do, so the fleet
+     * table walks them from the destination alone, without creating a route.
+     *
+     * @return true
+     */
+    @Override
+    public boolean hasGridRoutes() {
+        return true;
+    }
+}
@@ -108,18 +108,18 @@ public class MicroVehicle implements IMicroVehicle {
         int y1 = this.location.getY();
 
         // Randomly decide whether to move in x or y direction
-        boolean moveInX = Math.random() < 0.5;
+        boolean moveInX = ApplicationLibrary.randDouble() < 0.5;
 
         int x_move = 0;
         int y_move = 0;
 
         if (moveInX) {
-            x_move = (Math.random() < 0.5) ? -1 : 1;
+            x_move = (ApplicationLibrary.randDouble() < 0.5) ? -1 : 1;
         } else {
-            y_move = (Math.random() < 0.5) ? -1 : 1;
+            y_move = (ApplicationLibrary.randDouble() < 0.5) ? -1 : 1;
         }
 
-        ILocation newLocation = new Location(x1 + x_move, y1 + y_move);
+        ILocation newLocation = Location.of(x1 + x_move, y1 + y_move);
         this.location = newLocation;
 
         // update the distance traveled
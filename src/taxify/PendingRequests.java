@@ -0,0 +1,185 @@
+package taxify;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PendingRequests class keeps the service requests that could not be assigned to a vehicle
+ * when they were made. Requests are queued by service type in arrival order, so when a
+ * vehicle becomes free it is matched with the request that has waited the longest among
+ * the service types its driver is eligible for. Requests are ordered by the sequence number
+ * the company stamps them with, which no two requests share, so they are matched the same
+ * way on every run.
+ * The oldest requests of the service types with free vehicles can also be listed, to be
+ * matched against the free vehicles on every tick.
+ */
+public class PendingRequests {
+    /** The maximum number of requests looked at in every queue when matching a vehicle. */
+    private static final int SCAN_LIMIT = 16;
+
+    private Map<FreeVehiclePool, ArrayDeque<RideRequest>> queues;
+    private int size;
+
+    /**
+     * Constructs an empty store of pending requests.
+     */
+    public PendingRequests() {
+        this.queues = new LinkedHashMap<>();
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of pending requests.
+     *
+     * @return The number of requests waiting for a vehicle
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets all the pending requests, oldest first.
+     *
+     * @return The pending requests
+     */
+    public synchronized List<RideRequest> toList() {
+        List<RideRequest> requests = new ArrayList<>(this.size);
+
+        for (ArrayDeque<RideRequest> queue : this.queues.values()) {
+            requests.addAll(queue);
+        }
+
+        requests.sort((first, second) -> Long.compare(first.getSequence(), second.getSequence()));
+
+        return requests;
+    }
+
+    /**
+     * Adds a request to the queue of its service type.
+     *
+     * @param request The request waiting for a vehicle
+     * @param pool    The pool of free vehicles of the service type of the request
+     */
+    public synchronized void add(RideRequest request, FreeVehiclePool pool) {
+        this.queues.computeIfAbsent(pool, key -> new ArrayDeque<>()).addLast(request);
+        this.size++;
+    }
+
+    /**
+     * Gets the oldest requests of every service type that has free vehicles, oldest first.
+     * The requests stay in their queue.
+     *
+     * @return The oldest requests that may find a free vehicle
+     */
+    public synchronized List<RideRequest> listOldest() {
+        List<RideRequest> requests = new ArrayList<>();
+
+        for (Map.Entry<FreeVehiclePool, ArrayDeque<RideRequest>> entry : this.queues.entrySet()) {
+            if (entry.getValue().isEmpty() || entry.getKey().size() == 0) {
+                continue;
+            }
+
+            Iterator<RideRequest> iterator = entry.getValue().iterator();
+
+            for (int i = 0; i < SCAN_LIMIT && iterator.hasNext(); i++) {
+                requests.add(iterator.next());
+            }
+        }
+
+        requests.sort((first, second) -> Long.compare(first.getSequence(), second.getSequence()));
+
+        return requests;
+    }
+
+    /**
+     * Removes a request from the queue of its service type.
+     *
+     * @param request The request
+     * @param pool    The pool of free vehicles of the service type of the request
+     * @return true if the request was waiting, false if it was taken meanwhile
+     */
+    public synchronized boolean remove(RideRequest request, FreeVehiclePool pool) {
+        ArrayDeque<RideRequest> queue = this.queues.get(pool);
+
+        if (queue == null || !queue.remove(request)) {
+            return false;
+        }
+
+        this.size--;
+
+        return true;
+    }
+
+    /**
+     * Puts a removed request back in the queue of its service type, at its place in arrival
+     * order, such as when the vehicle it was removed for was claimed meanwhile.
+     *
+     * @param request The request
+     * @param pool    The pool of free vehicles of the service type of the request
+     */
+    public synchronized void restore(RideRequest request, FreeVehiclePool pool) {
+        ArrayDeque<RideRequest> queue = this.queues.computeIfAbsent(pool, key -> new ArrayDeque<>());
+        ArrayDeque<RideRequest> younger = new ArrayDeque<>();
+
+        while (!queue.isEmpty() && queue.peekLast().getSequence() > request.getSequence()) {
+            younger.addFirst(queue.pollLast());
+        }
+
+        queue.addLast(request);
+        queue.addAll(younger);
+        this.size++;
+    }
+
+    /**
+     * Takes the request that has waited the longest among the service types a vehicle is
+     * eligible for. Requests whose pickup location is too close to the vehicle are skipped
+     * and stay in their queue.
+     *
+     * @param vehicle The vehicle that has become free
+     * @param slot    The slot of the vehicle in the fleet
+     * @return The request for the vehicle, or null if no request is waiting for it
+     */
+    public synchronized RideRequest poll(IVehicle vehicle, int slot) {
+        if (this.size == 0) {
+            return null;
+        }
+
+        RideRequest oldest = null;
+        ArrayDeque<RideRequest> oldestQueue = null;
+
+        for (Map.Entry<FreeVehiclePool, ArrayDeque<RideRequest>> entry : this.queues.entrySet()) {
+            if (entry.getValue().isEmpty() || !entry.getKey().isEligible(slot)) {
+                continue;
+            }
+
+            // requests are in arrival order, so the first valid one is the oldest of the queue
+
+            Iterator<RideRequest> iterator = entry.getValue().iterator();
+
+            for (int i = 0; i < SCAN_LIMIT && iterator.hasNext(); i++) {
+                RideRequest request = iterator.next();
+
+                int distance = ApplicationLibrary.distance(vehicle.getLocation(), request.getPickupLocation());
+
+                if (distance >= ApplicationLibrary.MINIMUM_DISTANCE && distance != IDistanceOracle.UNREACHABLE) {
+                    if (oldest == null || request.getSequence() < oldest.getSequence()) {
+                        oldest = request;
+                        oldestQueue = entry.getValue();
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (oldest != null) {
+            oldestQueue.remove(oldest);
+            this.size--;
+        }
+
+        return oldest;
+    }
+}
@@ -0,0 +1,104 @@
+package taxify;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomService class is the source of every random draw of a simulation. It is seeded
+ * once, and every thread draws from its own stream, split from the seeded generator the
+ * first time the thread draws, so threads never contend on a shared generator. A run is
+ * reproduced by reusing its seed, as long as the threads start drawing in the same order
+ * and each of them makes the same draws; the simulation loop draws from a single thread.
+ */
+public class RandomService {
+    private long seed;
+    private SplittableRandom root;
+    private ThreadLocal<SplittableRandom> streams;
+
+    /**
+     * Constructs a random service with a seed.
+     *
+     * @param seed The seed of the simulation
+     */
+    public RandomService(long seed) {
+        this(seed, seed);
+    }
+
+    /**
+     * Constructs a random service for a run that keeps its seed but draws from other
+     * streams, such as a run resumed from a checkpoint.
+     *
+     * @param seed       The seed of the simulation
+     * @param streamSeed The seed the streams are split from
+     */
+    public RandomService(long seed, long streamSeed) {
+        this.seed = seed;
+        this.root = new SplittableRandom(streamSeed);
+        this.streams = ThreadLocal.withInitial(this::split);
+    }
+
+    /**
+     * Gets the seed of the simulation the service was created with.
+     *
+     * @return The seed
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Gets the random stream of the current thread.
+     *
+     * @return The stream of the current thread
+     */
+    public SplittableRandom current() {
+        return this.streams.get();
+    }
+
+    /**
+     * Draws a random integer within the range [0, bound - 1] from the stream of the current thread.
+     *
+     * @param bound The upper bound (exclusive)
+     * @return A random integer between 0 and bound - 1
+     */
+    public int nextInt(int bound) {
+        return this.streams.get().nextInt(bound);
+    }
+
+    /**
+     * Draws a random double within the range [0, 1) from the stream of the current thread.
+     *
+     * @return A random double between 0 (inclusive) and 1 (exclusive)
+     */
+    public double nextDouble() {
+        return this.streams.get().nextDouble();
+    }
+
+    /**
+     * Draws a random boolean from the stream of the current thread.
+     *
+     * @return A random boolean
+     */
+    public boolean nextBoolean() {
+        return this.streams.get().nextBoolean();
+    }
+
+    /**
+     * Makes a thread draw from a given stream, for example a stream split beforehand so that
+     * the threads of a simulation get their streams in a fixed order.
+     *
+     * @param stream The stream the current thread draws from
+     */
+    public void setCurrent(SplittableRandom stream) {
+        this.streams.set(stream);
+    }
+
+    /**
+     * Splits a new stream from the seeded generator. Threads that draw for the first time
+     * get a stream split this way.
+     *
+     * @return The new stream
+     */
+    public synchronized SplittableRandom split() {
+        return this.root.split();
+    }
+}
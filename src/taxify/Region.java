@@ -0,0 +1,150 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Region class is a rectangular part of the map, given by its lower corner (inclusive) and
+ * its upper corner (exclusive). A taxi company can serve the requests of a region only, and
+ * a vehicle can cruise inside a region while it is free.
+ */
+public class Region {
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    /**
+     * Constructs a region.
+     *
+     * @param minX The smallest x-coordinate of the region
+     * @param minY The smallest y-coordinate of the region
+     * @param maxX The x-coordinate after the largest x-coordinate of the region
+     * @param maxY The y-coordinate after the largest y-coordinate of the region
+     */
+    public Region(int minX, int minY, int maxX, int maxY) {
+        if (maxX <= minX || maxY <= minY) {
+            throw new IllegalArgumentException("A region must not be empty");
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Gets the smallest x-coordinate of the region.
+     *
+     * @return The smallest x-coordinate
+     */
+    public int getMinX() {
+        return this.minX;
+    }
+
+    /**
+     * Gets the smallest y-coordinate of the region.
+     *
+     * @return The smallest y-coordinate
+     */
+    public int getMinY() {
+        return this.minY;
+    }
+
+    /**
+     * Gets the x-coordinate after the largest x-coordinate of the region.
+     *
+     * @return The x-coordinate after the region
+     */
+    public int getMaxX() {
+        return this.maxX;
+    }
+
+    /**
+     * Gets the y-coordinate after the largest y-coordinate of the region.
+     *
+     * @return The y-coordinate after the region
+     */
+    public int getMaxY() {
+        return this.maxY;
+    }
+
+    /**
+     * Splits the map into vertical strips of the same width, give or take a column.
+     *
+     * @param count The number of strips
+     * @return The strips, from left to right
+     */
+    public static List<Region> strips(int count) {
+        if (count <= 0 || count > ApplicationLibrary.MAP_WIDTH) {
+            throw new IllegalArgumentException("The map cannot be split into " + count + " strips");
+        }
+
+        List<Region> strips = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            strips.add(new Region(i * ApplicationLibrary.MAP_WIDTH / count, 0,
+                    (i + 1) * ApplicationLibrary.MAP_WIDTH / count, ApplicationLibrary.MAP_HEIGHT));
+        }
+
+        return strips;
+    }
+
+    /**
+     * Checks if a location is inside the region.
+     *
+     * @param location The location
+     * @return true if the location is inside the region, false otherwise
+     */
+    public boolean contains(ILocation location) {
+        return location.getX() >= this.minX && location.getX() < this.maxX
+                && location.getY() >= this.minY && location.getY() < this.maxY;
+    }
+
+    /**
+     * Generates a random location inside the region that vehicles can drive to.
+     *
+     * @return A random location inside the region
+     */
+    public ILocation randomLocation() {
+        ILocation location;
+
+        do {
+
+            location = Location.of(this.minX + ApplicationLibrary.rand(this.maxX - this.minX),
+                    this.minY + ApplicationLibrary.rand(this.maxY - this.minY));
+
+        } while (!ApplicationLibrary.getRouter().isAccessible(location));
+
+        return location;
+    }
+
+    /**
+     * Generates a random location inside the region that is at least MINIMUM_DISTANCE away
+     * from the given location, and can be reached from it.
+     *
+     * @param location The location the distance is measured from
+     * @return A random location inside the region
+     */
+    public ILocation randomLocation(ILocation location) {
+        ILocation destination;
+        int distance;
+
+        do {
+
+            destination = randomLocation();
+            distance = ApplicationLibrary.distance(location, destination);
+
+        } while (distance < ApplicationLibrary.MINIMUM_DISTANCE || distance == IDistanceOracle.UNREACHABLE);
+
+        return destination;
+    }
+
+    /**
+     * @return A string representation of the region, as its two corners
+     */
+    @Override
+    public String toString() {
+        return "[" + this.minX + "," + this.minY + " - " + this.maxX + "," + this.maxY + ")";
+    }
+}
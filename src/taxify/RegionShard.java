@@ -0,0 +1,234 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * RegionShard class simulates one region of a sharded city: a taxi company serving the
+ * pickups of the region, its vehicles, which cruise inside the region while they are free,
+ * and the users living in the region. Every shard is stepped by its own thread. Some of the
+ * requests of its users start in another region, and are handed over to the shard of that
+ * region through its mailbox. A shard has a lock-free queue per sending shard and per tick
+ * parity: requests sent during a tick are served by the receiving shard at the start of the
+ * next tick, in the order of the sending shards, so the ticks of the shards only meet at
+ * the tick boundary.
+ */
+public class RegionShard {
+    private int index;
+    private Region region;
+    private List<IVehicle> vehicles;
+    private TaxiCompany company;
+    private ApplicationSimulator simulator;
+    private DemandProfile profile;
+    private double crossRegionShare;
+    private SplittableRandom stream;
+    private LatencyHistogram latency;
+    private List<RegionShard> shards;
+    private List<List<Queue<RideHandoff>>> mailboxes;
+    private long requests;
+    private long sent;
+    private long received;
+
+    /**
+     * Constructs a shard for a region.
+     *
+     * @param index            The index of the shard among all shards
+     * @param region           The region of the shard
+     * @param users            The users living in the region
+     * @param vehicles         The vehicles of the region
+     * @param profile          The demand of the users of the region
+     * @param crossRegionShare The share of requests that start in another region
+     * @param stream           The random stream the thread of the shard draws from
+     * @param latency          The histogram the dispatch latencies are recorded in
+     */
+    public RegionShard(int index, Region region, List<IUser> users, List<IVehicle> vehicles, DemandProfile profile,
+            double crossRegionShare, SplittableRandom stream, LatencyHistogram latency) {
+        this.index = index;
+        this.region = region;
+        this.vehicles = vehicles;
+        this.profile = profile;
+        this.crossRegionShare = crossRegionShare;
+        this.stream = stream;
+        this.latency = latency;
+        this.shards = new ArrayList<>();
+        this.mailboxes = new ArrayList<>();
+        this.requests = 0;
+        this.sent = 0;
+        this.received = 0;
+
+        for (IVehicle vehicle : vehicles) {
+            vehicle.setRegion(region);
+        }
+
+        this.company = new TaxiCompany("Region " + index, users, vehicles);
+        this.company.setServiceArea(region);
+        this.company.addObserver(event -> { });
+
+        this.simulator = new ApplicationSimulator(this.company, users, vehicles) {
+            @Override
+            public void updateObserver(TaxiEvent event) {
+            }
+        };
+        this.simulator.setRiderSelection(RiderSelection.RANDOM);
+    }
+
+    /**
+     * Connects the shard to all the shards of the city, including itself, and creates
+     * its mailboxes.
+     *
+     * @param shards The shards, in order of index
+     */
+    public void connect(List<RegionShard> shards) {
+        this.shards = shards;
+        this.mailboxes = new ArrayList<>(2);
+
+        for (int parity = 0; parity < 2; parity++) {
+            List<Queue<RideHandoff>> queues = new ArrayList<>(shards.size());
+
+            for (int source = 0; source < shards.size(); source++) {
+                queues.add(new ConcurrentLinkedQueue<>());
+            }
+
+            this.mailboxes.add(queues);
+        }
+    }
+
+    /**
+     * Gets the region of the shard.
+     *
+     * @return The region
+     */
+    public Region getRegion() {
+        return this.region;
+    }
+
+    /**
+     * Gets the vehicles of the shard.
+     *
+     * @return The vehicles
+     */
+    public List<IVehicle> getVehicles() {
+        return this.vehicles;
+    }
+
+    /**
+     * Gets the taxi company of the shard.
+     *
+     * @return The taxi company
+     */
+    public TaxiCompany getCompany() {
+        return this.company;
+    }
+
+    /**
+     * Gets the number of requests made by the users of the shard.
+     *
+     * @return The number of requests
+     */
+    public long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Gets the number of requests handed over to other shards.
+     *
+     * @return The number of requests sent
+     */
+    public long getSent() {
+        return this.sent;
+    }
+
+    /**
+     * Gets the number of requests handed over by other shards and accepted by the company
+     * of the shard.
+     *
+     * @return The number of requests received
+     */
+    public long getReceived() {
+        return this.received;
+    }
+
+    /**
+     * Makes the current thread draw from the random stream of the shard. It is called by
+     * the thread of the shard before its first tick.
+     */
+    public void attach() {
+        ApplicationLibrary.getRandom().setCurrent(this.stream);
+    }
+
+    /**
+     * Hands a request over to the shard, to be served at the start of the next tick. The
+     * user of the request must be reserved by the sending shard.
+     *
+     * @param source  The index of the sending shard
+     * @param tick    The tick the request is sent on
+     * @param handoff The request
+     */
+    public void post(int source, long tick, RideHandoff handoff) {
+        this.mailboxes.get((int) ((tick + 1) % 2)).get(source).offer(handoff);
+    }
+
+    /**
+     * Simulates a tick of the region: serves the requests handed over during the previous
+     * tick, makes the requests of the users of the region, and moves the vehicles.
+     *
+     * @param tick The tick
+     */
+    public void step(long tick) {
+        // serve the requests handed over by the other shards during the previous tick; a
+        // rejected request releases its user, who may then request again in its own shard
+
+        List<Queue<RideHandoff>> inbox = this.mailboxes.get((int) (tick % 2));
+
+        for (Queue<RideHandoff> queue : inbox) {
+            RideHandoff handoff;
+
+            while ((handoff = queue.poll()) != null) {
+                long start = System.nanoTime();
+
+                try {
+                    this.company.provideReservedService(handoff.getUser(), handoff.getServiceType(), handoff.getRideMode());
+                    this.received++;
+                } catch (RejectedExecutionException e) {
+                    // the request is dropped, and only counted as sent
+                }
+
+                this.latency.record(System.nanoTime() - start);
+            }
+        }
+
+        // make the requests of the tick, some of them starting in other regions
+
+        int arrivals = this.profile.arrivals(tick);
+
+        for (int i = 0; i < arrivals; i++) {
+            this.requests++;
+
+            if (this.shards.size() > 1 && ApplicationLibrary.randDouble() < this.crossRegionShare) {
+                IUser user = this.simulator.nextRider();
+
+                // the user is reserved until the other shard serves the request, so it is
+                // not picked again meanwhile
+
+                if (user != null && user.reserveService()) {
+                    int target = (this.index + 1 + ApplicationLibrary.rand(this.shards.size() - 1)) % this.shards.size();
+                    RideMode rideMode = ApplicationLibrary.randDouble() < 0.5 ? RideMode.STANDARD : RideMode.SILENT;
+
+                    this.shards.get(target).post(this.index, tick, new RideHandoff(user, ServiceTypeRegistry.STANDARD, rideMode));
+                    this.sent++;
+                }
+                continue;
+            }
+
+            long start = System.nanoTime();
+            this.simulator.requestService();
+            this.latency.record(System.nanoTime() - start);
+        }
+
+        this.simulator.update();
+    }
+}
@@ -0,0 +1,51 @@
+package taxify;
+
+/**
+ * RideHandoff class is a ride request a region shard hands over to the shard of the region
+ * the ride starts in, through the mailbox of that shard.
+ */
+public class RideHandoff {
+    private IUser user;
+    private IServiceType serviceType;
+    private RideMode rideMode;
+
+    /**
+     * Constructs a new RideHandoff.
+     *
+     * @param user        the user requesting the service
+     * @param serviceType the type of service requested
+     * @param rideMode    the mode of the ride
+     */
+    public RideHandoff(IUser user, IServiceType serviceType, RideMode rideMode) {
+        this.user = user;
+        this.serviceType = serviceType;
+        this.rideMode = rideMode;
+    }
+
+    /**
+     * Gets the user requesting the service.
+     *
+     * @return the user
+     */
+    public IUser getUser() {
+        return this.user;
+    }
+
+    /**
+     * Gets the type of service requested.
+     *
+     * @return the service type
+     */
+    public IServiceType getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Gets the mode of the ride.
+     *
+     * @return the ride mode
+     */
+    public RideMode getRideMode() {
+        return this.rideMode;
+    }
+}
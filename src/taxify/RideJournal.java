@@ -0,0 +1,296 @@
+package taxify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * RideJournal class records the workload of a simulation to an append-only binary file: the
+ * requests accepted by the taxi company with their pickup and drop-off location, the users
+ * joining shared rides, and the stars of the ratings, tick by tick. A JournalReplay feeds the
+ * journal back to a simulation built from the same seed, which then has the same statistics,
+ * or serves as the same workload for another dispatch or routing.
+ *
+ * While a journal is attached, the fleet draws from a stream of its own and the ratings from
+ * another one, so the moves of the fleet do not depend on the draws of the requests, which
+ * the replay reads from the journal instead. Events are encoded into a buffer by the
+ * simulation thread, and full buffers are written to the file by a thread of the journal; a
+ * new buffer is allocated when the writer falls behind, so recording never waits for the disk.
+ */
+public class RideJournal implements IRideJournal, AutoCloseable {
+    /** The first int of a journal. */
+    static final int MAGIC = 0x54584A4C;
+
+    /** The version of the format of the journal. */
+    static final int VERSION = 1;
+
+    /** The kinds of events, written before their fields. */
+    static final int TICK = 0;
+    static final int REQUEST = 1;
+    static final int SHARED_RIDE = 2;
+    static final int RATING = 3;
+
+    /** The size of the buffers handed over to the writing thread. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The buffer that tells the writing thread to stop. */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private ApplicationSimulator simulator;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private BlockingQueue<ByteBuffer> filled;
+    private Queue<ByteBuffer> free;
+    private Thread writer;
+    private volatile IOException failure;
+    private SplittableRandom fleetStream;
+    private SplittableRandom ratingStream;
+    private long events;
+    private boolean closed;
+
+    /**
+     * Creates a journal, replacing the file if it exists, and attaches it to a simulation.
+     * The seeds of the streams of the fleet and of the ratings are drawn from the random
+     * stream of the current thread, and written to the journal with the seed of the run.
+     *
+     * @param path      The path of the journal
+     * @param simulator The simulator, whose taxi company is journaled as well
+     * @throws IOException If the file cannot be opened
+     */
+    public RideJournal(Path path, ApplicationSimulator simulator) throws IOException {
+        long fleetSeed = ApplicationLibrary.getRandom().current().nextLong();
+
+        this.simulator = simulator;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.filled = new LinkedBlockingQueue<>();
+        this.free = new ConcurrentLinkedQueue<>();
+        this.failure = null;
+        this.fleetStream = new SplittableRandom(fleetSeed);
+        this.ratingStream = new SplittableRandom(ApplicationLibrary.getRandom().current().nextLong());
+        this.events = 0;
+        this.closed = false;
+
+        // the header tells the replay which population and fleet stream the journal needs
+
+        this.buffer.putInt(MAGIC);
+        this.buffer.putInt(VERSION);
+        this.buffer.putLong(ApplicationLibrary.getRandom().getSeed());
+        this.buffer.putLong(fleetSeed);
+        this.buffer.putLong(simulator.getTime());
+        this.buffer.putInt(simulator.getUsers().size());
+        this.buffer.putInt(simulator.getVehicles().size());
+
+        this.writer = new Thread(this::drain, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        simulator.setJournal(this);
+    }
+
+    /**
+     * Gets the number of events recorded so far, ticks included.
+     *
+     * @return The number of events
+     */
+    public synchronized long getEvents() {
+        return this.events;
+    }
+
+    /**
+     * Gets the stream the fleet draws from while the journal is attached.
+     *
+     * @return The stream of the fleet
+     */
+    @Override
+    public SplittableRandom getFleetStream() {
+        return this.fleetStream;
+    }
+
+    /**
+     * Records a request accepted by the taxi company, with the pickup and drop-off location
+     * drawn for it.
+     *
+     * @param request The request
+     */
+    @Override
+    public synchronized void requested(RideRequest request) {
+        ensure(1 + 4 + 1 + 1 + 4 * 4);
+        this.buffer.put((byte) REQUEST);
+        this.buffer.putInt(request.getUser().getId());
+        this.buffer.put((byte) ServiceTypeRegistry.indexOf(request.getServiceType()));
+        this.buffer.put((byte) request.getRideMode().ordinal());
+        putLocation(request.getPickupLocation());
+        putLocation(request.getDropoffLocation());
+        this.events++;
+    }
+
+    /**
+     * Records a user joining the shared ride of a vehicle.
+     *
+     * @param user        The user
+     * @param vehicle     The vehicle
+     * @param destination The drop-off location of the user
+     */
+    @Override
+    public synchronized void sharedRideJoined(IUser user, IVehicle vehicle, ILocation destination) {
+        ensure(1 + 4 + 4 + 2 * 4);
+        this.buffer.put((byte) SHARED_RIDE);
+        this.buffer.putInt(user.getId());
+        this.buffer.putInt(vehicle.getId());
+        putLocation(destination);
+        this.events++;
+    }
+
+    /**
+     * Lets a rider rate a service drawing from the stream of the ratings, and records the
+     * stars given, or none.
+     *
+     * @param rider   The rider
+     * @param service The service of the rider
+     */
+    @Override
+    public synchronized void rate(IUser rider, IBaseService service) {
+        RandomService random = ApplicationLibrary.getRandom();
+        SplittableRandom previous = random.current();
+        int ratings = (service instanceof ISharedService) ? ((ISharedService) service).getStars().size() : 0;
+        int stars = 0;
+
+        random.setCurrent(this.ratingStream);
+
+        try {
+            rider.rateService(service);
+        } finally {
+            random.setCurrent(previous);
+        }
+
+        if (service instanceof IService) {
+            stars = ((IService) service).getStars();
+        } else if (service instanceof ISharedService) {
+            ISharedService sharedService = (ISharedService) service;
+
+            if (sharedService.getStars().size() > ratings) {
+                stars = sharedService.getStars().get(ratings);
+            }
+        }
+
+        ensure(1 + 1);
+        this.buffer.put((byte) RATING);
+        this.buffer.put((byte) stars);
+        this.events++;
+    }
+
+    /**
+     * Records the end of a tick.
+     *
+     * @param tick The tick
+     */
+    @Override
+    public synchronized void tickEnded(long tick) {
+        ensure(1 + 8);
+        this.buffer.put((byte) TICK);
+        this.buffer.putLong(tick);
+        this.events++;
+    }
+
+    /**
+     * Detaches the journal from the simulation, waits for the writing thread to write every
+     * event, and closes the file.
+     *
+     * @throws IOException If the journal could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.simulator.setJournal(null);
+        handOff();
+        this.filled.add(END);
+
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the journal", e);
+        } finally {
+            this.channel.close();
+        }
+
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    /**
+     * Writes a location as its two coordinates.
+     *
+     * @param location The location
+     */
+    private void putLocation(ILocation location) {
+        this.buffer.putInt(location.getX());
+        this.buffer.putInt(location.getY());
+    }
+
+    /**
+     * Makes room in the buffer for an event, handing the buffer over if needed.
+     *
+     * @param bytes The size of the event
+     */
+    private void ensure(int bytes) {
+        if (this.closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+
+        if (this.buffer.remaining() < bytes) {
+            handOff();
+        }
+    }
+
+    /**
+     * Hands the buffer over to the writing thread, and takes a written buffer, or a new one
+     * if the writing thread has not written any yet.
+     */
+    private void handOff() {
+        ByteBuffer next = this.free.poll();
+
+        this.buffer.flip();
+        this.filled.add(this.buffer);
+        this.buffer = (next != null) ? next : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the buffers handed over until the journal is closed. After a failure the buffers
+     * are dropped, and the failure is reported when the journal is closed.
+     */
+    private void drain() {
+        try {
+            for (ByteBuffer next = this.filled.take(); next != END; next = this.filled.take()) {
+                if (this.failure == null) {
+                    try {
+                        while (next.hasRemaining()) {
+                            this.channel.write(next);
+                        }
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+
+                next.clear();
+                this.free.add(next);
+            }
+        } catch (InterruptedException e) {
+            this.failure = new IOException("Interrupted while writing the journal", e);
+        }
+    }
+}
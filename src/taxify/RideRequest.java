@@ -0,0 +1,96 @@
+package taxify;
+
+/**
+ * RideRequest class represents a service request from a user that has not been
+ * assigned to a vehicle yet. The taxi company stamps every request it accepts with the
+ * next number of a sequence, so requests are ordered by arrival the same way on every run.
+ */
+public class RideRequest {
+    private IUser user;
+    private ILocation pickup;
+    private ILocation dropoff;
+    private IServiceType serviceType;
+    private RideMode rideMode;
+    private long sequence;
+
+    /**
+     * Constructs a new RideRequest.
+     *
+     * @param user        the user requesting the service
+     * @param pickup      the pickup location of the service
+     * @param dropoff     the dropoff location of the service
+     * @param serviceType the type of service requested
+     * @param rideMode    the mode of the ride
+     */
+    public RideRequest(IUser user, ILocation pickup, ILocation dropoff, IServiceType serviceType, RideMode rideMode) {
+        this.user = user;
+        this.pickup = pickup;
+        this.dropoff = dropoff;
+        this.serviceType = serviceType;
+        this.rideMode = rideMode;
+        this.sequence = 0;
+    }
+
+    /**
+     * Gets the user requesting the service.
+     *
+     * @return the user
+     */
+    public IUser getUser() {
+        return this.user;
+    }
+
+    /**
+     * Gets the pickup location of the service.
+     *
+     * @return the pickup location
+     */
+    public ILocation getPickupLocation() {
+        return this.pickup;
+    }
+
+    /**
+     * Gets the dropoff location of the service.
+     *
+     * @return the dropoff location
+     */
+    public ILocation getDropoffLocation() {
+        return this.dropoff;
+    }
+
+    /**
+     * Gets the type of service requested.
+     *
+     * @return the type of service
+     */
+    public IServiceType getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Gets the mode of the ride.
+     *
+     * @return the ride mode
+     */
+    public RideMode getRideMode() {
+        return this.rideMode;
+    }
+
+    /**
+     * Gets the sequence number the request was accepted with.
+     *
+     * @return the sequence number, lower for older requests
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Sets the sequence number the request is accepted with.
+     *
+     * @param sequence the sequence number
+     */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,179 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RideRequestIntake class is the asynchronous entry point for service requests. Requests
+ * are put in a bounded queue and the caller gets a future right away, without waiting for
+ * the simulation tick. A dispatcher thread drains the queue in batches and asks the taxi
+ * company for a vehicle; requests with no free vehicle are retried in the next batches
+ * until they time out, and requests the company rejects fail right away.
+ */
+public class RideRequestIntake implements AutoCloseable {
+    /** The maximum number of requests taken from the queue at once. */
+    private static final int BATCH_SIZE = 256;
+
+    /** The time the dispatcher waits for new requests before retrying, in milliseconds. */
+    private static final long RETRY_INTERVAL = 5;
+
+    private ITaxiCompany company;
+    private BlockingQueue<AsyncRideRequest> queue;
+    private List<AsyncRideRequest> waiting;
+    private AtomicInteger pending;
+    private int capacity;
+    private long timeout;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new intake and starts its dispatcher thread.
+     *
+     * @param company  The taxi company that provides the services
+     * @param capacity The maximum number of requests waiting for a vehicle
+     * @param timeout  The time a request waits for a vehicle before failing, in milliseconds
+     */
+    public RideRequestIntake(ITaxiCompany company, int capacity, long timeout) {
+        this.company = company;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.waiting = new ArrayList<>();
+        this.pending = new AtomicInteger(0);
+        this.capacity = capacity;
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatch, company.getName() + " dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Requests a service without blocking. The request is rejected right away if the intake
+     * already has as many requests waiting as its capacity.
+     *
+     * @param user        The ID of the user requesting the service
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @return A future that completes with the assigned vehicle, or fails with a
+     *         RejectedExecutionException if the intake is full or the company rejects the
+     *         request, or with a TimeoutException if no vehicle becomes free in time
+     */
+    public CompletableFuture<IVehicle> requestService(int user, IServiceType serviceType, RideMode rideMode) {
+        AsyncRideRequest request = new AsyncRideRequest(user, serviceType, rideMode, System.nanoTime() + this.timeout);
+
+        if (!this.running) {
+            request.getFuture().completeExceptionally(new RejectedExecutionException("Ride request intake is closed"));
+            return request.getFuture();
+        }
+
+        // requests waiting for a retry count against the capacity too
+
+        if (this.pending.incrementAndGet() > this.capacity || !this.queue.offer(request)) {
+            this.pending.decrementAndGet();
+            request.getFuture().completeExceptionally(new RejectedExecutionException("Ride request intake is full"));
+        } else if (!this.running && this.queue.remove(request)) {
+            request.getFuture().completeExceptionally(new CancellationException("Ride request intake is closed"));
+        }
+
+        return request.getFuture();
+    }
+
+    /**
+     * Gets the number of requests waiting for a vehicle.
+     *
+     * @return The number of pending requests
+     */
+    public int getPendingRequests() {
+        return this.pending.get();
+    }
+
+    /**
+     * Stops the dispatcher thread. Requests still waiting for a vehicle are cancelled.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        this.dispatcher.interrupt();
+
+        try {
+            this.dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.queue.drainTo(this.waiting);
+
+        for (AsyncRideRequest request : this.waiting) {
+            request.getFuture().completeExceptionally(new CancellationException("Ride request intake is closed"));
+        }
+
+        this.waiting.clear();
+        this.pending.set(0);
+    }
+
+    /**
+     * Main loop of the dispatcher thread. Takes the new requests from the queue in
+     * batches, together with the requests waiting for a retry, and tries to assign a
+     * vehicle to each of them.
+     */
+    private void dispatch() {
+        List<AsyncRideRequest> batch = new ArrayList<>(BATCH_SIZE);
+
+        while (this.running) {
+            try {
+                AsyncRideRequest first = this.queue.poll(RETRY_INTERVAL, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    this.queue.drainTo(batch, BATCH_SIZE - 1);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            // the oldest requests go first
+
+            this.waiting.addAll(batch);
+            batch.clear();
+
+            List<AsyncRideRequest> retries = new ArrayList<>();
+            long now = System.nanoTime();
+
+            for (AsyncRideRequest request : this.waiting) {
+                if (request.getFuture().isDone()) {
+                    this.pending.decrementAndGet();
+                } else if (now - request.getDeadline() > 0) {
+                    this.pending.decrementAndGet();
+                    request.getFuture().completeExceptionally(new TimeoutException("No vehicle assigned in time"));
+                } else {
+                    IVehicle vehicle;
+
+                    try {
+                        vehicle = this.company.assignVehicle(request.getUser(), request.getServiceType(),
+                                request.getRideMode());
+                    } catch (RejectedExecutionException e) {
+                        this.pending.decrementAndGet();
+                        request.getFuture().completeExceptionally(e);
+                        continue;
+                    }
+
+                    if (vehicle != null) {
+                        this.pending.decrementAndGet();
+                        request.getFuture().complete(vehicle);
+                    } else {
+                        retries.add(request);
+                    }
+                }
+            }
+
+            this.waiting = retries;
+        }
+    }
+}
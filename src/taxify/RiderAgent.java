@@ -0,0 +1,117 @@
+package taxify;
+
+/**
+ * RiderAgent class makes a user act on its own: it sleeps until the rider wants a ride,
+ * requests a service, waits for the drop-off, and sleeps again. An agent is not a thread
+ * but a few fields: while sleeping it waits in the timer wheel of its RiderAgents, while
+ * riding it waits for its user to report the end of the service, and it only runs on a
+ * worker thread for the time of a request. A million agents then cost a million small
+ * objects instead of a million stacks, and no thread is ever parked inside the company.
+ */
+public class RiderAgent {
+    private IUser user;
+    private RiderAgents agents;
+    private AgentState state;
+    private long wakeTick;
+
+    /**
+     * Constructs an agent for a user, and lets the user report the end of its services to it.
+     *
+     * @param user   The user the agent acts for
+     * @param agents The agents the agent is scheduled by
+     */
+    public RiderAgent(IUser user, RiderAgents agents) {
+        this.user = user;
+        this.agents = agents;
+        this.state = AgentState.SLEEPING;
+        this.wakeTick = 0;
+
+        user.setAgent(this);
+    }
+
+    /**
+     * Gets the user the agent acts for.
+     *
+     * @return The user
+     */
+    public IUser getUser() {
+        return this.user;
+    }
+
+    /**
+     * Gets what the agent is doing.
+     *
+     * @return The state of the agent
+     */
+    public synchronized AgentState getState() {
+        return this.state;
+    }
+
+    /**
+     * Gets the tick the agent wakes up on while sleeping.
+     *
+     * @return The tick
+     */
+    public synchronized long getWakeTick() {
+        return this.wakeTick;
+    }
+
+    /**
+     * Sets the tick the agent wakes up on. It is set by the agents when they schedule it.
+     *
+     * @param wakeTick The tick
+     */
+    public synchronized void setWakeTick(long wakeTick) {
+        this.wakeTick = wakeTick;
+    }
+
+    /**
+     * Wakes the agent up on a worker thread. If the rider wants a ride at this time of day,
+     * the agent requests a service and waits for the drop-off, otherwise it sleeps again.
+     *
+     * @param tick The current tick
+     */
+    public void act(long tick) {
+        synchronized (this) {
+            if (this.state != AgentState.SLEEPING) {
+                return;
+            }
+
+            if (!this.agents.wantsRide(tick)) {
+                this.agents.schedule(this, tick);
+                return;
+            }
+
+            this.state = AgentState.REQUESTING;
+        }
+
+        // the request is made without holding the lock of the agent, since the company
+        // locks vehicles that report to the agent while holding their own lock
+
+        this.agents.request(this.user);
+
+        // a user that still has a service was assigned a vehicle or waits for one; a user
+        // without one was rejected, or its request failed in batch dispatch, and tries later
+
+        synchronized (this) {
+            if (this.user.getService()) {
+                this.state = AgentState.RIDING;
+            } else {
+                this.state = AgentState.SLEEPING;
+                this.agents.schedule(this, tick);
+            }
+        }
+    }
+
+    /**
+     * Tells the agent its user no longer has a service: the user was dropped off and has
+     * rated the ride, or its request could not be served. A riding agent sleeps until the
+     * rider wants the next ride; a requesting agent finds out by itself once the request returns.
+     */
+    public synchronized void serviceEnded() {
+        if (this.state == AgentState.RIDING) {
+            this.state = AgentState.SLEEPING;
+            this.agents.schedule(this, this.agents.getTick());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RiderAgents class runs every user of a population as a RiderAgent. The rides of a rider
+ * follow the time-of-day Poisson process of a DemandProfile, shared evenly by the riders:
+ * sleeping agents wait in a timer wheel of ticks, with gaps drawn at the peak rate, and an
+ * agent that wakes up wants a ride with the probability of the rate of the tick over the
+ * peak rate, which thins the peak process down to the rate of every hour. The agents that
+ * wake up on a tick make their requests on a small pool of worker threads, at the same time
+ * as the fleet moves. Riders draw from the random streams of the worker threads, so a run
+ * with agents is not reproducible from its seed.
+ */
+public class RiderAgents {
+    /** The number of ticks of the timer wheel; agents sleeping longer wait several turns. */
+    private static final int WHEEL_SIZE = 4096;
+
+    private ITaxiCompany company;
+    private DemandProfile profile;
+    private double peakRate;
+    private int riders;
+    private List<RiderAgent> agents;
+    private List<Queue<RiderAgent>> wheel;
+    private ExecutorService workers;
+    private int threads;
+    private LatencyHistogram latency;
+    private volatile long tick;
+    private List<Future<?>> running;
+    private AtomicLong requests;
+    private AtomicLong accepted;
+
+    /**
+     * Constructs the agents of a population, all sleeping until their first ride.
+     *
+     * @param company The taxi company the riders request services from
+     * @param users   The users of the population
+     * @param profile The demand of the whole population
+     * @param threads The number of worker threads the agents run on
+     * @param latency The histogram the request latencies are recorded in
+     */
+    public RiderAgents(ITaxiCompany company, List<IUser> users, DemandProfile profile, int threads, LatencyHistogram latency) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Rider agents need at least one worker thread");
+        }
+
+        this.company = company;
+        this.profile = profile;
+        this.peakRate = profile.getPeakRate();
+        this.riders = users.size();
+        this.agents = new ArrayList<>(users.size());
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.threads = threads;
+        this.latency = latency;
+        this.tick = 0;
+        this.running = new ArrayList<>();
+        this.requests = new AtomicLong(0);
+        this.accepted = new AtomicLong(0);
+
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel.add(new ConcurrentLinkedQueue<>());
+        }
+
+        for (IUser user : users) {
+            RiderAgent agent = new RiderAgent(user, this);
+
+            this.agents.add(agent);
+            schedule(agent, -1);
+        }
+    }
+
+    /**
+     * Gets the agents of the population.
+     *
+     * @return The agents
+     */
+    public List<RiderAgent> getAgents() {
+        return this.agents;
+    }
+
+    /**
+     * Gets the current tick.
+     *
+     * @return The current tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Gets the number of requests made by the agents.
+     *
+     * @return The number of requests
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the number of requests that were assigned a vehicle or buffered for dispatch.
+     *
+     * @return The number of accepted requests
+     */
+    public long getAccepted() {
+        return this.accepted.get();
+    }
+
+    /**
+     * Puts an agent to sleep until the next time its rider may want a ride, at least one
+     * tick after the given tick.
+     *
+     * @param agent The agent
+     * @param from  The tick the agent falls asleep on
+     */
+    public void schedule(RiderAgent agent, long from) {
+        double gap = -Math.log(1.0 - ApplicationLibrary.randDouble()) * this.riders / this.peakRate;
+        long wakeTick = from + 1 + (long) Math.min(gap, Long.MAX_VALUE / 2);
+
+        agent.setWakeTick(wakeTick);
+        this.wheel.get((int) (wakeTick % WHEEL_SIZE)).offer(agent);
+    }
+
+    /**
+     * Decides if a rider that wakes up on a tick wants a ride, with the probability of the
+     * rate of the tick over the peak rate.
+     *
+     * @param tick The tick
+     * @return true if the rider wants a ride, false otherwise
+     */
+    public boolean wantsRide(long tick) {
+        return ApplicationLibrary.randDouble() * this.peakRate < this.profile.rate(tick);
+    }
+
+    /**
+     * Requests a service for a rider, and records the latency of the request.
+     *
+     * @param user The rider
+     */
+    public void request(IUser user) {
+        RideMode rideMode = ApplicationLibrary.rand(2) == 0 ? RideMode.STANDARD : RideMode.SILENT;
+        long start = System.nanoTime();
+
+        if (this.company.provideService(user, ServiceTypeRegistry.STANDARD, rideMode)) {
+            this.accepted.incrementAndGet();
+        }
+
+        this.latency.record(System.nanoTime() - start);
+        this.requests.incrementAndGet();
+    }
+
+    /**
+     * Wakes up the agents sleeping until a tick and lets them act on the worker threads,
+     * without waiting for them. Agents sleeping until a later turn of the wheel go back to
+     * their slot.
+     *
+     * @param tick The tick
+     */
+    public void release(long tick) {
+        Queue<RiderAgent> slot = this.wheel.get((int) (tick % WHEEL_SIZE));
+        List<RiderAgent> waiting = new ArrayList<>();
+        List<RiderAgent> due = new ArrayList<>();
+        RiderAgent agent;
+
+        this.tick = tick;
+
+        while ((agent = slot.poll()) != null) {
+            if (agent.getWakeTick() <= tick) {
+                due.add(agent);
+            } else {
+                waiting.add(agent);
+            }
+        }
+
+        slot.addAll(waiting);
+
+        // the agents are split evenly among the worker threads
+
+        for (int thread = 0; thread < this.threads; thread++) {
+            List<RiderAgent> share = due.subList(thread * due.size() / this.threads, (thread + 1) * due.size() / this.threads);
+
+            if (!share.isEmpty()) {
+                this.running.add(this.workers.submit(() -> {
+                    for (RiderAgent next : share) {
+                        next.act(tick);
+                    }
+                }));
+            }
+        }
+    }
+
+    /**
+     * Waits for the agents released on the current tick to finish their requests.
+     */
+    public void await() {
+        try {
+            for (Future<?> future : this.running) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the rider agents", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A rider agent failed", e.getCause());
+                }
+            }
+        } finally {
+            this.running.clear();
+        }
+    }
+
+    /**
+     * Stops the worker threads. The agents keep their state but no longer act.
+     */
+    public void shutdown() {
+        this.workers.shutdown();
+    }
+}
@@ -0,0 +1,10 @@
+package taxify;
+
+/**
+ * Enum representing how the application simulator picks the next user to request a service.
+ * LONGEST_IDLE picks the user that has been without a service the longest, RANDOM picks
+ * any user without a service with equal probability.
+ */
+public enum RiderSelection {
+    LONGEST_IDLE, RANDOM
+}
@@ -0,0 +1,255 @@
+package taxify;
+
+import java.util.Arrays;
+
+/**
+ * RoadNetwork class represents the street network of a grid map as a compact graph.
+ * Every cell of the map is a node, and the streets leaving each node are stored in
+ * adjacency arrays (compressed sparse rows): the streets of node n are the entries
+ * between getFirstStreet(n) and getFirstStreet(n + 1). Routes and distances are found
+ * with A*, so blocked cells, one-way streets and street costs are taken into account.
+ */
+public class RoadNetwork implements IRouter {
+    private int width;
+    private int height;
+    private int[] offsets;
+    private int[] targets;
+    private int[] costs;
+    private boolean[] blocked;
+    private volatile Landmarks landmarks;
+    private ThreadLocal<AStarSearch> searches;
+
+    /**
+     * Constructs a road network from its adjacency arrays. Use RoadNetworkBuilder to
+     * describe a network and build it.
+     *
+     * @param width   The width of the map
+     * @param height  The height of the map
+     * @param offsets The position of the first street of every node, plus the total number of streets
+     * @param targets The node every street enters
+     * @param costs   The cost of every street
+     * @param blocked Whether every node is blocked
+     */
+    public RoadNetwork(int width, int height, int[] offsets, int[] targets, int[] costs, boolean[] blocked) {
+        this.width = width;
+        this.height = height;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+        this.blocked = blocked;
+        this.landmarks = null;
+        this.searches = ThreadLocal.withInitial(() -> new AStarSearch(this));
+    }
+
+    /**
+     * Gets the number of nodes of the network.
+     *
+     * @return The number of nodes
+     */
+    public int getNodes() {
+        return this.width * this.height;
+    }
+
+    /**
+     * Gets the position of the first street of a node in the adjacency arrays.
+     *
+     * @param node The node
+     * @return The position of the first street of the node
+     */
+    public int getFirstStreet(int node) {
+        return this.offsets[node];
+    }
+
+    /**
+     * Gets the node a street enters.
+     *
+     * @param street The position of the street in the adjacency arrays
+     * @return The node the street enters
+     */
+    public int getStreetTarget(int street) {
+        return this.targets[street];
+    }
+
+    /**
+     * Gets the cost of a street.
+     *
+     * @param street The position of the street in the adjacency arrays
+     * @return The cost of the street
+     */
+    public int getStreetCost(int street) {
+        return this.costs[street];
+    }
+
+    /**
+     * Gets the node of a location.
+     *
+     * @param location The location
+     * @return The node of the location, or -1 if the location is outside the map
+     */
+    public int nodeOf(ILocation location) {
+        int x = location.getX();
+        int y = location.getY();
+
+        return (x >= 0 && x < this.width && y >= 0 && y < this.height) ? y * this.width + x : -1;
+    }
+
+    /**
+     * Gets the location of a node.
+     *
+     * @param node The node
+     * @return The location of the node
+     */
+    public ILocation locationOf(int node) {
+        return Location.of(node % this.width, node / this.width);
+    }
+
+    /**
+     * Sets the landmarks used to sharpen the estimates of the searches.
+     *
+     * @param landmarks The landmarks of this network, or null to use the Manhattan distance only
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Estimates the cost of the route between two nodes with their Manhattan distance, raised
+     * to the landmark bound when landmarks are set. Streets cost at least 1, so the estimate
+     * never exceeds the real cost.
+     *
+     * @param from The first node
+     * @param to   The second node
+     * @return A lower bound of the cost of the route between the nodes
+     */
+    public int estimate(int from, int to) {
+        int manhattan = Math.abs(from % this.width - to % this.width) + Math.abs(from / this.width - to / this.width);
+        Landmarks landmarks = this.landmarks;
+
+        return landmarks == null ? manhattan : Math.max(manhattan, landmarks.estimate(from, to));
+    }
+
+    /**
+     * Builds the network with every street reversed, used to find the cost of the routes
+     * that end at a node.
+     *
+     * @return The reversed network
+     */
+    public RoadNetwork reversed() {
+        int nodes = getNodes();
+        int[] reversedOffsets = new int[nodes + 1];
+        int[] reversedTargets = new int[this.targets.length];
+        int[] reversedCosts = new int[this.costs.length];
+
+        // count the streets entering every node, then fill them in
+
+        for (int street = 0; street < this.targets.length; street++) {
+            reversedOffsets[this.targets[street] + 1]++;
+        }
+
+        for (int node = 0; node < nodes; node++) {
+            reversedOffsets[node + 1] += reversedOffsets[node];
+        }
+
+        int[] next = Arrays.copyOf(reversedOffsets, nodes);
+
+        for (int node = 0; node < nodes; node++) {
+            for (int street = this.offsets[node]; street < this.offsets[node + 1]; street++) {
+                int position = next[this.targets[street]]++;
+
+                reversedTargets[position] = node;
+                reversedCosts[position] = this.costs[street];
+            }
+        }
+
+        return new RoadNetwork(this.width, this.height, reversedOffsets, reversedTargets, reversedCosts, this.blocked);
+    }
+
+    /**
+     * Checks if a location is a cell of the map that is not blocked.
+     *
+     * @param location The location
+     * @return true if vehicles can drive to the location, false otherwise
+     */
+    @Override
+    public boolean isAccessible(ILocation location) {
+        int node = nodeOf(location);
+
+        return node != -1 && !this.blocked[node];
+    }
+
+    /**
+     * Checks if the routes of the router only depend on their start and destination,
+     * moving first in the x-direction and then in the y-direction. Routes of the network go
+     * around blocked cells and follow the cost of the roads, so every vehicle needs a route.
+     *
+     * @return false
+     */
+    @Override
+    public boolean hasGridRoutes() {
+        return false;
+    }
+
+    /**
+     * Computes the cost of the shortest routes from a node to every node of the network.
+     *
+     * @param source The node the routes start from
+     * @return The cost of the route to every node, UNREACHABLE for the nodes without a route
+     */
+    public int[] distancesFrom(int source) {
+        int[] row = new int[getNodes()];
+
+        this.searches.get().searchAll(source, row);
+
+        return row;
+    }
+
+    /**
+     * Computes the cost of the shortest route between two locations.
+     *
+     * @param from The location the route starts from
+     * @param to   The location the route ends at
+     * @return The cost of the route, or UNREACHABLE if there is no route
+     */
+    @Override
+    public int distance(ILocation from, ILocation to) {
+        if (!isAccessible(from) || !isAccessible(to)) {
+            return UNREACHABLE;
+        }
+
+        return this.searches.get().search(nodeOf(from), nodeOf(to));
+    }
+
+    /**
+     * Finds the shortest route between two locations.
+     *
+     * @param from The location the route starts from
+     * @param to   The location the route ends at
+     * @return The nodes of the route after the start, ending with the destination,
+     *         or null if there is no route
+     */
+    public int[] findPath(ILocation from, ILocation to) {
+        if (!isAccessible(from) || !isAccessible(to)) {
+            return null;
+        }
+
+        AStarSearch search = this.searches.get();
+
+        if (search.search(nodeOf(from), nodeOf(to)) == UNREACHABLE) {
+            return null;
+        }
+
+        return search.path(nodeOf(to));
+    }
+
+    /**
+     * Creates a route along the streets of the network.
+     *
+     * @param start       The starting location
+     * @param destination The destination
+     * @return The route
+     */
+    @Override
+    public IRoute createRoute(ILocation start, ILocation destination) {
+        return new GraphRoute(this, start, destination);
+    }
+}
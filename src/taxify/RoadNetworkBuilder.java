@@ -0,0 +1,205 @@
+package taxify;
+
+/**
+ * RoadNetworkBuilder class describes the street network of a grid map before it is
+ * compacted into a RoadNetwork. It starts from a grid where every cell is connected
+ * to its four neighbours by two-way streets of cost 1, and then cells can be blocked,
+ * streets can be made one-way, and the cost of single streets can be changed.
+ */
+public class RoadNetworkBuilder {
+    /** The offsets of the four neighbours of a cell: east, west, south and north. */
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DY = { 0, 0, 1, -1 };
+
+    private int width;
+    private int height;
+    private boolean[] blocked;
+    private int[] costs;
+
+    /**
+     * Constructs a builder for a fully connected grid of the given size.
+     *
+     * @param width  The width of the map
+     * @param height The height of the map
+     */
+    public RoadNetworkBuilder(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.blocked = new boolean[width * height];
+        this.costs = new int[width * height * DX.length];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int direction = 0; direction < DX.length; direction++) {
+                    if (contains(x + DX[direction], y + DY[direction])) {
+                        this.costs[(y * width + x) * DX.length + direction] = 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks a cell, so no street leads into or out of it.
+     *
+     * @param x The x-coordinate of the cell
+     * @param y The y-coordinate of the cell
+     * @return This builder
+     */
+    public RoadNetworkBuilder block(int x, int y) {
+        checkCell(x, y);
+        this.blocked[y * this.width + x] = true;
+        return this;
+    }
+
+    /**
+     * Makes the street between two neighbouring cells one-way, from the first cell to the second.
+     *
+     * @param fromX The x-coordinate of the cell the street leaves
+     * @param fromY The y-coordinate of the cell the street leaves
+     * @param toX   The x-coordinate of the cell the street enters
+     * @param toY   The y-coordinate of the cell the street enters
+     * @return This builder
+     */
+    public RoadNetworkBuilder setOneWay(int fromX, int fromY, int toX, int toY) {
+        this.costs[edgeOf(toX, toY, fromX, fromY)] = 0;
+        return this;
+    }
+
+    /**
+     * Sets the cost of driving along the street from a cell to a neighbouring cell.
+     * Costs are at least 1, so the Manhattan distance never overestimates a route.
+     *
+     * @param fromX The x-coordinate of the cell the street leaves
+     * @param fromY The y-coordinate of the cell the street leaves
+     * @param toX   The x-coordinate of the cell the street enters
+     * @param toY   The y-coordinate of the cell the street enters
+     * @param cost  The cost of the street
+     * @return This builder
+     */
+    public RoadNetworkBuilder setCost(int fromX, int fromY, int toX, int toY, int cost) {
+        if (cost < 1) {
+            throw new IllegalArgumentException("Street costs must be at least 1");
+        }
+
+        this.costs[edgeOf(fromX, fromY, toX, toY)] = cost;
+        return this;
+    }
+
+    /**
+     * Compacts the streets into a road network with adjacency arrays.
+     *
+     * @return The road network
+     */
+    public RoadNetwork build() {
+        int nodes = this.width * this.height;
+        int[] offsets = new int[nodes + 1];
+        int edges = 0;
+
+        // count the streets of every cell first, then fill them in
+
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = edges;
+            edges += streets(node, null, null, 0);
+        }
+
+        offsets[nodes] = edges;
+
+        int[] targets = new int[edges];
+        int[] edgeCosts = new int[edges];
+
+        for (int node = 0; node < nodes; node++) {
+            streets(node, targets, edgeCosts, offsets[node]);
+        }
+
+        return new RoadNetwork(this.width, this.height, offsets, targets, edgeCosts, this.blocked.clone());
+    }
+
+    /**
+     * Counts the open streets leaving a cell, and copies them to the adjacency arrays if given.
+     *
+     * @param node      The index of the cell
+     * @param targets   The array of street targets, or null to only count
+     * @param edgeCosts The array of street costs, or null to only count
+     * @param offset    The position of the first street of the cell in the arrays
+     * @return The number of open streets leaving the cell
+     */
+    private int streets(int node, int[] targets, int[] edgeCosts, int offset) {
+        if (this.blocked[node]) {
+            return 0;
+        }
+
+        int x = node % this.width;
+        int y = node / this.width;
+        int count = 0;
+
+        for (int direction = 0; direction < DX.length; direction++) {
+            int cost = this.costs[node * DX.length + direction];
+
+            if (cost == 0) {
+                continue;
+            }
+
+            int target = (y + DY[direction]) * this.width + x + DX[direction];
+
+            if (this.blocked[target]) {
+                continue;
+            }
+
+            if (targets != null) {
+                targets[offset + count] = target;
+                edgeCosts[offset + count] = cost;
+            }
+
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Finds the street from a cell to a neighbouring cell.
+     *
+     * @param fromX The x-coordinate of the cell the street leaves
+     * @param fromY The y-coordinate of the cell the street leaves
+     * @param toX   The x-coordinate of the cell the street enters
+     * @param toY   The y-coordinate of the cell the street enters
+     * @return The index of the street in the cost array
+     */
+    private int edgeOf(int fromX, int fromY, int toX, int toY) {
+        checkCell(fromX, fromY);
+        checkCell(toX, toY);
+
+        for (int direction = 0; direction < DX.length; direction++) {
+            if (fromX + DX[direction] == toX && fromY + DY[direction] == toY) {
+                return (fromY * this.width + fromX) * DX.length + direction;
+            }
+        }
+
+        throw new IllegalArgumentException("Cells (" + fromX + "," + fromY + ") and (" + toX + "," + toY
+                + ") are not neighbours");
+    }
+
+    /**
+     * Checks that a cell is inside the map.
+     *
+     * @param x The x-coordinate of the cell
+     * @param y The y-coordinate of the cell
+     */
+    private void checkCell(int x, int y) {
+        if (!contains(x, y)) {
+            throw new IllegalArgumentException("Cell (" + x + "," + y + ") is outside the map");
+        }
+    }
+
+    /**
+     * Checks if coordinates are inside the map.
+     *
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @return true if the coordinates are inside the map, false otherwise
+     */
+    private boolean contains(int x, int y) {
+        return x >= 0 && x < this.width && y >= 0 && y < this.height;
+    }
+}
@@ -1,27 +1,36 @@
 package taxify;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Represents a route between two locations in a grid-based system.
  * The route is determined using a simple Manhattan distance approach,
  * moving first in the x-direction and then in the y-direction.
+ * Only the legs of the route are stored (start and destination, the turn point
+ * being implied), and the next location is computed from a cursor on the legs,
+ * so following a route does not build or shift a list of locations.
  */
 public class Route implements IRoute {
-    private List<ILocation> route;
-    
+    /** The number of coordinates stored for every leg: start x, start y, end x, end y. */
+    private static final int LEG_SIZE = 4;
+
+    private int[] legs;
+    private int legCount;
+    private int leg;
+    private int step;
+    private int remaining;
+
     /**
      * Constructs a Route object between a given start and destination location.
-     * The route is initialized by calculating the path using setRoute.
      *
      * @param location The starting location of the route.
      * @param destination The destination location of the route.
      */
     public Route(ILocation location, ILocation destination) {
-        this.route = setRoute(location, destination);
+        this.legs = new int[2 * LEG_SIZE];
+        setDestination(location, destination);
     }
-    
+
     /**
      * Checks if the route has any remaining locations to visit.
      *
@@ -29,34 +38,136 @@ public class Route implements IRoute {
      */
     @Override
     public boolean hasLocations() {
-        return !this.route.isEmpty();
+        return this.remaining > 0;
     }
-            
+
     /**
-     * Retrieves and removes the next location in the route.
+     * Moves the cursor one step forward and returns the location reached.
      *
      * @return The next ILocation in the route.
      */
     @Override
     public ILocation getNextLocation() {
-        ILocation location = this.route.get(0);
-        
-        this.route.remove(0);
-        
-        return location;
+        if (this.remaining == 0) {
+            throw new IllegalStateException("The route has no more locations");
+        }
+
+        // skip the legs already walked, including empty ones
+
+        while (this.step == steps(this.leg)) {
+            this.leg++;
+            this.step = 0;
+        }
+
+        this.step++;
+        this.remaining--;
+
+        return locationAt(this.leg, this.step);
+    }
+
+    /**
+     * Gets the number of steps left on the route.
+     *
+     * @return The number of locations still to visit.
+     */
+    @Override
+    public int getRemainingSteps() {
+        return this.remaining;
+    }
+
+    /**
+     * Moves the cursor forward a number of steps at once, without computing the
+     * locations skipped.
+     *
+     * @param steps The number of steps to skip, at most the remaining steps.
+     */
+    @Override
+    public void skip(int steps) {
+        steps = Math.min(steps, this.remaining);
+        this.remaining -= steps;
+
+        while (steps > 0) {
+            // take as many steps as possible on the current leg, then go to the next one
+
+            int taken = Math.min(steps, steps(this.leg) - this.step);
+
+            this.step += taken;
+            steps -= taken;
+
+            if (steps > 0) {
+                this.leg++;
+                this.step = 0;
+            }
+        }
     }
-    
+
+    /**
+     * Computes the location reached after a number of steps, without moving the cursor.
+     *
+     * @param steps The number of steps, between 1 and the remaining steps.
+     * @return The location reached.
+     */
+    @Override
+    public ILocation peek(int steps) {
+        int leg = this.leg;
+        int step = this.step + steps;
+
+        while (step > steps(leg)) {
+            step -= steps(leg);
+            leg++;
+        }
+
+        return locationAt(leg, step);
+    }
+
     /**
      * Adds a new destination to the route dynamically.
-     * The route to the new destination is calculated and appended to the existing route.
+     * The leg to the new destination is appended to the existing route.
      *
+     * @param start The location the new leg starts from.
      * @param newDestination The new destination to add to the route.
      */
-    public void addDestination(ILocation start, ILocation newDestination)
-    {
-        this.route.addAll(setRoute(start, newDestination));
+    @Override
+    public void addDestination(ILocation start, ILocation newDestination) {
+        // drop the legs already walked before appending
+
+        if (this.remaining == 0) {
+            this.legCount = 0;
+            this.leg = 0;
+            this.step = 0;
+        }
+
+        if ((this.legCount + 1) * LEG_SIZE > this.legs.length) {
+            this.legs = Arrays.copyOf(this.legs, 2 * this.legs.length);
+        }
+
+        int offset = this.legCount * LEG_SIZE;
+
+        this.legs[offset] = start.getX();
+        this.legs[offset + 1] = start.getY();
+        this.legs[offset + 2] = newDestination.getX();
+        this.legs[offset + 3] = newDestination.getY();
+        this.legCount++;
+        this.remaining += steps(this.legCount - 1);
     }
-    
+
+    /**
+     * Replaces the whole route with a single leg from a start location to a destination,
+     * reusing the route instead of creating a new one.
+     *
+     * @param start The location the route starts from.
+     * @param destination The destination of the route.
+     */
+    @Override
+    public void setDestination(ILocation start, ILocation destination) {
+        this.legCount = 0;
+        this.leg = 0;
+        this.step = 0;
+        this.remaining = 0;
+
+        addDestination(start, destination);
+    }
+
     /**
      * Returns a string representation of the route, where each location
      * is represented as a string and separated by spaces.
@@ -65,47 +176,53 @@ public class Route implements IRoute {
      */
     @Override
     public String toString() {
-        String route = "";
-           
-           for (ILocation location : this.route) {
-               route = route + location.toString() + " ";
-           }
-       
-           return route;        
+        StringBuilder route = new StringBuilder();
+        int step = this.step;
+
+        for (int leg = this.leg; leg < this.legCount; leg++) {
+            for (step++; step <= steps(leg); step++) {
+                route.append(locationAt(leg, step)).append(' ');
+            }
+
+            step = 0;
+        }
+
+        return route.toString();
     }
-    
+
     /**
-     * Generates a route between two locations using a Manhattan distance approach.
-     * Moves first in the x-direction and then in the y-direction.
+     * Computes the number of steps of a leg, moving first in the x-direction and then
+     * in the y-direction.
      *
-     * @param location The starting location.
-     * @param destination The destination location.
-     * @return A list of ILocation objects representing the route.
+     * @param leg The index of the leg.
+     * @return The number of steps of the leg.
      */
-    private static List<ILocation> setRoute(ILocation location, ILocation destination) {
-        List<ILocation> route = new ArrayList<ILocation>();
-        
-        int x1 = location.getX();
-        int y1 = location.getY();
-        
-        int x2 = destination.getX();
-        int y2 = destination.getY();
-        
-        int dx = Math.abs(x1 - x2);
-        int dy = Math.abs(y1 - y2);
-       
-        for (int i=1; i<=dx; i++) {
-            x1 = (x1 < x2) ? x1 + 1 : x1 - 1;
-
-            route.add(new Location(x1, y1));
-        }
-        
-        for (int i=1; i<=dy; i++) {
-            y1 = (y1 < y2) ? y1 + 1 : y1 - 1;
-            
-            route.add(new Location(x1, y1));
+    private int steps(int leg) {
+        int offset = leg * LEG_SIZE;
+
+        return Math.abs(this.legs[offset + 2] - this.legs[offset])
+                + Math.abs(this.legs[offset + 3] - this.legs[offset + 1]);
+    }
+
+    /**
+     * Computes the location reached after a number of steps along a leg.
+     *
+     * @param leg The index of the leg.
+     * @param step The number of steps walked along the leg.
+     * @return The location reached.
+     */
+    private ILocation locationAt(int leg, int step) {
+        int offset = leg * LEG_SIZE;
+        int x1 = this.legs[offset];
+        int y1 = this.legs[offset + 1];
+        int x2 = this.legs[offset + 2];
+        int y2 = this.legs[offset + 3];
+        int dx = Math.abs(x2 - x1);
+
+        if (step <= dx) {
+            return Location.of(x1 + Integer.signum(x2 - x1) * step, y1);
         }
-        
-        return route;
-    }       
-}
\ No newline at end of file
+
+        return Location.of(x2, y1 + Integer.signum(y2 - y1) * (step - dx));
+    }
+}
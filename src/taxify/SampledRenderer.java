@@ -0,0 +1,169 @@
+package taxify;
+
+/**
+ * SampledRenderer class renders a fleet on its own thread, decoupled from the simulation.
+ * The simulation asks on every tick whether a sample is due, every number of ticks or every
+ * number of milliseconds, and if so hands over a snapshot of the fleet. The rendering thread
+ * always renders the latest snapshot: snapshots that arrive while it is still rendering replace
+ * the waiting one, so a slow renderer drops frames instead of slowing the simulation down.
+ */
+public class SampledRenderer implements Runnable {
+    private IFleetRenderer renderer;
+    private long tickInterval;
+    private long timeInterval;
+    private long lastTick;
+    private long lastTime;
+    private FleetSnapshot pending;
+    private boolean running;
+    private Thread thread;
+    private long rendered;
+    private long dropped;
+
+    /**
+     * Constructs a sampled renderer.
+     *
+     * @param renderer     The renderer of the snapshots
+     * @param tickInterval The number of ticks between samples, 0 for none
+     * @param timeInterval The number of milliseconds between samples, 0 for none
+     */
+    public SampledRenderer(IFleetRenderer renderer, long tickInterval, long timeInterval) {
+        this.renderer = renderer;
+        this.tickInterval = tickInterval;
+        this.timeInterval = timeInterval * 1_000_000L;
+        this.lastTick = 0;
+        this.lastTime = System.nanoTime();
+        this.pending = null;
+        this.running = false;
+        this.thread = null;
+        this.rendered = 0;
+        this.dropped = 0;
+    }
+
+    /**
+     * Starts the rendering thread.
+     */
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+
+        this.running = true;
+        this.thread = new Thread(this, "fleet-renderer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stops the rendering thread after it has rendered the waiting snapshot, if any.
+     */
+    public void stop() {
+        Thread thread;
+
+        synchronized (this) {
+            this.running = false;
+            thread = this.thread;
+            this.thread = null;
+            notifyAll();
+        }
+
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether a sample is due on a tick, and if so starts counting towards the next one.
+     * It is only called from the simulation thread.
+     *
+     * @param tick The current tick of the simulation
+     * @return true if a snapshot must be published, false otherwise
+     */
+    public boolean isDue(long tick) {
+        boolean due = this.tickInterval > 0 && tick - this.lastTick >= this.tickInterval;
+
+        if (!due && this.timeInterval > 0) {
+            due = System.nanoTime() - this.lastTime >= this.timeInterval;
+        }
+
+        if (due) {
+            this.lastTick = tick;
+            this.lastTime = System.nanoTime();
+        }
+
+        return due;
+    }
+
+    /**
+     * Hands a snapshot over to the rendering thread, replacing the snapshot waiting to be rendered.
+     *
+     * @param snapshot The snapshot
+     */
+    public synchronized void publish(FleetSnapshot snapshot) {
+        if (this.pending != null) {
+            this.dropped++;
+        }
+
+        this.pending = snapshot;
+        notifyAll();
+    }
+
+    /**
+     * Gets the number of snapshots rendered.
+     *
+     * @return The number of snapshots rendered
+     */
+    public synchronized long getRendered() {
+        return this.rendered;
+    }
+
+    /**
+     * Gets the number of snapshots replaced before they could be rendered.
+     *
+     * @return The number of snapshots dropped
+     */
+    public synchronized long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * Renders the snapshots as they are published, until the renderer is stopped.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            FleetSnapshot snapshot;
+
+            synchronized (this) {
+                while (this.pending == null && this.running) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+
+                if (this.pending == null) {
+                    return;
+                }
+
+                snapshot = this.pending;
+                this.pending = null;
+            }
+
+            // render outside the lock, so the simulation can publish in the meantime
+
+            this.renderer.render(snapshot);
+
+            synchronized (this) {
+                this.rendered++;
+            }
+        }
+    }
+}
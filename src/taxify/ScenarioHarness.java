@@ -0,0 +1,732 @@
+package taxify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ScenarioHarness class runs the simulation at production scale and reports how it behaves:
+ * ticks per second, dispatch latency percentiles, and heap usage. The population is built in
+ * parallel, every user from a random stream of its own so the population only depends on the
+ * seed, and ride requests arrive following the time-of-day Poisson process of a DemandProfile.
+ *
+ * The scenario is configured with key=value arguments:
+ * users, vehicles, days, ticksPerHour, peak (requests per tick at the busiest hour), seed,
+ * update (sequential or parallel), dispatch (immediate or batch), report (ticks between
+ * progress lines, 0 for none), and threads. With threads=0 the requests are made by the
+ * simulation thread between ticks and the run is reproducible; with threads=N they are made
+ * by N threads at the same time as the fleet moves, for random users, which stresses the
+ * concurrent dispatch of the taxi company. With shards=N the map is split into N regions, each
+ * simulated by a company of its own on its own thread, and cross is the share of requests
+ * starting in another region than the region of the user. With agents=N every user acts on
+ * its own as a RiderAgent, sleeping between rides and waiting for its drop-off, and the
+ * agents that wake up on a tick request their rides on N worker threads as the fleet moves.
+ * With checkpoint=path the simulation is saved to a checkpoint at the end of the run, and
+ * with resume=path the simulation is restored from a checkpoint instead of being built, with
+ * the users, vehicles, seed and modes of the checkpoint, and runs on from the tick it was
+ * saved on for the days of the scenario. With
+ * journal=path the requests made between ticks, the shared rides and the ratings are recorded
+ * to a journal, and with replay=path a journal recorded with the same users, vehicles and seed
+ * is replayed instead of drawing new requests, in any dispatch mode.
+ */
+public class ScenarioHarness {
+    private static final List<String> FIRST_NAMES = List.of("John", "Emily", "Michael", "Jessica", "David", "Sarah", "James", "Ashley", "Robert", "Amanda");
+    private static final List<String> LAST_NAMES = List.of("Smith", "Johnson", "Brown", "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin");
+
+    private int userCount;
+    private int vehicleCount;
+    private int days;
+    private int ticksPerHour;
+    private double peak;
+    private long seed;
+    private UpdateMode updateMode;
+    private DispatchMode dispatchMode;
+    private int reportInterval;
+    private int threads;
+    private int shards;
+    private int agents;
+    private double crossRegionShare;
+    private String checkpoint;
+    private String resume;
+    private String journal;
+    private String replay;
+    private LatencyHistogram dispatchLatency;
+    private LatencyHistogram tickTime;
+    private AtomicLong requests;
+    private AtomicLong accepted;
+
+    /**
+     * Constructs a harness with the default scenario: a million users and twenty thousand
+     * vehicles for one day of one tick per minute.
+     */
+    public ScenarioHarness() {
+        this.userCount = 1_000_000;
+        this.vehicleCount = 20_000;
+        this.days = 1;
+        this.ticksPerHour = 60;
+        this.peak = 2_000;
+        this.seed = 1;
+        this.updateMode = UpdateMode.PARALLEL;
+        this.dispatchMode = DispatchMode.IMMEDIATE;
+        this.reportInterval = 60;
+        this.threads = 0;
+        this.shards = 0;
+        this.agents = 0;
+        this.crossRegionShare = 0.1;
+        this.checkpoint = null;
+        this.resume = null;
+        this.journal = null;
+        this.replay = null;
+        this.dispatchLatency = new LatencyHistogram();
+        this.tickTime = new LatencyHistogram();
+        this.requests = new AtomicLong(0);
+        this.accepted = new AtomicLong(0);
+    }
+
+    /**
+     * Runs the scenario described by the arguments.
+     *
+     * @param args The key=value arguments of the scenario
+     */
+    public static void main(String[] args) {
+        ScenarioHarness harness = new ScenarioHarness();
+
+        for (String arg : args) {
+            harness.configure(arg);
+        }
+
+        harness.run();
+    }
+
+    /**
+     * Sets a parameter of the scenario.
+     *
+     * @param argument The parameter as key=value
+     */
+    public void configure(String argument) {
+        int separator = argument.indexOf('=');
+
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected key=value but got " + argument);
+        }
+
+        String key = argument.substring(0, separator);
+        String value = argument.substring(separator + 1);
+
+        switch (key) {
+            case "users":
+                this.userCount = Integer.parseInt(value);
+                break;
+            case "vehicles":
+                this.vehicleCount = Integer.parseInt(value);
+                break;
+            case "days":
+                this.days = Integer.parseInt(value);
+                break;
+            case "ticksPerHour":
+                this.ticksPerHour = Integer.parseInt(value);
+                break;
+            case "peak":
+                this.peak = Double.parseDouble(value);
+                break;
+            case "seed":
+                this.seed = Long.parseLong(value);
+                break;
+            case "update":
+                this.updateMode = UpdateMode.valueOf(value.toUpperCase(Locale.ROOT));
+                break;
+            case "dispatch":
+                this.dispatchMode = DispatchMode.valueOf(value.toUpperCase(Locale.ROOT));
+                break;
+            case "report":
+                this.reportInterval = Integer.parseInt(value);
+                break;
+            case "threads":
+                this.threads = Integer.parseInt(value);
+                break;
+            case "shards":
+                this.shards = Integer.parseInt(value);
+                break;
+            case "agents":
+                this.agents = Integer.parseInt(value);
+                break;
+            case "checkpoint":
+                this.checkpoint = value;
+                break;
+            case "resume":
+                this.resume = value;
+                break;
+            case "journal":
+                this.journal = value;
+                break;
+            case "replay":
+                this.replay = value;
+                break;
+            case "cross":
+                this.crossRegionShare = Double.parseDouble(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario parameter " + key);
+        }
+    }
+
+    /**
+     * Builds the population, or restores it from a checkpoint, runs the scenario and prints
+     * its report.
+     */
+    public void run() {
+        if (this.resume != null) {
+            resume();
+            return;
+        }
+
+        ApplicationLibrary.setSeed(this.seed);
+
+        // build the population: users in parallel, vehicles on this thread since their
+        // first random route is drawn from the random stream of the simulation
+
+        long start = System.nanoTime();
+        List<IUser> users = createUsers();
+        long usersBuilt = System.nanoTime();
+        List<IVehicle> vehicles = createVehicles();
+        long vehiclesBuilt = System.nanoTime();
+
+        if (this.shards > 0) {
+            runSharded(users, vehicles, start, usersBuilt, vehiclesBuilt);
+            return;
+        }
+
+        TaxiCompany company = new TaxiCompany("Scenario", users, vehicles);
+        company.setDispatchMode(this.dispatchMode);
+        company.addObserver(event -> { });
+
+        ApplicationSimulator simulator = new ApplicationSimulator(company, users, vehicles) {
+            @Override
+            public void updateObserver(TaxiEvent event) {
+            }
+        };
+        simulator.setUpdateMode(this.updateMode);
+        simulator.setRiderSelection(RiderSelection.RANDOM);
+        long built = System.nanoTime();
+
+        System.gc();
+        long heapAfterBuild = usedHeap();
+
+        System.out.printf(Locale.ROOT, "Population of %,d users and %,d vehicles built in %.0f ms "
+                + "(users %.0f ms, vehicles %.0f ms, company and simulator %.0f ms)%n",
+                this.userCount, this.vehicleCount, millis(built - start), millis(usersBuilt - start),
+                millis(vehiclesBuilt - usersBuilt), millis(built - vehiclesBuilt));
+
+        if (this.replay != null) {
+            replayJournal(company, simulator, vehicles, heapAfterBuild);
+            return;
+        }
+
+        simulate(company, simulator, users, vehicles, heapAfterBuild);
+    }
+
+    /**
+     * Restores the simulation from the checkpoint of the scenario, runs the scenario on from
+     * the tick of the checkpoint and prints its report.
+     */
+    private void resume() {
+        if (this.shards > 0) {
+            throw new IllegalArgumentException("A checkpoint resumes a simulation without shards");
+        }
+
+        Path path = Paths.get(this.resume);
+        long start = System.nanoTime();
+        SimulationCheckpoint checkpoint;
+
+        try {
+            checkpoint = SimulationCheckpoint.restore(path, (company, users, vehicles) ->
+                    new ApplicationSimulator(company, users, vehicles) {
+                        @Override
+                        public void updateObserver(TaxiEvent event) {
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore the checkpoint " + path, e);
+        }
+
+        TaxiCompany company = checkpoint.getCompany();
+        ApplicationSimulator simulator = checkpoint.getSimulator();
+        long restored = System.nanoTime();
+
+        this.userCount = checkpoint.getUsers().size();
+        this.vehicleCount = checkpoint.getVehicles().size();
+
+        System.gc();
+        long heapAfterBuild = usedHeap();
+
+        System.out.printf(Locale.ROOT, "Population of %,d users and %,d vehicles restored from %s at tick %,d in %.0f ms%n",
+                this.userCount, this.vehicleCount, path, simulator.getTime(), millis(restored - start));
+
+        if (this.replay != null) {
+            replayJournal(company, simulator, checkpoint.getVehicles(), heapAfterBuild);
+            return;
+        }
+
+        simulate(company, simulator, checkpoint.getUsers(), checkpoint.getVehicles(), heapAfterBuild);
+    }
+
+    /**
+     * Runs the days of the scenario from the current tick of the simulation, prints the
+     * report and saves the checkpoint, if any.
+     *
+     * @param company        The taxi company
+     * @param simulator      The simulator
+     * @param users          The users
+     * @param vehicles       The vehicles
+     * @param heapAfterBuild The heap used by the population, in bytes
+     */
+    private void simulate(TaxiCompany company, ApplicationSimulator simulator, List<IUser> users,
+            List<IVehicle> vehicles, long heapAfterBuild) {
+        // run the days of the scenario
+
+        DemandProfile profile = DemandProfile.commuter(this.peak, this.ticksPerHour);
+        long ticks = profile.getTicksPerDay() * this.days;
+        long from = simulator.getTime();
+        RiderAgents riders = (this.agents > 0) ? new RiderAgents(company, users, profile, this.agents, this.dispatchLatency) : null;
+        ExecutorService requesters = (riders == null && this.threads > 0) ? Executors.newFixedThreadPool(this.threads) : null;
+        RideJournal journal = (this.journal != null) ? openJournal(simulator) : null;
+        long runStart = System.nanoTime();
+        long reportStart = runStart;
+
+        try {
+            for (long tick = from; tick < from + ticks; tick++) {
+                long tickStart = System.nanoTime();
+                int arrivals = (riders == null) ? profile.arrivals(tick) : 0;
+
+                if (riders != null) {
+                    riders.release(tick);
+                    simulator.update();
+                    riders.await();
+                    this.requests.set(riders.getRequests());
+                    this.accepted.set(riders.getAccepted());
+                } else if (requesters == null) {
+                    for (int i = 0; i < arrivals; i++) {
+                        long requestStart = System.nanoTime();
+                        simulator.requestService();
+                        this.dispatchLatency.record(System.nanoTime() - requestStart);
+                    }
+
+                    this.requests.addAndGet(arrivals);
+                    simulator.update();
+                } else {
+                    List<Future<?>> futures = submitRequests(requesters, company, arrivals);
+
+                    simulator.update();
+                    await(futures);
+                }
+
+                this.tickTime.record(System.nanoTime() - tickStart);
+
+                if (this.reportInterval > 0 && (tick + 1) % this.reportInterval == 0) {
+                    long now = System.nanoTime();
+
+                    System.out.printf(Locale.ROOT, "tick %,8d  hour %2d  rate %8.1f  requests %,12d  busy %,8d  pending %,8d  %8.1f ticks/s%n",
+                            tick + 1, (tick / this.ticksPerHour) % 24, profile.rate(tick), this.requests.get(),
+                            company.getTotalServices(), company.getPendingRequests(),
+                            this.reportInterval / (millis(now - reportStart) / 1000.0));
+
+                    reportStart = now;
+                }
+            }
+        } finally {
+            if (requesters != null) {
+                requesters.shutdown();
+            }
+
+            if (riders != null) {
+                riders.shutdown();
+            }
+        }
+
+        long runTime = System.nanoTime() - runStart;
+
+        if (journal != null) {
+            closeJournal(journal);
+        }
+
+        report(vehicles, ticks, runTime, heapAfterBuild);
+
+        if (this.checkpoint != null) {
+            saveCheckpoint(company, simulator);
+        }
+    }
+
+    /**
+     * Saves the simulation to the checkpoint file of the scenario, and reports how long it took.
+     *
+     * @param company   The taxi company
+     * @param simulator The simulator
+     */
+    private void saveCheckpoint(TaxiCompany company, ApplicationSimulator simulator) {
+        Path path = Paths.get(this.checkpoint);
+        long start = System.nanoTime();
+
+        try {
+            SimulationCheckpoint.save(path, company, simulator);
+
+            System.out.printf(Locale.ROOT, "Checkpoint        %s, %.1f MB in %.0f ms%n", path,
+                    Files.size(path) / 1048576.0, millis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot save the checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Opens the journal of the scenario and attaches it to the simulation.
+     *
+     * @param simulator The simulator
+     * @return The journal
+     */
+    private RideJournal openJournal(ApplicationSimulator simulator) {
+        if (this.threads > 0 || this.agents > 0) {
+            throw new IllegalArgumentException("A journal records the requests made between ticks, without threads or agents");
+        }
+
+        try {
+            return new RideJournal(Paths.get(this.journal), simulator);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the journal " + this.journal, e);
+        }
+    }
+
+    /**
+     * Closes the journal of the scenario, and reports its size.
+     *
+     * @param journal The journal
+     */
+    private void closeJournal(RideJournal journal) {
+        Path path = Paths.get(this.journal);
+
+        try {
+            journal.close();
+
+            System.out.printf(Locale.ROOT, "Journal           %s, %,d events, %.1f MB%n", path, journal.getEvents(),
+                    Files.size(path) / 1048576.0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the journal " + path, e);
+        }
+    }
+
+    /**
+     * Replays the journal of the scenario on the simulation, and prints its report.
+     *
+     * @param company        The taxi company
+     * @param simulator      The simulator
+     * @param vehicles       The vehicles
+     * @param heapAfterBuild The heap used by the population, in bytes
+     */
+    private void replayJournal(TaxiCompany company, ApplicationSimulator simulator, List<IVehicle> vehicles, long heapAfterBuild) {
+        Path path = Paths.get(this.replay);
+        long runStart = System.nanoTime();
+        long reportStart = runStart;
+
+        try (JournalReplay replay = new JournalReplay(path, company, simulator)) {
+            for (long tickStart = System.nanoTime(); replay.replayTick(); tickStart = System.nanoTime()) {
+                this.tickTime.record(System.nanoTime() - tickStart);
+                this.requests.set(replay.getRequests());
+
+                if (this.reportInterval > 0 && replay.getTicks() % this.reportInterval == 0) {
+                    long now = System.nanoTime();
+
+                    System.out.printf(Locale.ROOT, "tick %,8d  requests %,12d  busy %,8d  pending %,8d  %8.1f ticks/s%n",
+                            replay.getTicks(), this.requests.get(), company.getTotalServices(), company.getPendingRequests(),
+                            this.reportInterval / (millis(now - reportStart) / 1000.0));
+
+                    reportStart = now;
+                }
+            }
+
+            report(vehicles, replay.getTicks(), System.nanoTime() - runStart, heapAfterBuild);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay the journal " + path, e);
+        }
+    }
+
+    /**
+     * Runs the scenario on region shards, every shard on its own thread. Progress is
+     * reported between runs of the shards of reportInterval ticks each.
+     *
+     * @param users         The users
+     * @param vehicles      The vehicles
+     * @param start         The time the build started, in nanoseconds
+     * @param usersBuilt    The time the users were built, in nanoseconds
+     * @param vehiclesBuilt The time the vehicles were built, in nanoseconds
+     */
+    private void runSharded(List<IUser> users, List<IVehicle> vehicles, long start, long usersBuilt, long vehiclesBuilt) {
+        DemandProfile profile = DemandProfile.commuter(this.peak, this.ticksPerHour);
+        ShardedSimulation simulation = new ShardedSimulation(users, vehicles, this.shards, profile,
+                this.crossRegionShare, this.dispatchLatency, this.tickTime);
+        long built = System.nanoTime();
+
+        System.gc();
+        long heapAfterBuild = usedHeap();
+
+        System.out.printf(Locale.ROOT, "Population of %,d users and %,d vehicles built in %.0f ms "
+                + "(users %.0f ms, vehicles %.0f ms, %d shards %.0f ms)%n",
+                this.userCount, this.vehicleCount, millis(built - start), millis(usersBuilt - start),
+                millis(vehiclesBuilt - usersBuilt), this.shards, millis(built - vehiclesBuilt));
+
+        for (RegionShard shard : simulation.getShards()) {
+            System.out.printf(Locale.ROOT, "%s  region %s  vehicles %,d%n", shard.getCompany().getName(),
+                    shard.getRegion(), shard.getVehicles().size());
+        }
+
+        // run the days of the scenario, a report interval at a time
+
+        long ticks = profile.getTicksPerDay() * this.days;
+        long chunk = (this.reportInterval > 0) ? this.reportInterval : ticks;
+        long runStart = System.nanoTime();
+
+        for (long tick = 0; tick < ticks; tick += chunk) {
+            long chunkStart = System.nanoTime();
+            long length = Math.min(chunk, ticks - tick);
+
+            simulation.run(tick, length);
+
+            long chunkTime = System.nanoTime() - chunkStart;
+
+            if (this.reportInterval > 0) {
+                long requests = 0;
+                long handoffs = 0;
+
+                for (RegionShard shard : simulation.getShards()) {
+                    requests += shard.getRequests();
+                    handoffs += shard.getReceived();
+                }
+
+                System.out.printf(Locale.ROOT, "tick %,8d  hour %2d  rate %8.1f  requests %,12d  handed over %,10d  %8.1f ticks/s%n",
+                        tick + length, ((tick + length - 1) / this.ticksPerHour) % 24, profile.rate(tick + length - 1),
+                        requests, handoffs, length / (millis(chunkTime) / 1000.0));
+            }
+        }
+
+        long runTime = System.nanoTime() - runStart;
+
+        for (RegionShard shard : simulation.getShards()) {
+            this.requests.addAndGet(shard.getRequests());
+        }
+
+        report(vehicles, ticks, runTime, heapAfterBuild);
+    }
+
+    /**
+     * Creates the users in parallel. Every user draws from a random stream seeded with the
+     * seed of the scenario and its ID, so the users do not depend on the threads building them.
+     *
+     * @return The users, in order of ID
+     */
+    private List<IUser> createUsers() {
+        long seed = this.seed;
+
+        return IntStream.rangeClosed(1, this.userCount).parallel()
+                .mapToObj(id -> createUser(id, new SplittableRandom(seed * 31 + id)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates a user with random details.
+     *
+     * @param id     The ID of the user
+     * @param random The random stream of the user
+     * @return The user
+     */
+    private static IUser createUser(int id, SplittableRandom random) {
+        char gender = random.nextBoolean() ? 'M' : 'F';
+        LocalDate birthDate = LocalDate.of(1950 + random.nextInt(60), 1 + random.nextInt(12), 1 + random.nextInt(28));
+
+        return new User(id, FIRST_NAMES.get(random.nextInt(FIRST_NAMES.size())),
+                LAST_NAMES.get(random.nextInt(LAST_NAMES.size())), gender, birthDate);
+    }
+
+    /**
+     * Creates the vehicles with their drivers in the table of the fleet, every third vehicle
+     * a shuttle.
+     *
+     * @return The vehicles
+     */
+    private List<IVehicle> createVehicles() {
+        List<IVehicle> vehicles = new ArrayList<>(this.vehicleCount);
+        FleetTable fleet = new FleetTable(this.vehicleCount);
+
+        for (int id = 1; id <= this.vehicleCount; id++) {
+            char gender = ApplicationLibrary.rand(2) == 0 ? 'M' : 'F';
+            IDriver driver = new Driver(id, FIRST_NAMES.get(ApplicationLibrary.rand(FIRST_NAMES.size())),
+                    LAST_NAMES.get(ApplicationLibrary.rand(LAST_NAMES.size())), gender,
+                    LocalDate.of(1960 + ApplicationLibrary.rand(40), 1 + ApplicationLibrary.rand(12), 1 + ApplicationLibrary.rand(28)), null);
+            ILocation location = ApplicationLibrary.randomLocation();
+
+            vehicles.add((id % 3 == 0) ? new Shuttle(id, location, driver, fleet, id - 1)
+                    : new Taxi(id, location, driver, fleet, id - 1));
+        }
+
+        return vehicles;
+    }
+
+    /**
+     * Splits the requests of a tick among the requesting threads. Every request is made for
+     * a random user, and is rejected right away if the user already has a service.
+     *
+     * @param requesters The requesting threads
+     * @param company    The taxi company
+     * @param arrivals   The number of requests of the tick
+     * @return The futures of the tasks of the threads
+     */
+    private List<Future<?>> submitRequests(ExecutorService requesters, ITaxiCompany company, int arrivals) {
+        List<Future<?>> futures = new ArrayList<>(this.threads);
+
+        for (int thread = 0; thread < this.threads; thread++) {
+            int share = arrivals / this.threads + ((thread < arrivals % this.threads) ? 1 : 0);
+
+            futures.add(requesters.submit(() -> {
+                for (int i = 0; i < share; i++) {
+                    int user = 1 + ApplicationLibrary.rand(this.userCount);
+                    RideMode rideMode = ApplicationLibrary.rand(2) == 0 ? RideMode.STANDARD : RideMode.SILENT;
+                    long requestStart = System.nanoTime();
+
+                    if (company.provideService(user, ServiceTypeRegistry.STANDARD, rideMode)) {
+                        this.accepted.incrementAndGet();
+                    }
+
+                    this.dispatchLatency.record(System.nanoTime() - requestStart);
+                    this.requests.incrementAndGet();
+                }
+            }));
+        }
+
+        return futures;
+    }
+
+    /**
+     * Waits for the requesting threads to finish the requests of a tick.
+     *
+     * @param futures The futures of the tasks of the threads
+     */
+    private static void await(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the requests", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A request failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Prints the report of the scenario.
+     *
+     * @param vehicles       The vehicles
+     * @param ticks          The number of ticks simulated
+     * @param runTime        The time the ticks took, in nanoseconds
+     * @param heapAfterBuild The heap used by the population, in bytes
+     */
+    private void report(List<IVehicle> vehicles, long ticks, long runTime, long heapAfterBuild) {
+        long services = 0;
+        long distance = 0;
+        double billing = 0;
+        long reviews = 0;
+        double stars = 0;
+
+        for (IVehicle vehicle : vehicles) {
+            services += vehicle.getStatistics().getServices();
+            distance += vehicle.getStatistics().getDistance();
+            billing += vehicle.getStatistics().getBilling();
+            reviews += vehicle.getStatistics().getReviews();
+
+            if (vehicle.getStatistics().getReviews() > 0) {
+                stars += vehicle.getStatistics().getStars() * vehicle.getStatistics().getReviews();
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%nScenario report%n%n");
+        System.out.printf(Locale.ROOT, "Ticks             %,d in %.1f s, %.1f ticks/s%n", ticks, millis(runTime) / 1000.0,
+                ticks / (millis(runTime) / 1000.0));
+        System.out.printf(Locale.ROOT, "Requests          %,d (%s)%n", this.requests.get(),
+                (this.agents > 0) ? String.format(Locale.ROOT, "%,d accepted from %,d agents on %d threads", this.accepted.get(), this.userCount, this.agents)
+                        : (this.shards > 0) ? String.format(Locale.ROOT, "%d shards, %.0f%% across regions", this.shards, this.crossRegionShare * 100)
+                        : (this.threads > 0) ? String.format(Locale.ROOT, "%,d accepted from %d threads", this.accepted.get(), this.threads)
+                        : (this.replay != null) ? "replayed from " + this.replay
+                        : "made between ticks");
+        System.out.printf(Locale.ROOT, "Services          %,d completed, %,d km, %,.0f eur, %,d reviews of %.3f stars%n",
+                services, distance, billing, reviews, (reviews > 0) ? stars / reviews : 0.0);
+        System.out.printf(Locale.ROOT, "Dispatch latency  p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n",
+                micros(this.dispatchLatency.getPercentile(50)), micros(this.dispatchLatency.getPercentile(90)),
+                micros(this.dispatchLatency.getPercentile(99)), micros(this.dispatchLatency.getPercentile(99.9)),
+                micros(this.dispatchLatency.getMax()));
+        System.out.printf(Locale.ROOT, "Tick time         p50 %s  p99 %s  max %s%n", micros(this.tickTime.getPercentile(50)),
+                micros(this.tickTime.getPercentile(99)), micros(this.tickTime.getMax()));
+        System.out.printf(Locale.ROOT, "Heap              %.1f MB after build, %.1f MB now, %.1f MB peak, %.1f MB max%n",
+                heapAfterBuild / 1048576.0, usedHeap() / 1048576.0, peakHeap() / 1048576.0,
+                Runtime.getRuntime().maxMemory() / 1048576.0);
+    }
+
+    /**
+     * Gets the heap in use.
+     *
+     * @return The heap in use, in bytes
+     */
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Gets the peak heap usage, adding up the peaks of the heap memory pools.
+     *
+     * @return The peak heap usage, in bytes
+     */
+    private static long peakHeap() {
+        long peak = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos The time in nanoseconds
+     * @return The time in milliseconds
+     */
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Formats a time in nanoseconds as microseconds.
+     *
+     * @param nanos The time in nanoseconds
+     * @return The formatted time
+     */
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f us", nanos / 1000.0);
+    }
+}
@@ -81,14 +81,14 @@ public class Service implements IService {
     }
     
     /**
-     * Calculates the Manhattan distance between the pickup and dropoff locations.
-     * This is computed as the sum of the absolute differences between the x and y coordinates.
+     * Calculates the distance between the pickup and dropoff locations with the
+     * distance oracle of the application, the Manhattan distance on the default grid.
      *
-     * @return the Manhattan distance between pickup and dropoff locations
+     * @return the distance between pickup and dropoff locations
      */
     @Override
     public int calculateDistance() {
-        return Math.abs(this.pickup.getX() - this.dropoff.getX()) + Math.abs(this.pickup.getY() - this.dropoff.getY());
+        return ApplicationLibrary.distance(this.pickup, this.dropoff);
     }
     
     /**
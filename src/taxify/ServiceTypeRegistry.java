@@ -0,0 +1,45 @@
+package taxify;
+
+import java.util.List;
+
+/**
+ * ServiceTypeRegistry class holds the single shared instance of every service type
+ * offered by the taxi company. Service types carry no state, so requests reuse these
+ * instances instead of creating a new service type object every time.
+ */
+public class ServiceTypeRegistry {
+
+    /** The standard service, available to every user and driver. */
+    public static final IServiceType STANDARD = new StandardServiceType();
+
+    /** The pink service, for female and underage users with female drivers. */
+    public static final IServiceType PINK = new PinkServiceType();
+
+    /** All the service types offered by the company. */
+    private static final List<IServiceType> SERVICE_TYPES = List.of(STANDARD, PINK);
+
+    /**
+     * Gets all the service types offered by the company.
+     *
+     * @return The list of service types
+     */
+    public static List<IServiceType> getServiceTypes() {
+        return SERVICE_TYPES;
+    }
+
+    /**
+     * Finds the position of a service type in the registry, such as to write it to a file.
+     *
+     * @param serviceType The service type
+     * @return The position of the service type, or -1 if it is not in the registry
+     */
+    public static int indexOf(IServiceType serviceType) {
+        for (int i = 0; i < SERVICE_TYPES.size(); i++) {
+            if (SERVICE_TYPES.get(i).getClass() == serviceType.getClass()) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
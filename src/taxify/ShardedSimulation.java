@@ -0,0 +1,151 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * ShardedSimulation class splits the map into regions and simulates every region as a
+ * RegionShard on its own thread. The vehicles join the shard of the region they start in
+ * and stay with it, cruising back into their region whenever they are free; the users are
+ * spread over the shards. The shards only meet at tick boundaries, where a barrier makes the
+ * requests handed over during a tick visible to the shards that serve them in the next tick.
+ * The demand of the city is split evenly between the shards. Without requests crossing
+ * regions, a run is reproducible from its seed, since every shard draws from its own stream.
+ */
+public class ShardedSimulation {
+    private List<RegionShard> shards;
+    private LatencyHistogram tickTime;
+    private long tickStart;
+
+    /**
+     * Constructs a sharded simulation.
+     *
+     * @param users            The users of the city
+     * @param vehicles         The vehicles of the city
+     * @param regions          The number of regions, split as vertical strips of the map
+     * @param profile          The demand of the whole city
+     * @param crossRegionShare The share of requests that start in another region than
+     *                         the region of the user
+     * @param latency          The histogram the dispatch latencies are recorded in
+     * @param tickTime         The histogram the time of every tick is recorded in, from the
+     *                         end of the previous tick of all the shards to the end of the tick
+     *                         of all the shards
+     */
+    public ShardedSimulation(List<IUser> users, List<IVehicle> vehicles, int regions, DemandProfile profile,
+            double crossRegionShare, LatencyHistogram latency, LatencyHistogram tickTime) {
+        List<Region> strips = Region.strips(regions);
+        List<List<IUser>> regionUsers = new ArrayList<>(regions);
+        List<List<IVehicle>> regionVehicles = new ArrayList<>(regions);
+
+        for (int i = 0; i < regions; i++) {
+            regionUsers.add(new ArrayList<>());
+            regionVehicles.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < users.size(); i++) {
+            regionUsers.get(i % regions).add(users.get(i));
+        }
+
+        for (IVehicle vehicle : vehicles) {
+            for (int i = 0; i < regions; i++) {
+                if (strips.get(i).contains(vehicle.getLocation())) {
+                    regionVehicles.get(i).add(vehicle);
+                    break;
+                }
+            }
+        }
+
+        // the streams are split in the order of the shards, whatever the order their threads start in
+
+        DemandProfile regionProfile = profile.scale(1.0 / regions);
+        this.shards = new ArrayList<>(regions);
+        this.tickTime = tickTime;
+        this.tickStart = 0;
+
+        for (int i = 0; i < regions; i++) {
+            this.shards.add(new RegionShard(i, strips.get(i), regionUsers.get(i), regionVehicles.get(i), regionProfile,
+                    crossRegionShare, ApplicationLibrary.getRandom().split(), latency));
+        }
+
+        for (RegionShard shard : this.shards) {
+            shard.connect(this.shards);
+        }
+    }
+
+    /**
+     * Gets the shards of the simulation.
+     *
+     * @return The shards, in order of region
+     */
+    public List<RegionShard> getShards() {
+        return this.shards;
+    }
+
+    /**
+     * Simulates a number of ticks, every shard on its own thread, and waits for all of them.
+     *
+     * @param from  The first tick, counted from midnight of the first day
+     * @param ticks The number of ticks to simulate
+     */
+    public void run(long from, long ticks) {
+        // the last shard to end a tick records its time, before any shard starts the next tick
+
+        CyclicBarrier barrier = new CyclicBarrier(this.shards.size(), this::tickEnded);
+        List<Thread> threads = new ArrayList<>(this.shards.size());
+        List<Throwable> failures = new ArrayList<>();
+
+        for (RegionShard shard : this.shards) {
+            Thread thread = new Thread(() -> {
+                shard.attach();
+
+                try {
+                    for (long tick = from; tick < from + ticks; tick++) {
+                        shard.step(tick);
+                        barrier.await();
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    // another shard has failed, and its failure is reported
+                } catch (RuntimeException | Error e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+
+                    barrier.reset();
+                }
+            }, shard.getCompany().getName());
+
+            threads.add(thread);
+        }
+
+        this.tickStart = System.nanoTime();
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("A shard has failed", failures.get(0));
+        }
+    }
+
+    /**
+     * Records the time of the tick all the shards have just ended.
+     */
+    private void tickEnded() {
+        long now = System.nanoTime();
+
+        this.tickTime.record(now - this.tickStart);
+        this.tickStart = now;
+    }
+}
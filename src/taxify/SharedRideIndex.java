@@ -0,0 +1,212 @@
+package taxify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * SharedRideIndex class is a spatial index of the vehicles a rider can share a ride with:
+ * taxis in service with a spare seat. The map is split into square cells, and the vehicles
+ * of every cell are stored next to each other with their locations, so the vehicles near a
+ * rider are found looking only at the cells within a bounded radius. Vehicles in service
+ * move every tick, so the index is rebuilt from scratch with a counting sort of the
+ * vehicles by cell, once per tick at most, instead of being updated on every move. The
+ * vehicles found are checked again, since their seats may have been taken since.
+ */
+public class SharedRideIndex {
+    private int cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellStarts;
+    private IVehicle[] vehicles;
+    private int[] x;
+    private int[] y;
+    private int size;
+
+    /**
+     * Constructs an empty index covering a map of the given size.
+     *
+     * @param width    The width of the map
+     * @param height   The height of the map
+     * @param cellSize The width and height of every cell of the index
+     */
+    public SharedRideIndex(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cellStarts = new int[this.columns * this.rows + 1];
+        this.vehicles = new IVehicle[0];
+        this.x = new int[0];
+        this.y = new int[0];
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of vehicles in the index.
+     *
+     * @return The number of indexed vehicles
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if a vehicle has a seat for one more rider: it is a taxi in service and has
+     * fewer riders on board than seats.
+     *
+     * @param vehicle The vehicle
+     * @return true if a rider can share the ride of the vehicle, false otherwise
+     */
+    public static boolean hasSpareSeat(IVehicle vehicle) {
+        if (!(vehicle instanceof Taxi) || vehicle.getStatus() != VehicleStatus.SERVICE) {
+            return false;
+        }
+
+        IBaseService service = vehicle.getService();
+
+        if (service instanceof ISharedService) {
+            return ((ISharedService) service).getUsers().size() < vehicle.getCapacity();
+        }
+
+        return service != null && vehicle.getCapacity() > 1;
+    }
+
+    /**
+     * Rebuilds the index with the vehicles of a fleet that have a spare seat.
+     *
+     * @param fleet   The vehicles of the fleet
+     * @param locator The function giving the current location of a vehicle
+     */
+    public void rebuild(List<IVehicle> fleet, Function<IVehicle, ILocation> locator) {
+        List<IVehicle> candidates = new ArrayList<>();
+
+        for (IVehicle vehicle : fleet) {
+            if (hasSpareSeat(vehicle)) {
+                candidates.add(vehicle);
+            }
+        }
+
+        int count = candidates.size();
+        int[] cells = new int[count];
+
+        if (this.vehicles.length < count) {
+            this.vehicles = new IVehicle[count];
+            this.x = new int[count];
+            this.y = new int[count];
+        }
+
+        Arrays.fill(this.cellStarts, 0);
+
+        // count the vehicles of every cell, then place them after the vehicles of the previous cells
+
+        for (int i = 0; i < count; i++) {
+            ILocation location = locator.apply(candidates.get(i));
+
+            cells[i] = cellOf(location);
+            this.x[i] = location.getX();
+            this.y[i] = location.getY();
+            this.cellStarts[cells[i] + 1]++;
+        }
+
+        for (int cell = 0; cell < this.columns * this.rows; cell++) {
+            this.cellStarts[cell + 1] += this.cellStarts[cell];
+        }
+
+        int[] next = this.cellStarts.clone();
+        int[] x = this.x.clone();
+        int[] y = this.y.clone();
+
+        for (int i = 0; i < count; i++) {
+            int position = next[cells[i]]++;
+
+            this.vehicles[position] = candidates.get(i);
+            this.x[position] = x[i];
+            this.y[position] = y[i];
+        }
+
+        this.size = count;
+    }
+
+    /**
+     * Finds the vehicles within a distance of a location, looking only at the cells the
+     * distance can reach. The distance oracle must never return less than the Manhattan distance.
+     *
+     * @param location The location to search from
+     * @param radius   The maximum distance from the vehicles to the location
+     * @param filter   The condition the vehicles must meet
+     * @return The vehicles within the distance meeting the condition, nearest first
+     */
+    public List<IVehicle> findWithin(ILocation location, int radius, Predicate<IVehicle> filter) {
+        List<IVehicle> found = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+
+        if (this.size == 0) {
+            return found;
+        }
+
+        int fromColumn = clamp((location.getX() - radius) / this.cellSize, this.columns);
+        int toColumn = clamp((location.getX() + radius) / this.cellSize, this.columns);
+        int fromRow = clamp((location.getY() - radius) / this.cellSize, this.rows);
+        int toRow = clamp((location.getY() + radius) / this.cellSize, this.rows);
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * this.columns + column;
+
+                for (int i = this.cellStarts[cell]; i < this.cellStarts[cell + 1]; i++) {
+                    if (Math.abs(this.x[i] - location.getX()) + Math.abs(this.y[i] - location.getY()) > radius) {
+                        continue;
+                    }
+
+                    // vehicles drive to the location, which matters on one-way streets
+
+                    int distance = ApplicationLibrary.distance(Location.of(this.x[i], this.y[i]), location);
+
+                    if (distance > radius || !filter.test(this.vehicles[i])) {
+                        continue;
+                    }
+
+                    // insert the vehicle keeping the list sorted by distance
+
+                    int position = found.size();
+
+                    while (position > 0 && distances.get(position - 1) > distance) {
+                        position--;
+                    }
+
+                    found.add(position, this.vehicles[i]);
+                    distances.add(position, distance);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Computes the index of the cell a location belongs to. Locations outside the map
+     * are assigned to the nearest border cell.
+     *
+     * @param location The location
+     * @return The index of the cell
+     */
+    private int cellOf(ILocation location) {
+        int column = clamp(location.getX() / this.cellSize, this.columns);
+        int row = clamp(location.getY() / this.cellSize, this.rows);
+
+        return row * this.columns + column;
+    }
+
+    /**
+     * Limits a cell coordinate to the range [0, max - 1].
+     *
+     * @param value The cell coordinate
+     * @param max   The number of cells in that direction
+     * @return The limited coordinate
+     */
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max - 1));
+    }
+}
@@ -6,13 +6,23 @@ import java.util.List;
 /**
  * SharedService class implements the ISharedService interface and represents a shared service
  * in the taxi company system. It adapts an existing service to support multiple users and dropoff locations.
+ * The riders still on board are kept in the order of their drop-off stops, and the stops are
+ * reordered by the DropoffSequencer every time a rider joins, so that every rider rides at most
+ * MAXIMUM_DETOUR more than their direct distance.
  */
 public class SharedService implements ISharedService {
+    /** The fraction of their direct distance a rider accepts to ride on top of it. */
+    public static final double MAXIMUM_DETOUR = 0.5;
+
     private IService originalService;
     private ArrayList<IUser> users;
     private ILocation pickup;
     private ArrayList<ILocation> dropoffLocations;
+    private ArrayList<Integer> boardings;
+    private ArrayList<Integer> limits;
     private ArrayList<Integer> stars;
+    private ILocation lastStop;
+    private int completedDistance;
     private RideMode rideMode;
 
     /**
@@ -23,17 +33,96 @@ public class SharedService implements ISharedService {
     public SharedService(IService service) {
         this.users = new ArrayList<>();
         this.dropoffLocations = new ArrayList<>();
+        this.boardings = new ArrayList<>();
+        this.limits = new ArrayList<>();
         this.stars = new ArrayList<>();
 
-        this.users.add(service.getUser());
         this.pickup = service.getPickupLocation();
+        this.lastStop = this.pickup;
+        this.completedDistance = 0;
+        this.rideMode = service.getRideMode();
+
+        this.users.add(service.getUser());
         this.dropoffLocations.add(service.getDropoffLocation());
-        this.stars.add(service.getStars());
+        this.boardings.add(0);
+        this.limits.add(limit(this.pickup, service.getDropoffLocation()));
+
+        this.originalService = service;
+    }
+
+    /**
+     * Constructs a shared service in a given state, such as a shared service restored from
+     * a checkpoint. The riders and their stops are given in drop-off order.
+     *
+     * @param service           the service the shared service was created from
+     * @param users             the users on board
+     * @param dropoffLocations  the drop-off locations of the users
+     * @param boardings         the distance driven when every user boarded
+     * @param limits            the distance every user accepts to ride
+     * @param stars             the ratings given by the users already dropped off
+     * @param lastStop          the location of the last stop
+     * @param completedDistance the distance driven up to the last stop
+     */
+    public SharedService(IService service, List<IUser> users, List<ILocation> dropoffLocations, List<Integer> boardings,
+            List<Integer> limits, List<Integer> stars, ILocation lastStop, int completedDistance) {
+        this.users = new ArrayList<>(users);
+        this.dropoffLocations = new ArrayList<>(dropoffLocations);
+        this.boardings = new ArrayList<>(boardings);
+        this.limits = new ArrayList<>(limits);
+        this.stars = new ArrayList<>(stars);
+
+        this.pickup = service.getPickupLocation();
+        this.lastStop = lastStop;
+        this.completedDistance = completedDistance;
         this.rideMode = service.getRideMode();
 
         this.originalService = service;
     }
 
+    /**
+     * Returns the service the shared service was created from.
+     *
+     * @return the original service
+     */
+    public IService getOriginalService() {
+        return this.originalService;
+    }
+
+    /**
+     * Returns the distance driven when every user on board boarded, in drop-off order.
+     *
+     * @return the boarding distances
+     */
+    public List<Integer> getBoardings() {
+        return this.boardings;
+    }
+
+    /**
+     * Returns the distance every user on board accepts to ride, in drop-off order.
+     *
+     * @return the distance limits
+     */
+    public List<Integer> getLimits() {
+        return this.limits;
+    }
+
+    /**
+     * Returns the location of the last stop, where the route was last changed.
+     *
+     * @return the last stop
+     */
+    public ILocation getLastStop() {
+        return this.lastStop;
+    }
+
+    /**
+     * Returns the distance driven up to the last stop.
+     *
+     * @return the completed distance
+     */
+    public int getCompletedDistance() {
+        return this.completedDistance;
+    }
 
     /**
      * Returns the original user of the shared service.
@@ -46,7 +135,7 @@ public class SharedService implements ISharedService {
     }
 
     /**
-     * Returns the list of users in the shared service.
+     * Returns the list of users on board, in the order they will be dropped off.
      *
      * @return the list of users
      */
@@ -56,25 +145,88 @@ public class SharedService implements ISharedService {
     }
 
     /**
-     * Adds a user to the shared service with the specified dropoff location.
+     * Adds a user boarding at the current location of the vehicle, and reorders the drop-off
+     * stops from that location. The user is not added if no order of the stops keeps every
+     * rider within their detour limit.
      *
      * @param user the user to be added
      * @param dropoffLocation the dropoff location of the user
+     * @param location the current location of the vehicle
+     * @return true if the user was added, false otherwise
      */
     @Override
-    public void addUser(IUser user, ILocation dropoffLocation) {
+    public boolean addUser(IUser user, ILocation dropoffLocation, ILocation location) {
+        int stops = this.dropoffLocations.size() + 1;
+        int fromLastStop = ApplicationLibrary.distance(this.lastStop, location);
+
+        if (fromLastStop == IDistanceOracle.UNREACHABLE) {
+            return false;
+        }
+
+        // the vehicle has driven the shortest route from its last stop, so the distance
+        // driven so far is known; budgets are what is left of every rider's limit
+
+        int driven = this.completedDistance + fromLastStop;
+        int limit = limit(location, dropoffLocation);
+        ILocation[] locations = new ILocation[stops + 1];
+        int[] budgets = new int[stops + 1];
+        int[] order = new int[stops - 1];
+
+        locations[0] = location;
+
+        for (int i = 0; i < stops - 1; i++) {
+            locations[i + 1] = this.dropoffLocations.get(i);
+            budgets[i + 1] = this.boardings.get(i) + this.limits.get(i) - driven;
+            order[i] = i + 1;
+        }
+
+        locations[stops] = dropoffLocation;
+        budgets[stops] = limit;
+
+        int[][] distances = new int[stops + 1][stops + 1];
+
+        for (int i = 0; i <= stops; i++) {
+            for (int j = 0; j <= stops; j++) {
+                distances[i][j] = ApplicationLibrary.distance(locations[i], locations[j]);
+            }
+        }
+
+        int[] sequence = DropoffSequencer.sequence(distances, budgets, order, stops);
+
+        if (sequence == null) {
+            return false;
+        }
+
+        // the vehicle turns at its current location, which becomes the last stop
+
+        this.completedDistance = driven;
+        this.lastStop = location;
+
         this.users.add(user);
         this.dropoffLocations.add(dropoffLocation);
-        this.stars.add(0);
+        this.boardings.add(driven);
+        this.limits.add(limit);
+
+        reorder(sequence);
+
+        return true;
     }
 
     /**
-     * Removes first user from the shared service.
-     *
+     * Removes the first user from the shared service, when the vehicle arrives at their
+     * drop-off location.
      */
     @Override
     public void removeUser() {
+        ILocation stop = this.dropoffLocations.get(0);
+
+        this.completedDistance += ApplicationLibrary.distance(this.lastStop, stop);
+        this.lastStop = stop;
+
         this.users.remove(0);
+        this.dropoffLocations.remove(0);
+        this.boardings.remove(0);
+        this.limits.remove(0);
     }
 
     /**
@@ -88,13 +240,14 @@ public class SharedService implements ISharedService {
     }
 
     /**
-     * Returns the original dropoff location of the shared service.
+     * Returns the next dropoff location of the shared service, or the last one once
+     * every user has been dropped off.
      *
-     * @return the original dropoff location
+     * @return the next dropoff location
      */
     @Override
     public ILocation getDropoffLocation() {
-        return this.dropoffLocations.get(0);
+        return this.dropoffLocations.isEmpty() ? this.lastStop : this.dropoffLocations.get(0);
     }
 
     /**
@@ -108,25 +261,7 @@ public class SharedService implements ISharedService {
     }
 
     /**
-     * Adds a dropoff location to the shared service.
-     *
-     * @param location the dropoff location to be added
-     */
-    @Override
-    public void addDropoffLocation(ILocation location) {
-        this.dropoffLocations.add(location);
-    }
-
-    /**
-     * Removes the first dropoff location from the shared service.
-     */
-    @Override
-    public void removeDropoffLocation() {
-        this.dropoffLocations.remove(0);
-    }
-
-    /**
-     * Returns the list of stars for the users in the shared service.
+     * Returns the list of stars given by the users of the shared service.
      *
      * @return the list of stars
      */
@@ -136,31 +271,31 @@ public class SharedService implements ISharedService {
     }
 
     /**
-     * Sets the stars for a user in the shared service.
+     * Records the stars given by a user of the shared service.
      * 
-     * @param user
-     * @param stars
+     * @param user the user rating the service
+     * @param stars the stars given by the user
      */
     @Override
     public void setStars(IUser user, int stars) {
-        int index = this.users.indexOf(user);
-        if (index != -1) {
-            this.stars.set(index, stars);
-        }
+        this.stars.add(stars);
     }
 
     /**
-     * Calculates the Manhattan distance between the pickup and dropoff locations.
-     * This is computed as the sum of the absolute differences between the x and y coordinates.
+     * Calculates the distance driven by the shared service, from the pickup location through
+     * the stops already made and the drop-off stops still pending, with the distance oracle
+     * of the application.
      *
-     * @return the Manhattan distance between pickup and dropoff locations
+     * @return the distance of the shared service
      */
     @Override
     public int calculateDistance() {
-        int totalDistance = Math.abs(this.pickup.getX() - this.originalService.getDropoffLocation().getX()) + Math.abs(this.pickup.getY() - this.originalService.getDropoffLocation().getY());
-        for (int i = 0; i < this.dropoffLocations.size() - 1; i++) {
-            // Calculate distance between last dropoff and the next dropoff, uses indexing
-            totalDistance += Math.abs(this.dropoffLocations.get(i).getX() - this.dropoffLocations.get(i + 1).getX()) + Math.abs(this.dropoffLocations.get(i).getY() - this.dropoffLocations.get(i + 1).getY());
+        int totalDistance = this.completedDistance;
+        ILocation previous = this.lastStop;
+
+        for (ILocation dropoff : this.dropoffLocations) {
+            totalDistance += ApplicationLibrary.distance(previous, dropoff);
+            previous = dropoff;
         }
 
         return totalDistance;
@@ -185,12 +320,11 @@ public class SharedService implements ISharedService {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(this.pickup).append(" to ");
-        for (ILocation dropoff : this.dropoffLocations) {
-            if (dropoff != this.dropoffLocations.get(this.dropoffLocations.size() - 1)) {
-                sb.append(dropoff).append(", ");
-            } else {
-                sb.append("and ").append(dropoff);
-            }    
+        for (int i = 0; i < this.dropoffLocations.size(); i++) {
+            if (i > 0) {
+                sb.append(i < this.dropoffLocations.size() - 1 ? ", " : " and ");
+            }
+            sb.append(this.dropoffLocations.get(i));
         }
         return sb.toString();
     }
@@ -205,4 +339,48 @@ public class SharedService implements ISharedService {
         return 0.3;
     }
 
+    /**
+     * Gets the ride mode of the shared service, the ride mode of the original service.
+     *
+     * @return the ride mode
+     */
+    @Override
+    public RideMode getRideMode() {
+        return this.rideMode;
+    }
+
+    /**
+     * Computes the longest distance a rider accepts to ride between two locations.
+     *
+     * @param from the location the rider boards at
+     * @param to the drop-off location of the rider
+     * @return the ride limit of the rider
+     */
+    private static int limit(ILocation from, ILocation to) {
+        return (int) Math.ceil(ApplicationLibrary.distance(from, to) * (1 + MAXIMUM_DETOUR));
+    }
+
+    /**
+     * Reorders the riders on board following a new order of their drop-off stops.
+     *
+     * @param sequence the new order, as positions in the current lists counted from 1
+     */
+    private void reorder(int[] sequence) {
+        ArrayList<IUser> users = new ArrayList<>(sequence.length);
+        ArrayList<ILocation> dropoffLocations = new ArrayList<>(sequence.length);
+        ArrayList<Integer> boardings = new ArrayList<>(sequence.length);
+        ArrayList<Integer> limits = new ArrayList<>(sequence.length);
+
+        for (int stop : sequence) {
+            users.add(this.users.get(stop - 1));
+            dropoffLocations.add(this.dropoffLocations.get(stop - 1));
+            boardings.add(this.boardings.get(stop - 1));
+            limits.add(this.limits.get(stop - 1));
+        }
+
+        this.users = users;
+        this.dropoffLocations = dropoffLocations;
+        this.boardings = boardings;
+        this.limits = limits;
+    }
 }
@@ -7,6 +7,7 @@ package taxify;
  */
 public class Shuttle extends Vehicle {
     private static final double RATE = 1.5;
+    private static final int CAPACITY = 8;
 
     /**
      * Constructs a new Shuttle with the specified ID, location, and driver.
@@ -19,6 +20,20 @@ public class Shuttle extends Vehicle {
         super(id, location, driver);
     }
 
+    /**
+     * Constructs a new Shuttle with the specified ID, location, and driver, in a slot of the
+     * table of its fleet.
+     *
+     * @param id The unique identifier for the shuttle
+     * @param location The initial location of the shuttle
+     * @param driver The driver assigned to this shuttle
+     * @param fleet The fleet table
+     * @param slot The slot of the shuttle in the table
+     */
+    public Shuttle(int id, ILocation location, IDriver driver, FleetTable fleet, int slot) {
+        super(id, location, driver, fleet, slot);
+    }
+
     /**
      * Calculates the cost of the ride using the shuttle's rate multiplier.
      *
@@ -28,4 +43,14 @@ public class Shuttle extends Vehicle {
     public double calculateCost() {
         return super.calculateCost() * RATE;
     }
+
+    /**
+     * Gets the number of riders the shuttle can carry at once.
+     *
+     * @return The number of seats for riders
+     */
+    @Override
+    public int getCapacity() {
+        return CAPACITY;
+    }
 }
\ No newline at end of file
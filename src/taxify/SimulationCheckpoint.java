@@ -0,0 +1,538 @@
+package taxify;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SimulationCheckpoint class saves a running simulation to a compact binary file and
+ * restores it, so a long simulation can be paused and resumed. A checkpoint holds the
+ * settings and the tick of the simulation, the users and their service flags, the fleet
+ * table column by column, the vehicles with their drivers, regions and active services,
+ * the requests waiting for a vehicle, and the queue of idle users. Services and requests
+ * refer to users by their ID, and repeated names are written once.
+ *
+ * A checkpoint is taken between two ticks, while no thread changes the simulation. The
+ * random streams of the simulation cannot be saved, so the restored simulation draws from
+ * new streams, seeded from the seed and the tick of the checkpoint: restoring the same
+ * checkpoint twice gives the same run, but not the run the checkpoint was taken from. The
+ * restored simulation keeps the seed of the run, so it is saved again with the same seed.
+ */
+public class SimulationCheckpoint {
+    /** The first bytes of a checkpoint file, "TXCP". */
+    private static final int MAGIC = 0x54584350;
+
+    /** The version of the format of the checkpoint files. */
+    private static final int VERSION = 1;
+
+    /** The kinds of the services of the vehicles. */
+    private static final int NO_SERVICE = 0;
+    private static final int SERVICE = 1;
+    private static final int SHARED_SERVICE = 2;
+
+    /** The kinds of the vehicles. */
+    private static final int TAXI = 0;
+    private static final int SHUTTLE = 1;
+
+    private TaxiCompany company;
+    private ApplicationSimulator simulator;
+
+    /**
+     * Constructs a restored simulation.
+     *
+     * @param company   The restored taxi company
+     * @param simulator The restored simulator
+     */
+    private SimulationCheckpoint(TaxiCompany company, ApplicationSimulator simulator) {
+        this.company = company;
+        this.simulator = simulator;
+    }
+
+    /**
+     * Gets the restored taxi company.
+     *
+     * @return The taxi company
+     */
+    public TaxiCompany getCompany() {
+        return this.company;
+    }
+
+    /**
+     * Gets the restored simulator, which is the observer of the company.
+     *
+     * @return The simulator
+     */
+    public ApplicationSimulator getSimulator() {
+        return this.simulator;
+    }
+
+    /**
+     * Gets the restored users.
+     *
+     * @return The users
+     */
+    public List<IUser> getUsers() {
+        return this.simulator.getUsers();
+    }
+
+    /**
+     * Gets the restored vehicles.
+     *
+     * @return The vehicles
+     */
+    public List<IVehicle> getVehicles() {
+        return this.simulator.getVehicles();
+    }
+
+    /**
+     * Saves a simulation to a checkpoint file, replacing the file if it exists.
+     *
+     * @param path      The path of the checkpoint
+     * @param company   The taxi company of the simulation
+     * @param simulator The simulator
+     * @throws IOException If the checkpoint cannot be written
+     */
+    public static void save(Path path, TaxiCompany company, ApplicationSimulator simulator) throws IOException {
+        List<IUser> users = simulator.getUsers();
+        List<IVehicle> vehicles = simulator.getVehicles();
+
+        try (CheckpointWriter out = new CheckpointWriter(path)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // the settings of the simulation
+
+            out.writeLong(ApplicationLibrary.getRandom().getSeed());
+            out.writeLong(simulator.getTime());
+            out.writeByte(simulator.getUpdateMode().ordinal());
+            out.writeByte(simulator.getRiderSelection().ordinal());
+            out.writeByte(company.getDispatchMode().ordinal());
+            out.writeString(company.getName());
+            out.writeInt(company.getTotalServices());
+
+            // the users
+
+            out.writeInt(users.size());
+
+            for (IUser user : users) {
+                out.writeInt(user.getId());
+                out.writeString(user.getFirstName());
+                out.writeString(user.getLastName());
+                out.writeChar(user.getGender());
+                out.writeLong(user.getBirthDate().toEpochDay());
+                out.writeBoolean(user.getService());
+            }
+
+            // the fleet table, then the vehicles
+
+            out.writeInt(vehicles.size());
+            simulator.getFleet().writeTo(out);
+
+            for (IVehicle vehicle : vehicles) {
+                writeVehicle(out, vehicle);
+            }
+
+            // the requests waiting for a vehicle, and the queue of idle users
+
+            writeRequests(out, company.listPendingRequests());
+            writeRequests(out, company.listBufferedRequests());
+
+            int[] idle = simulator.getIdleRiders().queueOrder();
+
+            out.writeInt(idle.length);
+            out.writeInts(idle, idle.length);
+        }
+    }
+
+    /**
+     * Restores a simulation from a checkpoint file, with a new taxi company, simulator,
+     * users and vehicles. The random service of the application is replaced.
+     *
+     * @param path The path of the checkpoint
+     * @return The restored simulation
+     * @throws IOException If the checkpoint cannot be read or is not valid
+     */
+    public static SimulationCheckpoint restore(Path path) throws IOException {
+        return restore(path, ApplicationSimulator::new);
+    }
+
+    /**
+     * Restores a simulation from a checkpoint file, with a new taxi company, users and
+     * vehicles, and a simulator created by a factory, such as a simulator that does not
+     * show the events. The random service of the application is replaced.
+     *
+     * @param path       The path of the checkpoint
+     * @param simulators The factory of the simulator
+     * @return The restored simulation
+     * @throws IOException If the checkpoint cannot be read or is not valid
+     */
+    public static SimulationCheckpoint restore(Path path, ISimulatorFactory simulators) throws IOException {
+        try (CheckpointReader in = new CheckpointReader(path)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+
+            int version = in.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("The checkpoint " + path + " has version " + version + " instead of " + VERSION);
+            }
+
+            // the settings of the simulation
+
+            long seed = in.readLong();
+            long time = in.readLong();
+            UpdateMode updateMode = valueOf(UpdateMode.values(), in.readByte());
+            RiderSelection riderSelection = valueOf(RiderSelection.values(), in.readByte());
+            DispatchMode dispatchMode = valueOf(DispatchMode.values(), in.readByte());
+            String name = in.readString();
+            int totalServices = in.readInt();
+
+            ApplicationLibrary.setSeed(seed, seed ^ (time * 0x9E3779B97F4A7C15L));
+
+            // the users
+
+            int userCount = in.readInt();
+            List<IUser> users = new ArrayList<>(userCount);
+            IntObjectMap<IUser> usersById = new IntObjectMap<>(userCount);
+
+            for (int i = 0; i < userCount; i++) {
+                int id = in.readInt();
+                String firstName = in.readString();
+                String lastName = in.readString();
+                char gender = in.readChar();
+                LocalDate birthDate = LocalDate.ofEpochDay(in.readLong());
+                IUser user = new User(id, firstName, lastName, gender, birthDate);
+
+                user.setService(in.readBoolean());
+                users.add(user);
+                usersById.put(id, user);
+            }
+
+            // the vehicles are created in the slots of the fleet table where the saved table
+            // places them, then take over the state of their slot
+
+            int vehicleCount = in.readInt();
+            FleetTable saved = new FleetTable(vehicleCount);
+            FleetTable fleet = new FleetTable(vehicleCount);
+            List<IVehicle> vehicles = new ArrayList<>(vehicleCount);
+
+            saved.readFrom(in);
+
+            for (int slot = 0; slot < vehicleCount; slot++) {
+                vehicles.add(readVehicle(in, fleet, slot, saved.getLocation(slot), usersById));
+            }
+
+            for (int slot = 0; slot < vehicleCount; slot++) {
+                fleet.attach(vehicles.get(slot), slot, saved, slot);
+            }
+
+            // the company indexes the free vehicles as it is created
+
+            List<RideRequest> pending = readRequests(in, usersById);
+            List<RideRequest> buffered = readRequests(in, usersById);
+            TaxiCompany company = new TaxiCompany(name, users, vehicles);
+
+            company.setDispatchMode(dispatchMode);
+            company.restore(totalServices, pending, buffered);
+
+            ApplicationSimulator simulator = simulators.create(company, users, vehicles);
+
+            simulator.setUpdateMode(updateMode);
+            simulator.setRiderSelection(riderSelection);
+            simulator.setTime(time);
+            company.addObserver(simulator);
+
+            int[] idle = new int[in.readInt()];
+
+            in.readInts(idle, idle.length);
+            simulator.getIdleRiders().requeue(idle);
+
+            return new SimulationCheckpoint(company, simulator);
+        }
+    }
+
+    /**
+     * Writes a vehicle, its driver, its region and its active service.
+     *
+     * @param out     The checkpoint
+     * @param vehicle The vehicle
+     * @throws IOException If the checkpoint cannot be written
+     */
+    private static void writeVehicle(CheckpointWriter out, IVehicle vehicle) throws IOException {
+        IDriver driver = vehicle.getDriver();
+        Region region = vehicle.getRegion();
+        IBaseService service = vehicle.getService();
+
+        if (vehicle.getClass() == Taxi.class) {
+            out.writeByte(TAXI);
+        } else if (vehicle.getClass() == Shuttle.class) {
+            out.writeByte(SHUTTLE);
+        } else {
+            throw new IllegalArgumentException("Vehicles of type " + vehicle.getClass().getSimpleName()
+                    + " cannot be saved to a checkpoint");
+        }
+
+        out.writeInt(vehicle.getId());
+        out.writeInt(driver.getId());
+        out.writeString(driver.getFirstName());
+        out.writeString(driver.getLastName());
+        out.writeChar(driver.getGender());
+        out.writeLong(driver.getBirthDate().toEpochDay());
+
+        out.writeBoolean(region != null);
+
+        if (region != null) {
+            out.writeInt(region.getMinX());
+            out.writeInt(region.getMinY());
+            out.writeInt(region.getMaxX());
+            out.writeInt(region.getMaxY());
+        }
+
+        if (service == null) {
+            out.writeByte(NO_SERVICE);
+        } else if (service instanceof IService) {
+            out.writeByte(SERVICE);
+            writeService(out, (IService) service);
+        } else if (service instanceof SharedService) {
+            SharedService shared = (SharedService) service;
+
+            out.writeByte(SHARED_SERVICE);
+            writeService(out, shared.getOriginalService());
+            out.writeInt(shared.getUsers().size());
+
+            for (int i = 0; i < shared.getUsers().size(); i++) {
+                out.writeInt(shared.getUsers().get(i).getId());
+                out.writeLocation(shared.getDropoffLocations().get(i));
+                out.writeInt(shared.getBoardings().get(i));
+                out.writeInt(shared.getLimits().get(i));
+            }
+
+            out.writeInt(shared.getStars().size());
+
+            for (int stars : shared.getStars()) {
+                out.writeInt(stars);
+            }
+
+            out.writeLocation(shared.getLastStop());
+            out.writeInt(shared.getCompletedDistance());
+        } else {
+            throw new IllegalArgumentException("Services of type " + service.getClass().getSimpleName()
+                    + " cannot be saved to a checkpoint");
+        }
+    }
+
+    /**
+     * Reads a vehicle written by writeVehicle, and creates it at a location in a slot of
+     * the fleet table.
+     *
+     * @param in       The checkpoint
+     * @param fleet    The fleet table
+     * @param slot     The slot of the vehicle in the table
+     * @param location The location of the vehicle
+     * @param users    The restored users, by ID
+     * @return The vehicle, with its region and service
+     * @throws IOException If the checkpoint cannot be read or is not valid
+     */
+    private static IVehicle readVehicle(CheckpointReader in, FleetTable fleet, int slot, ILocation location,
+            IntObjectMap<IUser> users) throws IOException {
+        int kind = in.readByte();
+        int id = in.readInt();
+        IDriver driver = new Driver(in.readInt(), in.readString(), in.readString(), in.readChar(),
+                LocalDate.ofEpochDay(in.readLong()), null);
+        IVehicle vehicle;
+
+        if (kind == TAXI) {
+            vehicle = new Taxi(id, location, driver, fleet, slot);
+        } else if (kind == SHUTTLE) {
+            vehicle = new Shuttle(id, location, driver, fleet, slot);
+        } else {
+            throw new IOException("The checkpoint has an unknown kind of vehicle " + kind);
+        }
+
+        if (in.readBoolean()) {
+            vehicle.setRegion(new Region(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+        }
+
+        // the vehicle is still free in its slot, so setting the service does not route it
+
+        int serviceKind = in.readByte();
+
+        if (serviceKind == SERVICE) {
+            vehicle.setService(readService(in, users));
+        } else if (serviceKind == SHARED_SERVICE) {
+            IService original = readService(in, users);
+            int riders = in.readInt();
+            List<IUser> riderList = new ArrayList<>(riders);
+            List<ILocation> dropoffLocations = new ArrayList<>(riders);
+            List<Integer> boardings = new ArrayList<>(riders);
+            List<Integer> limits = new ArrayList<>(riders);
+
+            for (int i = 0; i < riders; i++) {
+                riderList.add(userOf(users, in.readInt()));
+                dropoffLocations.add(in.readLocation());
+                boardings.add(in.readInt());
+                limits.add(in.readInt());
+            }
+
+            int ratings = in.readInt();
+            List<Integer> stars = new ArrayList<>(ratings);
+
+            for (int i = 0; i < ratings; i++) {
+                stars.add(in.readInt());
+            }
+
+            vehicle.setService(new SharedService(original, riderList, dropoffLocations, boardings, limits, stars,
+                    in.readLocation(), in.readInt()));
+        } else if (serviceKind != NO_SERVICE) {
+            throw new IOException("The checkpoint has an unknown kind of service " + serviceKind);
+        }
+
+        return vehicle;
+    }
+
+    /**
+     * Writes a service of a single user.
+     *
+     * @param out     The checkpoint
+     * @param service The service
+     * @throws IOException If the checkpoint cannot be written
+     */
+    private static void writeService(CheckpointWriter out, IService service) throws IOException {
+        out.writeInt(service.getUser().getId());
+        out.writeLocation(service.getPickupLocation());
+        out.writeLocation(service.getDropoffLocation());
+        out.writeInt(service.getStars());
+        out.writeByte(indexOf(service.getServiceType()));
+        out.writeByte(service.getRideMode().ordinal());
+    }
+
+    /**
+     * Reads a service written by writeService.
+     *
+     * @param in    The checkpoint
+     * @param users The restored users, by ID
+     * @return The service
+     * @throws IOException If the checkpoint cannot be read or is not valid
+     */
+    private static IService readService(CheckpointReader in, IntObjectMap<IUser> users) throws IOException {
+        IUser user = userOf(users, in.readInt());
+        ILocation pickup = in.readLocation();
+        ILocation dropoff = in.readLocation();
+        int stars = in.readInt();
+        IServiceType serviceType = valueOf(ServiceTypeRegistry.getServiceTypes(), in.readByte());
+        IService service = new Service(user, pickup, dropoff, serviceType, valueOf(RideMode.values(), in.readByte()));
+
+        service.setStars(stars);
+
+        return service;
+    }
+
+    /**
+     * Writes a list of requests.
+     *
+     * @param out      The checkpoint
+     * @param requests The requests
+     * @throws IOException If the checkpoint cannot be written
+     */
+    private static void writeRequests(CheckpointWriter out, List<RideRequest> requests) throws IOException {
+        out.writeInt(requests.size());
+
+        for (RideRequest request : requests) {
+            out.writeInt(request.getUser().getId());
+            out.writeLocation(request.getPickupLocation());
+            out.writeLocation(request.getDropoffLocation());
+            out.writeByte(indexOf(request.getServiceType()));
+            out.writeByte(request.getRideMode().ordinal());
+        }
+    }
+
+    /**
+     * Reads a list of requests written by writeRequests, in the same order.
+     *
+     * @param in    The checkpoint
+     * @param users The restored users, by ID
+     * @return The requests
+     * @throws IOException If the checkpoint cannot be read or is not valid
+     */
+    private static List<RideRequest> readRequests(CheckpointReader in, IntObjectMap<IUser> users) throws IOException {
+        int count = in.readInt();
+        List<RideRequest> requests = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            IUser user = userOf(users, in.readInt());
+            ILocation pickup = in.readLocation();
+            ILocation dropoff = in.readLocation();
+            IServiceType serviceType = valueOf(ServiceTypeRegistry.getServiceTypes(), in.readByte());
+
+            requests.add(new RideRequest(user, pickup, dropoff, serviceType, valueOf(RideMode.values(), in.readByte())));
+        }
+
+        return requests;
+    }
+
+    /**
+     * Finds the position of a service type in the registry.
+     *
+     * @param serviceType The service type
+     * @return The position of the service type
+     */
+    private static int indexOf(IServiceType serviceType) {
+        int index = ServiceTypeRegistry.indexOf(serviceType);
+
+        if (index >= 0) {
+            return index;
+        }
+
+        throw new IllegalArgumentException("Service type " + serviceType.getClass().getSimpleName()
+                + " is not in the registry and cannot be saved to a checkpoint");
+    }
+
+    /**
+     * Gets a restored user by their ID.
+     *
+     * @param users The restored users, by ID
+     * @param id    The ID of the user
+     * @return The user
+     * @throws IOException If there is no user with the ID
+     */
+    private static IUser userOf(IntObjectMap<IUser> users, int id) throws IOException {
+        IUser user = users.get(id);
+
+        if (user == null) {
+            throw new IOException("The checkpoint refers to an unknown user " + id);
+        }
+
+        return user;
+    }
+
+    /**
+     * Gets a value by its position.
+     *
+     * @param values The values
+     * @param index  The position of the value
+     * @return The value
+     * @throws IOException If the position is not valid
+     */
+    private static <T> T valueOf(T[] values, int index) throws IOException {
+        return valueOf(List.of(values), index);
+    }
+
+    /**
+     * Gets a value by its position.
+     *
+     * @param values The values
+     * @param index  The position of the value
+     * @return The value
+     * @throws IOException If the position is not valid
+     */
+    private static <T> T valueOf(List<T> values, int index) throws IOException {
+        if (index < 0 || index >= values.size()) {
+            throw new IOException("The checkpoint has an unknown value " + index);
+        }
+
+        return values.get(index);
+    }
+}
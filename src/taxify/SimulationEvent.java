@@ -0,0 +1,81 @@
+package taxify;
+
+/**
+ * SimulationEvent class represents an event of the event simulator, happening at a given
+ * tick. Events of the same tick are ordered by the order they were scheduled in, so a run
+ * is repeatable. Vehicle events carry the version of the vehicle schedule they were created
+ * for, and are ignored if the vehicle has been rescheduled since.
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+    private long time;
+    private long sequence;
+    private SimulationEventType type;
+    private int vehicle;
+    private int version;
+
+    /**
+     * Constructs a new event.
+     *
+     * @param time     The tick the event happens at
+     * @param sequence The order the event was scheduled in
+     * @param type     The kind of event
+     * @param vehicle  The index of the vehicle of the event, or -1 for ride requests
+     * @param version  The version of the vehicle schedule the event belongs to
+     */
+    public SimulationEvent(long time, long sequence, SimulationEventType type, int vehicle, int version) {
+        this.time = time;
+        this.sequence = sequence;
+        this.type = type;
+        this.vehicle = vehicle;
+        this.version = version;
+    }
+
+    /**
+     * Gets the tick the event happens at.
+     *
+     * @return The tick of the event
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the kind of event.
+     *
+     * @return The type of the event
+     */
+    public SimulationEventType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the vehicle of the event.
+     *
+     * @return The index of the vehicle, or -1 for ride requests
+     */
+    public int getVehicle() {
+        return this.vehicle;
+    }
+
+    /**
+     * Gets the version of the vehicle schedule the event belongs to.
+     *
+     * @return The version of the schedule
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Orders events by tick, and by the order they were scheduled in within a tick.
+     *
+     * @param other The event to compare with
+     * @return A negative number, zero, or a positive number if this event comes first, at the same time, or later
+     */
+    @Override
+    public int compareTo(SimulationEvent other) {
+        int compare = Long.compare(this.time, other.time);
+
+        return compare != 0 ? compare : Long.compare(this.sequence, other.sequence);
+    }
+}
@@ -0,0 +1,12 @@
+package taxify;
+
+/**
+ * SimulationEventType enum represents the kinds of events of the event simulator.
+ * Vehicles arrive at a pickup or drop-off location, free vehicles reach the end of
+ * their random route and pick a new one, and users request rides.
+ */
+public enum SimulationEventType {
+
+    ARRIVE_AT_PICKUP, ARRIVE_AT_DROPOFF, IDLE_REROUTE, RIDE_REQUEST
+
+}
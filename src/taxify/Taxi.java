@@ -12,6 +12,9 @@ public class Taxi extends Vehicle {
      */
     private static final double RATE = 2;
 
+    /** The number of riders a taxi can carry at once when the ride is shared. */
+    private static final int CAPACITY = 4;
+
     /**
      * Constructs a new Taxi with the specified ID, location, and driver.
      *
@@ -23,6 +26,20 @@ public class Taxi extends Vehicle {
         super(id, location, driver);
     }
 
+    /**
+     * Constructs a new Taxi with the specified ID, location, and driver, in a slot of the
+     * table of its fleet.
+     *
+     * @param id The unique identifier for the taxi
+     * @param location The initial location of the taxi
+     * @param driver The driver assigned to this taxi
+     * @param fleet The fleet table
+     * @param slot The slot of the taxi in the table
+     */
+    public Taxi(int id, ILocation location, IDriver driver, FleetTable fleet, int slot) {
+        super(id, location, driver, fleet, slot);
+    }
+
     /**
      * Calculates the cost of the ride using the taxi's rate multiplier.
      *
@@ -32,4 +49,14 @@ public class Taxi extends Vehicle {
     public double calculateCost() {
         return super.calculateCost() * RATE;
     }
+
+    /**
+     * Gets the number of riders the taxi can carry at once.
+     *
+     * @return The number of seats for riders
+     */
+    @Override
+    public int getCapacity() {
+        return CAPACITY;
+    }
 }
\ No newline at end of file
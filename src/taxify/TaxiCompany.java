@@ -1,18 +1,52 @@
 package taxify;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TaxiCompany class implements the ITaxiCompany interface and represents a taxi
  * company in the system. It manages users, vehicles, and services provided by
- * the company.
+ * the company. Services can be requested from many threads at once: users and
+ * vehicles are claimed atomically, so a user or a vehicle is never assigned twice.
  */
 public class TaxiCompany implements ITaxiCompany, ISubject {
+    /** The size of the cells of the free vehicle grids, in blocks. */
+    private static final int GRID_CELL_SIZE = 2;
+
+    /** The number of pickup locations tried before giving up on a request. */
+    private static final int MAX_PICKUP_ATTEMPTS = 10;
+
+    /** The number of nearest free vehicles each request bids for in batch dispatch. */
+    private static final int BATCH_CANDIDATES = 8;
+
+    /** The time budget of the batch assignment of a tick, in nanoseconds. */
+    private static final long BATCH_TIME_BUDGET = 50_000_000L;
+
     private String name;
-    private List<IUser> users;
+    private IntObjectMap<IUser> users;
     private List<IVehicle> vehicles;
-    private int totalServices;
-    private IObserver observer;
+    private Map<IVehicle, Integer> vehicleSlots;
+    private List<FreeVehiclePool> pools;
+    private Map<Class<? extends IServiceType>, FreeVehiclePool> poolsByType;
+    private DispatchMode dispatchMode;
+    private Queue<RideRequest> requests;
+    private PendingRequests pendingRequests;
+    private AtomicInteger totalServices;
+    private AtomicLong requestSequence;
+    private volatile IVehicleClock vehicleClock;
+    private volatile Region serviceArea;
+    private volatile IRideJournal journal;
+    private ThreadLocal<TaxiEvent> events;
+    private volatile IObserver observer;
 
     /**
      * Constructs a new TaxiCompany with the specified parameters.
@@ -24,16 +58,36 @@ public class TaxiCompany implements ITaxiCompany, ISubject {
      */
     public TaxiCompany(String name, List<IUser> users, List<IVehicle> vehicles) {
         this.name = name;
-        this.users = users;
+        this.users = new IntObjectMap<>(users.size());
         this.vehicles = vehicles;
-        this.totalServices = 0;
-
-        for (IUser user : this.users) {
+        this.vehicleSlots = new IdentityHashMap<>();
+        this.pools = new CopyOnWriteArrayList<>();
+        this.poolsByType = new ConcurrentHashMap<>();
+        this.dispatchMode = DispatchMode.IMMEDIATE;
+        this.requests = new ConcurrentLinkedQueue<>();
+        this.pendingRequests = new PendingRequests();
+        this.totalServices = new AtomicInteger(0);
+        this.requestSequence = new AtomicLong(0);
+        this.vehicleClock = null;
+        this.serviceArea = null;
+        this.journal = null;
+        this.events = ThreadLocal.withInitial(TaxiEvent::new);
+        this.observer = null;
+
+        for (IUser user : users) {
             user.setCompany(this);
+            this.users.put(user.getId(), user);
         }
 
-        for (IVehicle vehicle : this.vehicles) {
-            vehicle.setCompany(this);
+        for (int slot = 0; slot < this.vehicles.size(); slot++) {
+            this.vehicles.get(slot).setCompany(this);
+            this.vehicleSlots.put(this.vehicles.get(slot), slot);
+        }
+
+        // every service type keeps its own pool of eligible free vehicles
+
+        for (IServiceType serviceType : ServiceTypeRegistry.getServiceTypes()) {
+            findPool(serviceType);
         }
     }
 
@@ -54,66 +108,391 @@ public class TaxiCompany implements ITaxiCompany, ISubject {
      */
     @Override
     public int getTotalServices() {
-        return this.totalServices;
+        return this.totalServices.get();
+    }
+
+    /**
+     * Gets the number of requests waiting for a vehicle to become free.
+     *
+     * @return The number of pending requests
+     */
+    public int getPendingRequests() {
+        return this.pendingRequests.size();
+    }
+
+    /**
+     * Gets the requests waiting for a vehicle to become free, oldest first.
+     *
+     * @return The pending requests
+     */
+    public List<RideRequest> listPendingRequests() {
+        return this.pendingRequests.toList();
+    }
+
+    /**
+     * Gets the requests buffered until the end of the tick in batch dispatch mode.
+     *
+     * @return The buffered requests, in arrival order
+     */
+    public List<RideRequest> listBufferedRequests() {
+        return new ArrayList<>(this.requests);
+    }
+
+    /**
+     * Restores the state of the company that is not kept by its users and vehicles, such
+     * as the state saved in a checkpoint. The users of the requests must already be reserved.
+     *
+     * @param totalServices The number of active services
+     * @param pending       The requests waiting for a vehicle, oldest first
+     * @param buffered      The requests buffered for batch dispatch, in arrival order
+     */
+    public void restore(int totalServices, List<RideRequest> pending, List<RideRequest> buffered) {
+        this.totalServices.set(totalServices);
+
+        // the requests are stamped again in the order they were saved, oldest first
+
+        for (RideRequest request : pending) {
+            stamp(request);
+            this.pendingRequests.add(request, findPool(request.getServiceType()));
+        }
+
+        for (RideRequest request : buffered) {
+            stamp(request);
+            this.requests.add(request);
+        }
+    }
+
+    /**
+     * Gets how the company assigns vehicles to service requests.
+     *
+     * @return The dispatch mode
+     */
+    public DispatchMode getDispatchMode() {
+        return this.dispatchMode;
+    }
+
+    /**
+     * Sets how the company assigns vehicles to service requests.
+     *
+     * @param dispatchMode The dispatch mode
+     */
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    /**
+     * Gets the region the pickup locations of the services are in.
+     *
+     * @return The service area, or null for the whole map
+     */
+    public Region getServiceArea() {
+        return this.serviceArea;
+    }
+
+    /**
+     * Sets the region the pickup locations of the services are in, for a company serving
+     * one region of the map. Drop-off locations can still be anywhere.
+     *
+     * @param serviceArea The service area, or null for the whole map
+     */
+    public void setServiceArea(Region serviceArea) {
+        this.serviceArea = serviceArea;
+    }
+
+    /**
+     * Sets the journal the requests and ratings of the company are recorded to, or replayed from.
+     *
+     * @param journal The journal, or null for none
+     */
+    @Override
+    public void setJournal(IRideJournal journal) {
+        this.journal = journal;
     }
 
     /**
      * Provides a service to a user by assigning a vehicle to the service.
-     * The method checks for available vehicles and assigns a random pickup and
-     * drop-off location.
+     * The method picks a random pickup and drop-off location and assigns the
+     * nearest free vehicle from the pool of the service type. In batch dispatch
+     * mode the request is buffered until the end of the tick instead. If there is
+     * no free vehicle, the request waits until a vehicle becomes free.
      *
      * @param user       The ID of the user requesting the service
      * @param serviceType The type of service requested (e.g., taxi, shared)
      * @param rideMode   The mode of the ride (e.g., standard, premium)
-     * @return true if the service is successfully provided, false otherwise
+     * @return true if the service is successfully provided, or buffered in batch
+     *         dispatch mode, false if the request is rejected or waiting for a vehicle
      */
     @Override
     public boolean provideService(int user, IServiceType serviceType, RideMode rideMode) {
-        int userIndex = findUserIndex(user);
-        int vehicleIndex = findFreeVehicle(userIndex, serviceType);
-
-        // if there is a free vehicle, assign a random pickup and drop-off location to
-        // the new service
-        // the distance between the pickup and the drop-off location should be at least
-        // 3 blocks
+        return provideService(findUser(user), serviceType, rideMode);
+    }
 
-        if (vehicleIndex != -1) {
-            ILocation origin, destination;
+    /**
+     * Provides a service to a user that may be registered with another company. The service
+     * is provided as for a registered user.
+     *
+     * @param rider       The user requesting the service
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @return true if the service is successfully provided, or buffered in batch
+     *         dispatch mode, false if the request is rejected or waiting for a vehicle
+     */
+    @Override
+    public boolean provideService(IUser rider, IServiceType serviceType, RideMode rideMode) {
+        // the user is reserved first, so concurrent requests of the same user are rejected
 
-            do {
+        if (rider == null || !serviceType.isUserEligible(rider) || !rider.reserveService()) {
+            return false;
+        }
 
-                origin = ApplicationLibrary.randomLocation();
-                destination = ApplicationLibrary.randomLocation(origin);
+        return acceptRequest(rider, serviceType, rideMode);
+    }
 
-            } while (ApplicationLibrary.distance(origin,
-                    this.vehicles.get(vehicleIndex).getLocation()) < ApplicationLibrary.MINIMUM_DISTANCE);
+    /**
+     * Provides a service to a user already reserved for it, such as a user handed over by the
+     * company of another region, which reserves the user so that the user does not request
+     * another service on the way. The reservation is released if the request is rejected.
+     *
+     * @param rider       The user requesting the service, already reserved
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @return true if the service is successfully provided, or buffered in batch
+     *         dispatch mode, false if the request is waiting for a vehicle
+     * @throws RejectedExecutionException If the user is not eligible for the service type
+     */
+    public boolean provideReservedService(IUser rider, IServiceType serviceType, RideMode rideMode) {
+        if (!serviceType.isUserEligible(rider)) {
+            rider.setService(false);
 
-            // update the user status
+            throw new RejectedExecutionException("User " + rider.getId() + " is not eligible for "
+                    + serviceType.getClass().getSimpleName());
+        }
 
-            this.users.get(userIndex).setService(true);
+        return acceptRequest(rider, serviceType, rideMode);
+    }
 
-            // create a service with the user, the pickup and the drop-off location
+    /**
+     * Accepts the request of a reserved user: the request is buffered in batch dispatch mode,
+     * otherwise it is assigned the nearest free vehicle, or waits until a vehicle becomes free.
+     *
+     * @param rider       The user requesting the service, already reserved
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @return true if the service is successfully provided, or buffered in batch
+     *         dispatch mode, false if the request is waiting for a vehicle
+     */
+    private boolean acceptRequest(IUser rider, IServiceType serviceType, RideMode rideMode) {
+        if (this.dispatchMode == DispatchMode.BATCH) {
+            ILocation origin = randomPickupLocation();
+            RideRequest request = new RideRequest(rider, origin, ApplicationLibrary.randomLocation(origin),
+                    serviceType, rideMode);
 
-            IService service = new Service(this.users.get(userIndex), origin, destination, serviceType, rideMode);
+            stamp(request);
+            record(request);
+            this.requests.add(request);
 
-            // assign the new service to the vehicle
+            return true;
+        }
 
-            this.vehicles.get(vehicleIndex).pickService(service);
+        return assignVehicle(rider, serviceType, rideMode, true) != null;
+    }
 
-            notifyObserver("User " + this.users.get(userIndex).getId() + " requests a service from "
-                    + service.toString() + ", the ride is assigned to " +
-                    this.vehicles.get(vehicleIndex).getClass().getSimpleName() + " "
-                    + this.vehicles.get(vehicleIndex).getId() + " at location " +
-                    this.vehicles.get(vehicleIndex).getLocation().toString());
+    /**
+     * Provides a service for a request whose pickup and drop-off location are already drawn,
+     * such as a request replayed from a journal. The request is buffered in batch dispatch
+     * mode, otherwise it is assigned the nearest free vehicle to its pickup location, or
+     * waits until a vehicle becomes free.
+     *
+     * @param request The request
+     * @return true if the service is successfully provided, or buffered in batch
+     *         dispatch mode, false if the request is rejected or waiting for a vehicle
+     */
+    public boolean provideService(RideRequest request) {
+        IUser rider = request.getUser();
 
-            // update the counter of services
+        if (!request.getServiceType().isUserEligible(rider) || !rider.reserveService()) {
+            return false;
+        }
 
-            this.totalServices++;
+        stamp(request);
 
+        if (this.dispatchMode == DispatchMode.BATCH) {
+            this.requests.add(request);
             return true;
         }
 
-        return false;
+        FreeVehiclePool pool = findPool(request.getServiceType());
+        IVehicle vehicle = claimNearest(pool, request.getPickupLocation());
+
+        if (vehicle != null) {
+            assignService(request, vehicle);
+        } else {
+            this.pendingRequests.add(request, pool);
+        }
+
+        return vehicle != null;
+    }
+
+    /**
+     * Provides a service to a user right away, whatever the dispatch mode, and returns
+     * the vehicle assigned to the service. Requests that can never be served as they are
+     * are rejected, so that only requests waiting for a free vehicle are worth retrying.
+     *
+     * @param user        The ID of the user requesting the service
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @return The vehicle assigned to the service, or null if there is no free vehicle
+     * @throws RejectedExecutionException If the user is unknown, is not eligible for the
+     *                                    service type, or already has a service
+     */
+    @Override
+    public IVehicle assignVehicle(int user, IServiceType serviceType, RideMode rideMode) {
+        IUser rider = findUser(user);
+
+        if (rider == null) {
+            throw new RejectedExecutionException("Unknown user " + user);
+        }
+
+        if (!serviceType.isUserEligible(rider)) {
+            throw new RejectedExecutionException("User " + user + " is not eligible for "
+                    + serviceType.getClass().getSimpleName());
+        }
+
+        if (!rider.reserveService()) {
+            throw new RejectedExecutionException("User " + user + " already has a service");
+        }
+
+        IVehicle vehicle = assignVehicle(rider, serviceType, rideMode, false);
+
+        if (vehicle == null) {
+            rider.setService(false);
+        }
+
+        return vehicle;
+    }
+
+    /**
+     * Assigns the requests waiting for a vehicle and the requests buffered during the tick.
+     * Waiting requests are matched against the free vehicles first, since a request is only
+     * offered the vehicle freed when it waits, and that vehicle may have been too close to
+     * its pickup location.
+     */
+    @Override
+    public void dispatchRequests() {
+        matchPendingRequests();
+
+        if (!this.requests.isEmpty()) {
+            dispatchBatch();
+        }
+    }
+
+    /**
+     * Assigns the oldest requests waiting for a vehicle to the nearest free vehicle far
+     * enough from their pickup location, if there is one.
+     */
+    private void matchPendingRequests() {
+        if (this.pendingRequests.size() == 0) {
+            return;
+        }
+
+        for (RideRequest request : this.pendingRequests.listOldest()) {
+            FreeVehiclePool pool = findPool(request.getServiceType());
+
+            // the request is only taken out of its queue when a vehicle may serve it
+
+            if (pool.findNearest(request.getPickupLocation(), ApplicationLibrary.MINIMUM_DISTANCE) == null
+                    || !this.pendingRequests.remove(request, pool)) {
+                continue;
+            }
+
+            IVehicle vehicle = claimNearest(pool, request.getPickupLocation());
+
+            if (vehicle != null) {
+                assignService(request, vehicle);
+            } else {
+                this.pendingRequests.restore(request, pool);
+            }
+        }
+    }
+
+    /**
+     * Assigns the requests buffered during the tick in batch dispatch mode. Every request
+     * bids for its nearest free vehicles, and the requests are matched to the vehicles
+     * minimizing the total pickup distance given by the distance oracle. Requests left out of the assignment, because
+     * the time budget ran out or their candidates were taken, get the nearest vehicle still
+     * free, and requests with no free vehicle at all wait until a vehicle becomes free.
+     */
+    private void dispatchBatch() {
+        List<RideRequest> batch = new ArrayList<>();
+        long deadline = System.nanoTime() + BATCH_TIME_BUDGET;
+
+        for (RideRequest request = this.requests.poll(); request != null; request = this.requests.poll()) {
+            batch.add(request);
+        }
+
+        // collect the candidate vehicles of every request and their pickup distance
+
+        List<IVehicle> candidateVehicles = new ArrayList<>();
+        Map<IVehicle, Integer> candidateIndexes = new IdentityHashMap<>();
+        int[][] candidates = new int[batch.size()][];
+        int[][] costs = new int[batch.size()][];
+        int maxCost = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            RideRequest request = batch.get(i);
+            List<IVehicle> nearest = findPool(request.getServiceType()).findNearest(request.getPickupLocation(),
+                    ApplicationLibrary.MINIMUM_DISTANCE, BATCH_CANDIDATES);
+
+            nearest.removeIf(vehicle -> !isFarEnough(vehicle, request.getPickupLocation()));
+
+            candidates[i] = new int[nearest.size()];
+            costs[i] = new int[nearest.size()];
+
+            for (int k = 0; k < nearest.size(); k++) {
+                IVehicle vehicle = nearest.get(k);
+                Integer index = candidateIndexes.get(vehicle);
+
+                if (index == null) {
+                    index = candidateVehicles.size();
+                    candidateVehicles.add(vehicle);
+                    candidateIndexes.put(vehicle, index);
+                }
+
+                candidates[i][k] = index;
+                costs[i][k] = ApplicationLibrary.distance(vehicle.getLocation(), request.getPickupLocation());
+                maxCost = Math.max(maxCost, costs[i][k]);
+            }
+        }
+
+        int[] assignment = AuctionAssignment.solve(candidateVehicles.size(), candidates, costs, 2 * maxCost + 1,
+                deadline);
+
+        // vehicles claimed meanwhile by other callers leave their request unassigned
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (assignment[i] != -1) {
+                IVehicle vehicle = candidateVehicles.get(assignment[i]);
+
+                if (vehicle.claim()) {
+                    assignService(batch.get(i), vehicle);
+                } else {
+                    assignment[i] = -1;
+                }
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (assignment[i] == -1) {
+                RideRequest request = batch.get(i);
+                IVehicle vehicle = claimNearest(findPool(request.getServiceType()), request.getPickupLocation());
+
+                if (vehicle != null) {
+                    assignService(request, vehicle);
+                } else {
+                    this.pendingRequests.add(request, findPool(request.getServiceType()));
+                }
+            }
+        }
     }
 
     /**
@@ -129,8 +508,7 @@ public class TaxiCompany implements ITaxiCompany, ISubject {
         IBaseService service = vehicle.getService();
         int user = service.getUser().getId();
 
-        notifyObserver(
-                String.format("%-8s", vehicle.getClass().getSimpleName()) + vehicle.getId() + " picks up user " + user);
+        notifyObserver(this.events.get().pickedUp(vehicle, user));
     }
 
     /**
@@ -143,39 +521,110 @@ public class TaxiCompany implements ITaxiCompany, ISubject {
     public void arrivedAtDropoffLocation(IVehicle vehicle) {
         // a vehicle arrives at the drop-off location
         IBaseService service = vehicle.getService();
+        IUser rider;
 
-        int user = service.getUser().getId();
-        int userIndex = findUserIndex(user);
+        if (service instanceof ISharedService) {
+            ISharedService sharedService = (ISharedService) service;
+
+            // the users of a shared service are kept in the order of their drop-off locations
 
-        if (service instanceof IService) {
+            rider = sharedService.getUsers().get(0);
+
+            // the taxi company requests the user to rate the service, and updates its status
+            rate(rider, service);
+            rider.setService(false);
+
+            sharedService.removeUser();
+
+            // no more users, end the service
+            if (sharedService.getUsers().isEmpty()) {
+                this.totalServices.decrementAndGet();
+            }
+        } else {
+            // the rider of the service, who may be registered with another company
+
+            rider = service.getUser();
     
             // the taxi company requests the user to rate the service, and updates its
             // status
     
-            this.users.get(userIndex).rateService(service);
-            this.users.get(userIndex).setService(false);
+            rate(rider, service);
+            rider.setService(false);
     
             // update the counter of services
     
-            this.totalServices--;
-        } else if (service instanceof ISharedService) {
-            ISharedService sharedService = (ISharedService) service;
+            this.totalServices.decrementAndGet();
+        }
 
-            // the taxi company requests the user to rate the service, and updates its status
-            this.users.get(userIndex).rateService(service);
-            this.users.get(userIndex).setService(false);
+        notifyObserver(this.events.get().droppedOff(vehicle, rider.getId()));
+    }
 
-            sharedService.removeUser();
-            sharedService.removeDropoffLocation();
+    /**
+     * Requests a rider to rate their service, through the journal if there is one.
+     *
+     * @param rider   The rider
+     * @param service The service of the rider
+     */
+    private void rate(IUser rider, IBaseService service) {
+        IRideJournal journal = this.journal;
 
-            // no more users and drop-off locations, end the service
-            if (sharedService.getUsers().size() == 0 && sharedService.getDropoffLocations().size() == 0) {
-                this.totalServices--;
+        if (journal != null) {
+            journal.rate(rider, service);
+        } else {
+            rider.rateService(service);
+        }
+    }
+
+    /**
+     * Sets the clock that brings a vehicle to its current location before it is assigned
+     * a service, for simulations that do not move vehicles every tick.
+     *
+     * @param clock The vehicle clock, or null if vehicles are always up to date
+     */
+    @Override
+    public void setVehicleClock(IVehicleClock clock) {
+        this.vehicleClock = clock;
+    }
+
+    /**
+     * Handles the event when a free vehicle moves to a new location.
+     * Keeps the pools of free vehicles up to date.
+     *
+     * @param vehicle The vehicle that has moved
+     */
+    @Override
+    public void vehicleMoved(IVehicle vehicle) {
+        int slot = this.vehicleSlots.get(vehicle);
+
+        for (FreeVehiclePool pool : this.pools) {
+            pool.update(vehicle, slot);
+        }
+    }
+
+    /**
+     * Handles the event when a vehicle ends its service and becomes free.
+     * The vehicle is assigned to the request that has waited the longest, if any,
+     * otherwise it goes back to the pools of the service types it is eligible for.
+     *
+     * @param vehicle The vehicle that is free again
+     */
+    @Override
+    public void vehicleFreed(IVehicle vehicle) {
+        int slot = this.vehicleSlots.get(vehicle);
+        RideRequest request = this.pendingRequests.poll(vehicle, slot);
+
+        if (request != null) {
+            if (vehicle.claim()) {
+                assignService(request, vehicle);
+                return;
             }
+
+            this.pendingRequests.add(request, findPool(request.getServiceType()));
         }
 
-        notifyObserver(String.format("%-8s", vehicle.getClass().getSimpleName()) + vehicle.getId() + " drops off user "
-                + user);
+        for (FreeVehiclePool pool : this.pools) {
+            pool.add(vehicle, slot);
+        }
     }
 
     /**
@@ -189,47 +638,227 @@ public class TaxiCompany implements ITaxiCompany, ISubject {
     }
 
     /**
-     * Notifies the observer with a message about company events.
+     * Notifies the observer of a company event, if there is an observer. The event is
+     * reused for the next notification of the thread.
      *
-     * @param message The message to be sent to the observer
+     * @param event The event
      */
     @Override
-    public void notifyObserver(String message) {
-        this.observer.updateObserver(message);
+    public void notifyObserver(TaxiEvent event) {
+        IObserver observer = this.observer;
+
+        if (observer != null) {
+            observer.updateObserver(event);
+        }
     }
 
     /**
-     * Finds a free vehicle that matches the service requirements for a given user.
+     * Finds the pool of free vehicles of a service type. Service types that are not in the
+     * registry get their pool the first time they are requested.
      *
-     * @param userIndex   The index of the user requesting the service
-     * @param serviceType The type of service requested
-     * @return The index of an available vehicle, or -1 if no suitable vehicle is found
+     * @param serviceType The type of service
+     * @return The pool of free vehicles eligible for the service type
      */
-    private int findFreeVehicle(int userIndex, IServiceType serviceType) {
-        for (int i = 0; i < vehicles.size(); i++) {
-            IUser user = this.users.get(userIndex);
-            IVehicle vehicle = vehicles.get(i);
-            IDriver driver = vehicle.getDriver();
+    private FreeVehiclePool findPool(IServiceType serviceType) {
+        return this.poolsByType.computeIfAbsent(serviceType.getClass(), type -> {
+            FreeVehiclePool pool = new FreeVehiclePool(serviceType, GRID_CELL_SIZE);
 
-            if (vehicle.isFree() && serviceType.isDriverEligible(driver) && serviceType.isUserEligible(user)) {
-                return i;
+            for (int slot = 0; slot < this.vehicles.size(); slot++) {
+                pool.updateEligibility(this.vehicles.get(slot), slot);
             }
+
+            this.pools.add(pool);
+
+            return pool;
+        });
+    }
+
+    /**
+     * Finds the nearest free vehicle of a pool to a location and claims it. If another
+     * caller claims the vehicle first, the next nearest free vehicle is tried.
+     *
+     * @param pool     The pool of free vehicles
+     * @param location The pickup location
+     * @return The claimed vehicle, or null if there is no free vehicle
+     */
+    private IVehicle claimNearest(FreeVehiclePool pool, ILocation location) {
+        IVehicle vehicle;
+
+        do {
+            vehicle = pool.findNearest(location, ApplicationLibrary.MINIMUM_DISTANCE);
+        } while (vehicle != null && (!isFarEnough(vehicle, location) || !vehicle.claim()));
+
+        return vehicle;
+    }
+
+    /**
+     * Checks that a free vehicle is still far enough from a pickup location. When the vehicles
+     * are moved by a vehicle clock, the pools know where a free vehicle was last moved, so the
+     * vehicle is moved to its current location first, which updates the pools as well.
+     *
+     * @param vehicle  The free vehicle
+     * @param location The pickup location
+     * @return true if the vehicle is at least the minimum distance from the pickup location
+     */
+    private boolean isFarEnough(IVehicle vehicle, ILocation location) {
+        IVehicleClock clock = this.vehicleClock;
+
+        if (clock == null) {
+            return true;
         }
-        return -1;
+
+        clock.synchronize(vehicle);
+
+        int distance = ApplicationLibrary.distance(vehicle.getLocation(), location);
+
+        return distance >= ApplicationLibrary.MINIMUM_DISTANCE && distance != IDistanceOracle.UNREACHABLE;
     }
 
     /**
-     * Finds the index of a user in the users list by their ID.
+     * Assigns a random pickup and drop-off location to a new service of a reserved user, and
+     * assigns the service to the nearest free vehicle to the pickup location. Every request
+     * accepted is recorded to the journal; a request that finds no free vehicle keeps the last
+     * locations drawn, so it is recorded with the locations it waits with.
      *
-     * @param id The ID of the user to find
-     * @return The index of the user in the list, or -1 if not found
+     * @param rider       The user requesting the service, already reserved
+     * @param serviceType The type of service requested
+     * @param rideMode    The mode of the ride
+     * @param wait        Whether the request waits for a vehicle to become free if there is none
+     * @return The vehicle assigned to the service, or null if there is no free vehicle
      */
-    private int findUserIndex(int id) {
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getId() == id) {
-                return i;
-            }
+    private IVehicle assignVehicle(IUser rider, IServiceType serviceType, RideMode rideMode, boolean wait) {
+        // the distance between the pickup and the drop-off location, and between the
+        // vehicle and the pickup location, should be at least 3 blocks
+
+        FreeVehiclePool pool = findPool(serviceType);
+        IVehicle vehicle = null;
+        ILocation origin = null, destination = null;
+
+        for (int attempt = 0; vehicle == null && pool.size() > 0 && attempt < MAX_PICKUP_ATTEMPTS; attempt++) {
+            origin = randomPickupLocation();
+            destination = ApplicationLibrary.randomLocation(origin);
+            vehicle = claimNearest(pool, origin);
+        }
+
+        if (vehicle == null && !wait) {
+            return null;
+        }
+
+        if (origin == null) {
+            origin = randomPickupLocation();
+            destination = ApplicationLibrary.randomLocation(origin);
         }
-        return -1;
+
+        // the request is accepted from here on, whether it is assigned or waits, and whether
+        // it came from the simulation or from an intake
+
+        RideRequest request = new RideRequest(rider, origin, destination, serviceType, rideMode);
+
+        stamp(request);
+        record(request);
+
+        if (vehicle != null) {
+            assignService(request, vehicle);
+        } else {
+            this.pendingRequests.add(request, pool);
+        }
+
+        return vehicle;
+    }
+
+    /**
+     * Stamps a request accepted by the company with the next number of the sequence of
+     * requests, which orders the requests waiting for a vehicle.
+     *
+     * @param request The request
+     */
+    private void stamp(RideRequest request) {
+        request.setSequence(this.requestSequence.getAndIncrement());
+    }
+
+    /**
+     * Records a request accepted by the company to the journal, if there is one.
+     *
+     * @param request The request
+     */
+    private void record(RideRequest request) {
+        IRideJournal journal = this.journal;
+
+        if (journal != null) {
+            journal.requested(request);
+        }
+    }
+
+    /**
+     * Draws a random pickup location inside the service area of the company.
+     *
+     * @return The pickup location
+     */
+    private ILocation randomPickupLocation() {
+        Region area = this.serviceArea;
+
+        return (area == null) ? ApplicationLibrary.randomLocation() : area.randomLocation();
+    }
+
+    /**
+     * Creates the service of a request and assigns it to a vehicle claimed for it.
+     *
+     * @param request The request of the user
+     * @param vehicle The claimed vehicle that provides the service
+     */
+    private void assignService(RideRequest request, IVehicle vehicle) {
+        IUser rider = request.getUser();
+
+        // update the user status
+
+        rider.setService(true);
+
+        // create a service with the user, the pickup and the drop-off location
+
+        IService service = new Service(rider, request.getPickupLocation(), request.getDropoffLocation(),
+                request.getServiceType(), request.getRideMode());
+
+        // assign the new service to the vehicle, which is no longer free
+
+        removeFreeVehicle(vehicle);
+
+        if (this.vehicleClock != null) {
+            this.vehicleClock.synchronize(vehicle);
+        }
+
+        // the dispatch is notified first, since a vehicle already at the pickup location
+        // picks the user up at once
+
+        notifyObserver(this.events.get().dispatched(vehicle, rider.getId(), request.getPickupLocation(),
+                request.getDropoffLocation()));
+
+        vehicle.pickService(service);
+
+        // update the counter of services
+
+        this.totalServices.incrementAndGet();
+    }
+
+    /**
+     * Removes a vehicle that is no longer free from all the pools.
+     *
+     * @param vehicle The vehicle
+     */
+    private void removeFreeVehicle(IVehicle vehicle) {
+        int slot = this.vehicleSlots.get(vehicle);
+
+        for (FreeVehiclePool pool : this.pools) {
+            pool.remove(vehicle, slot);
+        }
+    }
+
+    /**
+     * Finds a user of the company by their ID.
+     *
+     * @param id The ID of the user to find
+     * @return The user, or null if not found
+     */
+    private IUser findUser(int id) {
+        return this.users.get(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+package taxify;
+
+/**
+ * TaxiEvent class describes something that happened to a vehicle and a rider, with the
+ * identifiers and coordinates of the event kept as primitive fields. Events are reused: the
+ * subject fills the same event for every notification of a thread, so notifying costs no
+ * allocation, and the event is only valid during the call to the observer. Observers that
+ * keep an event keep a copy of it. The text of an event is only built by toString(), for the
+ * observers that show it.
+ */
+public class TaxiEvent {
+    private TaxiEventType type;
+    private Class<? extends IVehicle> vehicleClass;
+    private int vehicleId;
+    private int userId;
+    private int vehicleX;
+    private int vehicleY;
+    private int pickupX;
+    private int pickupY;
+    private int dropoffX;
+    private int dropoffY;
+
+    /**
+     * Constructs an empty event, to be filled before it is notified.
+     */
+    public TaxiEvent() {
+        this.type = null;
+        this.vehicleClass = null;
+        this.vehicleId = 0;
+        this.userId = 0;
+        this.vehicleX = 0;
+        this.vehicleY = 0;
+        this.pickupX = 0;
+        this.pickupY = 0;
+        this.dropoffX = 0;
+        this.dropoffY = 0;
+    }
+
+    /**
+     * Fills the event of a ride assigned to a vehicle.
+     *
+     * @param vehicle The vehicle, at the location it is assigned the ride
+     * @param user    The ID of the rider
+     * @param pickup  The pickup location of the ride
+     * @param dropoff The drop-off location of the ride
+     * @return The event
+     */
+    public TaxiEvent dispatched(IVehicle vehicle, int user, ILocation pickup, ILocation dropoff) {
+        ILocation location = vehicle.getLocation();
+
+        fill(TaxiEventType.DISPATCHED, vehicle, user);
+        this.vehicleX = location.getX();
+        this.vehicleY = location.getY();
+        this.pickupX = pickup.getX();
+        this.pickupY = pickup.getY();
+        this.dropoffX = dropoff.getX();
+        this.dropoffY = dropoff.getY();
+
+        return this;
+    }
+
+    /**
+     * Fills the event of a vehicle picking up a rider.
+     *
+     * @param vehicle The vehicle
+     * @param user    The ID of the rider
+     * @return The event
+     */
+    public TaxiEvent pickedUp(IVehicle vehicle, int user) {
+        fill(TaxiEventType.PICKED_UP, vehicle, user);
+
+        return this;
+    }
+
+    /**
+     * Fills the event of a vehicle dropping off a rider.
+     *
+     * @param vehicle The vehicle
+     * @param user    The ID of the rider
+     * @return The event
+     */
+    public TaxiEvent droppedOff(IVehicle vehicle, int user) {
+        fill(TaxiEventType.DROPPED_OFF, vehicle, user);
+
+        return this;
+    }
+
+    /**
+     * Fills the event of a rider joining the ride of a vehicle.
+     *
+     * @param vehicle The vehicle
+     * @param user    The ID of the rider
+     * @return The event
+     */
+    public TaxiEvent sharedRideAccepted(IVehicle vehicle, int user) {
+        fill(TaxiEventType.SHARED_RIDE_ACCEPTED, vehicle, user);
+
+        return this;
+    }
+
+    /**
+     * Copies the event, for an observer that keeps it after the notification.
+     *
+     * @return The copy of the event
+     */
+    public TaxiEvent copy() {
+        TaxiEvent copy = new TaxiEvent();
+
+        copy.type = this.type;
+        copy.vehicleClass = this.vehicleClass;
+        copy.vehicleId = this.vehicleId;
+        copy.userId = this.userId;
+        copy.vehicleX = this.vehicleX;
+        copy.vehicleY = this.vehicleY;
+        copy.pickupX = this.pickupX;
+        copy.pickupY = this.pickupY;
+        copy.dropoffX = this.dropoffX;
+        copy.dropoffY = this.dropoffY;
+
+        return copy;
+    }
+
+    /**
+     * Gets what happened.
+     *
+     * @return The type of the event
+     */
+    public TaxiEventType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the class of the vehicle, such as Taxi or Shuttle.
+     *
+     * @return The class of the vehicle
+     */
+    public Class<? extends IVehicle> getVehicleClass() {
+        return this.vehicleClass;
+    }
+
+    /**
+     * Gets the ID of the vehicle.
+     *
+     * @return The ID of the vehicle
+     */
+    public int getVehicleId() {
+        return this.vehicleId;
+    }
+
+    /**
+     * Gets the ID of the rider.
+     *
+     * @return The ID of the rider
+     */
+    public int getUserId() {
+        return this.userId;
+    }
+
+    /**
+     * Gets the X coordinate of the vehicle when it was dispatched.
+     *
+     * @return The X coordinate of the vehicle
+     */
+    public int getVehicleX() {
+        return this.vehicleX;
+    }
+
+    /**
+     * Gets the Y coordinate of the vehicle when it was dispatched.
+     *
+     * @return The Y coordinate of the vehicle
+     */
+    public int getVehicleY() {
+        return this.vehicleY;
+    }
+
+    /**
+     * Gets the X coordinate of the pickup location of a dispatched ride.
+     *
+     * @return The X coordinate of the pickup location
+     */
+    public int getPickupX() {
+        return this.pickupX;
+    }
+
+    /**
+     * Gets the Y coordinate of the pickup location of a dispatched ride.
+     *
+     * @return The Y coordinate of the pickup location
+     */
+    public int getPickupY() {
+        return this.pickupY;
+    }
+
+    /**
+     * Gets the X coordinate of the drop-off location of a dispatched ride.
+     *
+     * @return The X coordinate of the drop-off location
+     */
+    public int getDropoffX() {
+        return this.dropoffX;
+    }
+
+    /**
+     * Gets the Y coordinate of the drop-off location of a dispatched ride.
+     *
+     * @return The Y coordinate of the drop-off location
+     */
+    public int getDropoffY() {
+        return this.dropoffY;
+    }
+
+    /**
+     * Formats the event as the message shown to the user.
+     *
+     * @return The message of the event
+     */
+    @Override
+    public String toString() {
+        if (this.type == null) {
+            return "No event";
+        }
+
+        String vehicle = this.vehicleClass.getSimpleName();
+
+        switch (this.type) {
+            case DISPATCHED:
+                return "User " + this.userId + " requests a service from " + location(this.pickupX, this.pickupY)
+                        + " to " + location(this.dropoffX, this.dropoffY) + ", the ride is assigned to " + vehicle + " "
+                        + this.vehicleId + " at location " + location(this.vehicleX, this.vehicleY);
+            case PICKED_UP:
+                return String.format("%-8s", vehicle) + this.vehicleId + " picks up user " + this.userId;
+            case DROPPED_OFF:
+                return String.format("%-8s", vehicle) + this.vehicleId + " drops off user " + this.userId;
+            default:
+                return "Shared ride accepted for user " + this.userId + " with vehicle " + this.vehicleId;
+        }
+    }
+
+    /**
+     * Fills the fields every event has, and clears the others.
+     *
+     * @param type    The type of the event
+     * @param vehicle The vehicle
+     * @param user    The ID of the rider
+     */
+    private void fill(TaxiEventType type, IVehicle vehicle, int user) {
+        this.type = type;
+        this.vehicleClass = vehicle.getClass();
+        this.vehicleId = vehicle.getId();
+        this.userId = user;
+        this.vehicleX = 0;
+        this.vehicleY = 0;
+        this.pickupX = 0;
+        this.pickupY = 0;
+        this.dropoffX = 0;
+        this.dropoffY = 0;
+    }
+
+    /**
+     * Formats coordinates as a location is shown.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return The formatted location
+     */
+    private static String location(int x, int y) {
+        return "(" + x + "," + y + ")";
+    }
+}
@@ -0,0 +1,10 @@
+package taxify;
+
+/**
+ * Enum representing what happened in a taxi event. DISPATCHED is a ride assigned to a
+ * vehicle, PICKED_UP and DROPPED_OFF are a vehicle reaching the pickup and the drop-off
+ * location of a rider, and SHARED_RIDE_ACCEPTED is a rider joining the ride of a vehicle.
+ */
+public enum TaxiEventType {
+    DISPATCHED, PICKED_UP, DROPPED_OFF, SHARED_RIDE_ACCEPTED
+}
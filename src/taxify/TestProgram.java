@@ -3,12 +3,13 @@ package taxify;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 /**
  * TestProgram class is the main entry point for the application.
  * It initializes the taxi company, creates users, drivers, and vehicles,
- * and simulates the service requests and updates.
+ * and simulates the service requests and updates. A seed may be given as an argument
+ * to replay a run, and the --headless argument samples the fleet on a rendering thread
+ * every 10 ticks instead of showing it every tick.
  */
 public class TestProgram {
     private static final List<String> MALE_NAMES = List.of("John", "Michael", "David", "James", "Robert", "Daniel", "William", "Joseph", "Charles", "Matthew");
@@ -20,7 +21,21 @@ public class TestProgram {
         final int MAX_DRIVERS = 10;
         final int MAX_VEHICLES = 10;
         
-        Random random = new Random();
+        final int SAMPLE_TICKS = 10;
+
+        // a seed given on the command line replays the same run
+
+        boolean headless = false;
+
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                headless = true;
+            } else {
+                ApplicationLibrary.setSeed(Long.parseLong(arg));
+            }
+        }
+
+        RandomService random = ApplicationLibrary.getRandom();
 
         List<IUser> users = new ArrayList<IUser>();
         for (int i = 1; i <= MAX_USERS; i++) {
@@ -41,12 +56,13 @@ public class TestProgram {
         }
 
         List<IVehicle> vehicles = new ArrayList<IVehicle>();
+        FleetTable fleet = new FleetTable(MAX_VEHICLES);
         for (int i = 1; i <= MAX_VEHICLES; i++) {
             ILocation location = ApplicationLibrary.randomLocation();
             if (i % 3 == 0) {
-                vehicles.add(new Shuttle(i, location, drivers.get(i-1)));
+                vehicles.add(new Shuttle(i, location, drivers.get(i-1), fleet, i-1));
             } else {
-                vehicles.add(new Taxi(i, location, drivers.get(i-1)));
+                vehicles.add(new Taxi(i, location, drivers.get(i-1), fleet, i-1));
             }
         }
 
@@ -55,6 +71,14 @@ public class TestProgram {
         ApplicationSimulator appSimulator = new ApplicationSimulator(taxiCompany, users, vehicles);
         
         taxiCompany.addObserver(appSimulator);
+
+        SampledRenderer renderer = null;
+
+        if (headless) {
+            renderer = new SampledRenderer(new TextRenderer(taxiCompany.getName(), System.out), SAMPLE_TICKS, 0);
+            appSimulator.setRenderer(renderer);
+            renderer.start();
+        }
         
         for (int i = 0; i < 5; i++) {
             appSimulator.requestService();
@@ -62,7 +86,10 @@ public class TestProgram {
 
         while (appSimulator.getTotalServices() > 0) {
             
-            appSimulator.show();
+            if (!headless) {
+                appSimulator.show();
+            }
+
             appSimulator.update();
             
             if (random.nextDouble() <= 0.25) {
@@ -70,10 +97,14 @@ public class TestProgram {
             }
         }
 
+        if (renderer != null) {
+            renderer.stop();
+        }
+
         appSimulator.showStatistics();
     }
 
-    private static LocalDate generateRandomBirthDate(Random random) {
+    private static LocalDate generateRandomBirthDate(RandomService random) {
         int year = random.nextInt(50) + 1970;
         int month = random.nextInt(12) + 1;
         int day = random.nextInt(28) + 1;
@@ -0,0 +1,56 @@
+package taxify;
+
+import java.io.PrintStream;
+
+/**
+ * TextRenderer class prints the status of the vehicles of a fleet snapshot, one line per
+ * vehicle as ApplicationSimulator.show() does. The whole snapshot is printed at once.
+ */
+public class TextRenderer implements IFleetRenderer {
+    private String name;
+    private PrintStream out;
+
+    /**
+     * Constructs a renderer printing to a stream.
+     *
+     * @param name The name of the company shown in the header
+     * @param out  The stream to print to
+     */
+    public TextRenderer(String name, PrintStream out) {
+        this.name = name;
+        this.out = out;
+    }
+
+    /**
+     * Prints the status of the vehicles of a snapshot.
+     *
+     * @param snapshot The snapshot
+     */
+    @Override
+    public void render(FleetSnapshot snapshot) {
+        StringBuilder text = new StringBuilder();
+
+        text.append('\n').append(this.name).append(" status at tick ").append(snapshot.getTime())
+                .append(" (").append(snapshot.count(VehicleStatus.FREE)).append(" free, ")
+                .append(snapshot.count(VehicleStatus.PICKUP)).append(" pickup, ")
+                .append(snapshot.count(VehicleStatus.SERVICE)).append(" service) \n\n");
+
+        for (int slot = 0; slot < snapshot.size(); slot++) {
+            text.append(snapshot.getId(slot)).append(" at ").append(snapshot.getLocation(slot))
+                    .append(" driving to ").append(snapshot.getDestination(slot));
+
+            switch (snapshot.getStatus(slot)) {
+                case FREE:
+                    text.append(" is free\n");
+                    break;
+                case PICKUP:
+                    text.append(" to pickup\n");
+                    break;
+                default:
+                    text.append(" in service\n");
+            }
+        }
+
+        this.out.print(text);
+    }
+}
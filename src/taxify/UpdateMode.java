@@ -0,0 +1,10 @@
+package taxify;
+
+/**
+ * Enum representing how the application simulator moves the vehicles every tick.
+ * SEQUENTIAL moves the vehicles one after another, PARALLEL advances them on all cores
+ * and then completes their moves one after another, in the same order.
+ */
+public enum UpdateMode {
+    SEQUENTIAL, PARALLEL
+}
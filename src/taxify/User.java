@@ -1,6 +1,7 @@
 package taxify;
 
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents a user of the taxi service.
@@ -13,7 +14,9 @@ public class User implements IUser {
     private char gender;
     private LocalDate birthDate;
     private ITaxiCompany company;
-    private boolean service;
+    private AtomicBoolean service;
+    private IdleRiders idleRiders;
+    private RiderAgent agent;
     
     /**
      * Constructs a new User with the specified details.
@@ -30,7 +33,9 @@ public class User implements IUser {
         this.lastName = lastName;
         this.gender = gender;
         this.birthDate = birthDate;
-        this.service = false;
+        this.service = new AtomicBoolean(false);
+        this.idleRiders = null;
+        this.agent = null;
     }
     
     /**
@@ -90,7 +95,7 @@ public class User implements IUser {
      */
     @Override
     public boolean getService() {
-        return this.service;
+        return this.service.get();
     }
     
     /**
@@ -100,7 +105,56 @@ public class User implements IUser {
      */
     @Override
     public void setService(boolean service) {
-        this.service = service;
+        if (this.service.getAndSet(service) == service) {
+            return;
+        }
+
+        if (this.idleRiders != null) {
+            this.idleRiders.update(this);
+        }
+
+        if (!service && this.agent != null) {
+            this.agent.serviceEnded();
+        }
+    }
+
+    /**
+     * Marks the user as having an active service, unless they already have one.
+     * Only one caller can reserve a user without an active service.
+     *
+     * @return true if the user had no active service and is now reserved, false otherwise
+     */
+    @Override
+    public boolean reserveService() {
+        if (!this.service.compareAndSet(false, true)) {
+            return false;
+        }
+
+        if (this.idleRiders != null) {
+            this.idleRiders.update(this);
+        }
+
+        return true;
+    }
+
+    /**
+     * Sets the set of idle users the user reports the changes of its service flag to.
+     *
+     * @param idleRiders the set of idle users
+     */
+    @Override
+    public void setIdleRiders(IdleRiders idleRiders) {
+        this.idleRiders = idleRiders;
+    }
+    
+    /**
+     * Sets the agent that acts for the user, which is told when a service of the user ends.
+     *
+     * @param agent the agent of the user
+     */
+    @Override
+    public void setAgent(RiderAgent agent) {
+        this.agent = agent;
     }
     
     /**
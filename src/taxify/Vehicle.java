@@ -1,38 +1,54 @@
 package taxify;
 
-import java.util.ArrayList;
-
 /**
  * An abstract class representing a vehicle in the taxi service system.
  * Implements the IVehicle interface and provides base functionality for different types of vehicles.
+ * The location, route, status and statistics of the vehicle are kept in its slot of a fleet
+ * table. A fleet is best built straight into the slots of its table; a vehicle built on its
+ * own has a table of one slot until it joins the table of its fleet.
+ * A free vehicle cruises to random locations of the whole map, or of its region if it has one.
  */
 public abstract class Vehicle implements IVehicle {
     private int id;
     private ITaxiCompany company;
     private IBaseService service;
-    private VehicleStatus status;
-    private ILocation location;
-    private ILocation destination;
-    private ArrayList<ILocation> nextDestinations = new ArrayList<>();
+    private FleetTable fleet;
+    private int slot;
     private IStatistics statistics;
-    private IRoute route;
     private IDriver driver;
+    private Region region;
 
     /**
-     * Constructs a new Vehicle with specified parameters.
+     * Constructs a new Vehicle with specified parameters, in a table of its own.
      * 
      * @param id       The unique identifier for the vehicle
      * @param location The initial location of the vehicle
      * @param driver   The driver assigned to this vehicle
      */
     public Vehicle(int id, ILocation location, IDriver driver) {
+        this(id, location, driver, new FleetTable(1), 0);
+    }
+
+    /**
+     * Constructs a new Vehicle with specified parameters, in a slot of the table of its fleet.
+     * 
+     * @param id       The unique identifier for the vehicle
+     * @param location The initial location of the vehicle
+     * @param driver   The driver assigned to this vehicle
+     * @param fleet    The fleet table
+     * @param slot     The slot of the vehicle in the table
+     */
+    public Vehicle(int id, ILocation location, IDriver driver, FleetTable fleet, int slot) {
         this.id = id;
         this.service = null;
-        this.status = VehicleStatus.FREE;
-        this.location = location;
-        this.destination = ApplicationLibrary.randomLocation(this.location);
-        this.statistics = new Statistics();
-        this.route = new Route(this.location, this.destination);
+        this.region = null;
+        this.fleet = fleet;
+        this.slot = slot;
+        this.fleet.attach(this, this.slot, null, 0);
+        this.fleet.setStatus(this.slot, VehicleStatus.FREE);
+        this.fleet.setLocation(this.slot, location);
+        this.fleet.setDestination(this.slot, ApplicationLibrary.randomLocation(location));
+        this.statistics = new FleetStatistics(this.fleet, this.slot);
         this.driver = driver;
     }
 
@@ -49,7 +65,7 @@ public abstract class Vehicle implements IVehicle {
      */
     @Override
     public ILocation getLocation() {
-        return this.location;
+        return this.fleet.getLocation(this.slot);
     }
 
     /**
@@ -57,25 +73,23 @@ public abstract class Vehicle implements IVehicle {
      */
     @Override
     public ILocation getDestination() {
-        return this.destination;
+        return this.fleet.getDestination(this.slot);
     }
 
     /**
-     * Adds a new destination to the vehicle's queue of destinations.
-     * 
-     * @param location The location to add as a destination
+     * @return The current service being performed by the vehicle
      */
     @Override
-    public void addDestination(ILocation location) {
-        this.nextDestinations.add(location);
+    public IBaseService getService() {
+        return this.service;
     }
 
     /**
-     * @return The current service being performed by the vehicle
+     * @return The current status of the vehicle
      */
     @Override
-    public IBaseService getService() {
-        return this.service;
+    public VehicleStatus getStatus() {
+        return this.fleet.getStatus(this.slot);
     }
 
     /**
@@ -97,29 +111,101 @@ public abstract class Vehicle implements IVehicle {
     }
 
     /**
-     * Assigns a service to this vehicle and prepares for pickup.
+     * Gets the table the state of the vehicle is kept in.
+     * 
+     * @return The fleet table
+     */
+    @Override
+    public synchronized FleetTable getFleet() {
+        return this.fleet;
+    }
+
+    /**
+     * Moves the state of the vehicle to a slot of the table of its fleet.
+     * 
+     * @param fleet The fleet table
+     * @param slot  The slot of the vehicle in the table
+     */
+    @Override
+    public synchronized void setFleet(FleetTable fleet, int slot) {
+        fleet.attach(this, slot, this.fleet, this.slot);
+
+        this.fleet = fleet;
+        this.slot = slot;
+        this.statistics = new FleetStatistics(fleet, slot);
+    }
+
+    /**
+     * Gets the region the vehicle cruises in while it is free.
+     * 
+     * @return The region, or null for the whole map
+     */
+    @Override
+    public Region getRegion() {
+        return this.region;
+    }
+
+    /**
+     * Sets the region the vehicle cruises in while it is free. A free vehicle is rerouted
+     * to a location of the region right away.
+     * 
+     * @param region The region, or null for the whole map
+     */
+    @Override
+    public synchronized void setRegion(Region region) {
+        this.region = region;
+
+        if (isFree()) {
+            this.fleet.setDestination(this.slot, randomDestination());
+        }
+    }
+
+    /**
+     * Claims the vehicle for a new service, atomically switching its status from
+     * "free" to "pickup". Only one caller can claim a free vehicle.
+     * 
+     * @return true if the vehicle was free and is now claimed, false otherwise
+     */
+    @Override
+    public boolean claim() {
+        return this.fleet.compareAndSetStatus(this.slot, VehicleStatus.FREE, VehicleStatus.PICKUP);
+    }
+
+    /**
+     * Assigns a service to this vehicle and prepares for pickup. If the vehicle is already
+     * at the pickup location, it arrives at once.
      * 
      * @param service The service to be picked up
      */
     @Override
-    public void pickService(IBaseService service) {
+    public synchronized void pickService(IBaseService service) {
         // pick a service, set destination to the service pickup location, and status to
         // "pickup"
 
         this.service = service;
-        this.destination = service.getPickupLocation();
-        this.route = new Route(this.location, this.destination);
-        this.status = VehicleStatus.PICKUP;
+        this.fleet.setDestination(this.slot, service.getPickupLocation());
+        this.fleet.setStatus(this.slot, VehicleStatus.PICKUP);
+
+        // a route of no locations has no end to reach, so the vehicle would wait forever
+
+        if (this.fleet.getRemainingSteps(this.slot) == 0) {
+            notifyArrivalAtPickupLocation();
+        }
     }
 
     /**
-     * Sets the current service for this vehicle.
+     * Sets the current service for this vehicle. A vehicle already in service drives
+     * to the next drop-off location of the new service, whose stops may have been reordered.
      * 
      * @param service The service to be set
      */
     @Override
-    public void setService(IBaseService service) {
+    public synchronized void setService(IBaseService service) {
         this.service = service;
+
+        if (getStatus() == VehicleStatus.SERVICE) {
+            driveToDropoffLocation();
+        }
     }
 
     /**
@@ -128,9 +214,8 @@ public abstract class Vehicle implements IVehicle {
     @Override
     public void startService() {
         // set destination to the service drop-off location, and status to "service"
-        this.destination = this.service.getDropoffLocation();
-        this.route = new Route(this.location, this.destination);
-        this.status = VehicleStatus.SERVICE;
+        this.fleet.setDestination(this.slot, this.service.getDropoffLocation());
+        this.fleet.setStatus(this.slot, VehicleStatus.SERVICE);
     }
 
     /**
@@ -162,9 +247,14 @@ public abstract class Vehicle implements IVehicle {
         // set service to null, and status to "free"
 
         this.service = null;
-        this.destination = ApplicationLibrary.randomLocation(this.location);
-        this.route = new Route(this.location, this.destination);
-        this.status = VehicleStatus.FREE;
+        this.fleet.setDestination(this.slot, randomDestination());
+        this.fleet.setStatus(this.slot, VehicleStatus.FREE);
+
+        // let the company index the vehicle as free again
+
+        if (this.company != null) {
+            this.company.vehicleFreed(this);
+        }
     }
 
     /**
@@ -194,23 +284,41 @@ public abstract class Vehicle implements IVehicle {
             this.company.arrivedAtDropoffLocation(this);
         }
 
-        if (this.service instanceof ISharedService) {
-            if (this.nextDestinations.size() > 0) {
-                this.destination = this.nextDestinations.get(0);
-                this.route.addDestination(this.location, destination);
-                this.nextDestinations.remove(0);
-                
-                ISharedService sharedService = (ISharedService) this.service;
-                sharedService.removeDropoffLocation();
-            } else {
-                endService();
-            }
+        // shared services go on to the next drop-off location until every user is dropped off
+
+        if (this.service instanceof ISharedService && !((ISharedService) this.service).getUsers().isEmpty()) {
+            driveToDropoffLocation();
         } else {
             endService();
         }
 
     }
 
+    /**
+     * Routes the vehicle to the next drop-off location of its service. If the vehicle is
+     * already there, it arrives at once.
+     */
+    private void driveToDropoffLocation() {
+        this.fleet.setDestination(this.slot, this.service.getDropoffLocation());
+
+        if (this.fleet.getRemainingSteps(this.slot) == 0) {
+            notifyArrivalAtDropoffLocation();
+        }
+    }
+
+    /**
+     * Draws the next random location a free vehicle cruises to, inside its region if it has one.
+     * 
+     * @return The random location
+     */
+    private ILocation randomDestination() {
+        if (this.region == null) {
+            return ApplicationLibrary.randomLocation(getLocation());
+        }
+
+        return this.region.randomLocation(getLocation());
+    }
+
     /**
      * Checks if the vehicle is available for new services.
      * 
@@ -219,38 +327,61 @@ public abstract class Vehicle implements IVehicle {
     @Override
     public boolean isFree() {
         // returns true if the status of the vehicle is "free" and false otherwise
-        return this.status == VehicleStatus.FREE;
+        return getStatus() == VehicleStatus.FREE;
     }
 
     /**
      * Moves the vehicle to the next location along its route.
-     * Handles arrival at pickup and dropoff locations.
+     * Handles arrival at pickup and dropoff locations. Moving and assigning a service
+     * are synchronized on the vehicle, so a service can be assigned from any thread.
+     */
+    @Override
+    public synchronized void move() {
+        if (advance()) {
+            completeMove();
+        }
+    }
+
+    /**
+     * Moves the vehicle to the next location along its route, without notifying anyone.
+     * Advancing only touches the vehicle itself, so many vehicles can advance in parallel.
+     * 
+     * @return true if the move must be completed with completeMove(), false otherwise
+     */
+    @Override
+    public synchronized boolean advance() {
+        return this.fleet.advance(this.slot);
+    }
+
+    /**
+     * Completes the last move of the vehicle: reports the new location of a free vehicle
+     * to the company, and handles the end of the route.
      */
     @Override
-    public void move() {
-        this.location = this.route.getNextLocation();
+    public synchronized void completeMove() {
+        // free vehicles report their new location so the company can find them by proximity
+
+        if (this.company != null && isFree()) {
+            this.company.vehicleMoved(this);
+        }
 
         // if the route has more locations the vehicle continues its route, otherwise
         // the vehicle has arrived to a pickup or drop off location
 
-        if (!this.route.hasLocations()) {
+        if (this.fleet.getRemainingSteps(this.slot) == 0) {
             if (this.service == null) {
                 // the vehicle continues its random route
 
-                this.destination = ApplicationLibrary.randomLocation(this.location);
-                this.route = new Route(this.location, this.destination);
+                this.fleet.setDestination(this.slot, randomDestination());
             } else {
-                // check if the vehicle has arrived to a pickup or drop off location
-
-                ILocation origin = this.service.getPickupLocation();
-                ILocation destination = this.service.getDropoffLocation();
+                // the route ends at the pickup location while picking up the user, and at
+                // the next drop-off location while in service
 
-                if (this.location.getX() == origin.getX() && this.location.getY() == origin.getY()) {
+                if (getStatus() == VehicleStatus.PICKUP) {
 
                     notifyArrivalAtPickupLocation();
 
-                } else if (this.location.getX() == destination.getX()
-                        && this.location.getY() == destination.getY()) {
+                } else {
 
                     notifyArrivalAtDropoffLocation();
 
@@ -259,6 +390,42 @@ public abstract class Vehicle implements IVehicle {
         }
     }
 
+    /**
+     * Moves the vehicle a number of locations along its route at once. Only the last
+     * location is reached as in move(), so arrivals and location updates are handled once.
+     * 
+     * @param steps The number of locations to move, at most the remaining steps of the route
+     */
+    @Override
+    public synchronized void move(int steps) {
+        if (steps <= 0) {
+            return;
+        }
+
+        this.fleet.skip(this.slot, steps - 1);
+        move();
+    }
+
+    /**
+     * @return The number of locations left before the vehicle reaches its destination
+     */
+    @Override
+    public synchronized int getRemainingSteps() {
+        return this.fleet.getRemainingSteps(this.slot);
+    }
+
+    /**
+     * Computes the location the vehicle will be at after moving a number of locations
+     * along its route, without moving it.
+     * 
+     * @param steps The number of locations, at most the remaining steps of the route
+     * @return The location the vehicle will be at
+     */
+    @Override
+    public synchronized ILocation getLocationAfter(int steps) {
+        return this.fleet.peek(this.slot, steps);
+    }
+
     /**
      * Calculates the cost of the current service.
      * 
@@ -274,10 +441,12 @@ public abstract class Vehicle implements IVehicle {
      * @return A string representation of the vehicle's current state
      */
     @Override
-    public String toString() {
-        return this.id + " at " + this.location + " driving to " + this.destination +
-                ((this.status == VehicleStatus.FREE) ? " is free with path " + this.route.toString()
-                        : ((this.status == VehicleStatus.PICKUP) ? " to pickup user " + this.service.getUser().getId()
+    public synchronized String toString() {
+        VehicleStatus status = getStatus();
+
+        return this.id + " at " + getLocation() + " driving to " + getDestination() +
+                ((status == VehicleStatus.FREE) ? " is free with path " + this.fleet.routeToString(this.slot)
+                        : ((status == VehicleStatus.PICKUP && this.service != null) ? " to pickup user " + this.service.getUser().getId()
                                 : " in service "));
     }
 
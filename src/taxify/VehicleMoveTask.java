@@ -0,0 +1,51 @@
+package taxify;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * VehicleMoveTask class advances a range of the slots of a fleet table one location on a
+ * fork/join pool. The range is split in halves until it is small enough, and every vehicle
+ * records in its own slot whether its move must be completed afterwards.
+ */
+public class VehicleMoveTask extends RecursiveAction {
+    /** The number of vehicles below which a range is advanced without splitting it. */
+    private static final int THRESHOLD = 256;
+
+    private static final long serialVersionUID = 1L;
+
+    private transient FleetTable fleet;
+    private boolean[] pending;
+    private int from;
+    private int to;
+
+    /**
+     * Constructs a task that advances a range of vehicles.
+     *
+     * @param fleet   The fleet table
+     * @param pending The slots that record which vehicles must complete their move
+     * @param from    The first slot of the range
+     * @param to      The slot after the last slot of the range
+     */
+    public VehicleMoveTask(FleetTable fleet, boolean[] pending, int from, int to) {
+        this.fleet = fleet;
+        this.pending = pending;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Advances the vehicles of the range, splitting it between two tasks if it is large.
+     */
+    @Override
+    protected void compute() {
+        if (this.to - this.from <= THRESHOLD) {
+            this.fleet.advance(this.from, this.to, this.pending);
+            return;
+        }
+
+        int middle = (this.from + this.to) >>> 1;
+
+        invokeAll(new VehicleMoveTask(this.fleet, this.pending, this.from, middle),
+                new VehicleMoveTask(this.fleet, this.pending, middle, this.to));
+    }
+}